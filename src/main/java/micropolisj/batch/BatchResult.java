@@ -0,0 +1,53 @@
+// This file is part of MicropolisJ.
+// Copyright (C) 2013 Jason Long
+// Portions Copyright (C) 1989-2007 Electronic Arts Inc.
+//
+// MicropolisJ is free software; you can redistribute it and/or modify
+// it under the terms of the GNU GPLv3, with additional terms.
+// See the README file, included in this distribution, for details.
+
+package micropolisj.batch;
+
+import java.util.concurrent.TimeUnit;
+
+/** How much simulating a batch of cities took. */
+public final class BatchResult {
+  private final int cities;
+  private final long cityMonths;
+  private final long elapsedNanos;
+
+  BatchResult(int cities, long cityMonths, long elapsedNanos) {
+    this.cities = cities;
+    this.cityMonths = cityMonths;
+    this.elapsedNanos = elapsedNanos;
+  }
+
+  /** Returns the number of cities run. */
+  public int getCities() {
+    return cities;
+  }
+
+  /** Returns the number of years simulated, summed over all cities. */
+  public double getCityYears() {
+    return cityMonths / 12.0;
+  }
+
+  /** Returns the wall clock time the batch took, in nanoseconds. */
+  public long getElapsedNanos() {
+    return elapsedNanos;
+  }
+
+  /**
+   * Returns the number of years simulated, summed over all cities, per second of wall clock time.
+   */
+  public double getCityYearsPerSecond() {
+    return getCityYears() * TimeUnit.SECONDS.toNanos(1) / Math.max(1, elapsedNanos);
+  }
+
+  @Override
+  public String toString() {
+    return String.format(
+        "%d cities, %.1f city-years in %.2f s: %.1f city-years/s",
+        cities, getCityYears(), elapsedNanos / 1e9, getCityYearsPerSecond());
+  }
+}
@@ -0,0 +1,307 @@
+// This file is part of MicropolisJ.
+// Copyright (C) 2013 Jason Long
+// Portions Copyright (C) 1989-2007 Electronic Arts Inc.
+//
+// MicropolisJ is free software; you can redistribute it and/or modify
+// it under the terms of the GNU GPLv3, with additional terms.
+// See the README file, included in this distribution, for details.
+
+package micropolisj.batch;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import micropolisj.engine.GameLevel;
+import micropolisj.engine.MapGenerator;
+import micropolisj.engine.MapGenerator.CreateIsland;
+import micropolisj.engine.Micropolis;
+
+/**
+ * Runs one city for each seed of a range, each for the same number of years and with the same
+ * {@link Policy}, and writes the census of every city, every month, as CSV.
+ *
+ * <p>A city is either a map generated from its seed, with a {@link StarterTown} to grow from, or a
+ * copy of a template city loaded from a file and reseeded, so that each seed plays the template
+ * differently. Either way, the city only depends on its seed and the settings of the runner, and
+ * cities with the same seed evolve the same way wherever and whenever they run. Each city is a
+ * separate engine, advanced by a single thread with {@link Micropolis#advanceUntil}; the cities run
+ * concurrently on a pool with one thread per core, or on a virtual thread each.
+ */
+public class BatchRunner {
+  private long firstSeed = 1;
+  private int cities = 1;
+  private int years = 50;
+  private int width = 120;
+  private int height = 100;
+  private CreateIsland createIsland = CreateIsland.SELDOM;
+  private File template;
+  private int gameLevel = GameLevel.MIN_LEVEL;
+  private boolean disasters = true;
+  private Policy policy = Policy.DEFAULT;
+  private int threads = Runtime.getRuntime().availableProcessors();
+
+  /** Runs the cities for the seeds from the given one, the given number of them. */
+  public void setSeeds(long firstSeed, int cities) {
+    if (cities < 1) {
+      throw new IllegalArgumentException("Unsupported number of cities: " + cities);
+    }
+    this.firstSeed = firstSeed;
+    this.cities = cities;
+  }
+
+  public void setYears(int years) {
+    if (years < 1) {
+      throw new IllegalArgumentException("Unsupported number of years: " + years);
+    }
+    this.years = years;
+  }
+
+  /** Sets the size of the maps generated; the default is the classic 120 by 100. */
+  public void setMapSize(int width, int height) {
+    if (Math.min(width, height) < Micropolis.MIN_SIZE
+        || Math.max(width, height) > Micropolis.MAX_SIZE) {
+      throw new IllegalArgumentException("Unsupported map size: " + width + "x" + height);
+    }
+    this.width = width;
+    this.height = height;
+  }
+
+  public void setCreateIsland(CreateIsland createIsland) {
+    assert createIsland != null;
+    this.createIsland = createIsland;
+  }
+
+  /**
+   * Sets the city file each city starts as a copy of, or null to generate the maps. The size,
+   * level, funds and the rest of a template are kept; only its random numbers are reseeded.
+   */
+  public void setTemplate(File template) {
+    this.template = template;
+  }
+
+  /** Sets the level of the generated cities, which also sets the funds they start with. */
+  public void setGameLevel(int gameLevel) {
+    if (!GameLevel.isValid(gameLevel)) {
+      throw new IllegalArgumentException("Unsupported game level: " + gameLevel);
+    }
+    this.gameLevel = gameLevel;
+  }
+
+  public void setDisasters(boolean disasters) {
+    this.disasters = disasters;
+  }
+
+  public void setPolicy(Policy policy) {
+    assert policy != null;
+    this.policy = policy;
+  }
+
+  /**
+   * Sets the number of cities run at once, on a pool of that many threads, or 0 to run every city
+   * on a virtual thread of its own. The default is one thread per core.
+   */
+  public void setThreads(int threads) {
+    if (threads < 0) {
+      throw new IllegalArgumentException("Unsupported number of threads: " + threads);
+    }
+    this.threads = threads;
+  }
+
+  /**
+   * Runs the cities and writes their census to the given writer, which is flushed but not closed.
+   *
+   * @throws IOException if a template cannot be loaded or the census cannot be written; the cities
+   *     still running are interrupted
+   */
+  public BatchResult run(Writer out) throws IOException, InterruptedException {
+    CensusWriter census = new CensusWriter(out);
+    long months = 0;
+    long start = System.nanoTime();
+
+    try (ExecutorService pool =
+        threads == 0
+            ? Executors.newVirtualThreadPerTaskExecutor()
+            : Executors.newFixedThreadPool(threads)) {
+      List<Future<Integer>> runs = new ArrayList<>(cities);
+      for (int i = 0; i < cities; i++) {
+        long seed = firstSeed + i;
+        runs.add(pool.submit(() -> runCity(seed, census)));
+      }
+      for (Future<Integer> run : runs) {
+        try {
+          months += run.get();
+        } catch (ExecutionException e) {
+          pool.shutdownNow();
+          throw rethrow(e.getCause());
+        }
+      }
+    }
+
+    long elapsed = System.nanoTime() - start;
+    census.flush();
+    return new BatchResult(cities, months, elapsed);
+  }
+
+  private static IOException rethrow(Throwable cause) {
+    if (cause instanceof IOException) {
+      return (IOException) cause;
+    } else if (cause instanceof RuntimeException) {
+      throw (RuntimeException) cause;
+    } else if (cause instanceof Error) {
+      throw (Error) cause;
+    }
+    throw new RuntimeException(cause);
+  }
+
+  /** Runs the city of the given seed, and returns the number of months it ran. */
+  private int runCity(long seed, CensusWriter census) throws IOException {
+    Micropolis city = createCity(seed);
+    int months = 12 * years;
+    for (int i = 0; i < months; i++) {
+      if (Thread.currentThread().isInterrupted()) {
+        return i;
+      }
+      int endTime = city.getCityTime() + Micropolis.CENSUSRATE;
+      city.advanceUntil(c -> c.getCityTime() >= endTime && c.isCensusTaken());
+      census.write(seed, city);
+    }
+    return months;
+  }
+
+  Micropolis createCity(long seed) throws IOException {
+    Micropolis city;
+    if (template != null) {
+      city = new Micropolis();
+      city.load(template);
+      city.setSeed(seed);
+    } else {
+      city = new Micropolis(width, height, seed);
+      MapGenerator generator = new MapGenerator(city);
+      generator.setCreateIsland(createIsland);
+      generator.generateNewCity();
+      city.setGameLevel(gameLevel);
+      city.setFunds(GameLevel.getStartingFunds(gameLevel));
+      StarterTown.build(city);
+    }
+    if (city.isNoDisasters() == disasters) {
+      city.toggleDisasters();
+    }
+    policy.apply(city);
+    return city;
+  }
+
+  private static final String USAGE =
+      "usage: batch [--seeds=FIRST..LAST] [--years=N] [--size=WxH] [--island=never|seldom|always]"
+          + " [--template=FILE] [--level=0|1|2] [--disasters=true|false] [--tax=PERCENT]"
+          + " [--road=PERCENT] [--police=PERCENT] [--fire=PERCENT] [--threads=N|0] [--out=FILE]";
+
+  /**
+   * Runs a batch as given by the arguments, writes the census to the output file, or to the
+   * standard output, and prints how fast the cities ran to the standard error.
+   */
+  public static void main(String[] args) throws IOException, InterruptedException {
+    BatchRunner runner = new BatchRunner();
+    String out = null;
+    int tax = Policy.DEFAULT.getTaxRate();
+    double road = Policy.DEFAULT.getRoadPercent();
+    double police = Policy.DEFAULT.getPolicePercent();
+    double fire = Policy.DEFAULT.getFirePercent();
+
+    try {
+      for (String arg : args) {
+        int eq = arg.indexOf('=');
+        if (!arg.startsWith("--") || eq < 0) {
+          throw new IllegalArgumentException("Unexpected argument: " + arg);
+        }
+        String key = arg.substring(2, eq);
+        String value = arg.substring(eq + 1);
+        switch (key) {
+          case "seeds":
+            {
+              int dots = value.indexOf("..");
+              long first = Long.parseLong(dots < 0 ? value : value.substring(0, dots));
+              long last = dots < 0 ? first : Long.parseLong(value.substring(dots + 2));
+              runner.setSeeds(first, Math.toIntExact(last - first + 1));
+              break;
+            }
+          case "years":
+            runner.setYears(Integer.parseInt(value));
+            break;
+          case "size":
+            {
+              int x = value.indexOf('x');
+              if (x < 0) {
+                throw new IllegalArgumentException("Unsupported map size: " + value);
+              }
+              runner.setMapSize(
+                  Integer.parseInt(value.substring(0, x)),
+                  Integer.parseInt(value.substring(x + 1)));
+              break;
+            }
+          case "island":
+            runner.setCreateIsland(CreateIsland.valueOf(value.toUpperCase(Locale.ROOT)));
+            break;
+          case "template":
+            runner.setTemplate(new File(value));
+            break;
+          case "level":
+            runner.setGameLevel(Integer.parseInt(value));
+            break;
+          case "disasters":
+            runner.setDisasters(Boolean.parseBoolean(value));
+            break;
+          case "tax":
+            tax = Integer.parseInt(value);
+            break;
+          case "road":
+            road = Integer.parseInt(value) / 100.0;
+            break;
+          case "police":
+            police = Integer.parseInt(value) / 100.0;
+            break;
+          case "fire":
+            fire = Integer.parseInt(value) / 100.0;
+            break;
+          case "threads":
+            runner.setThreads(Integer.parseInt(value));
+            break;
+          case "out":
+            out = value;
+            break;
+          default:
+            throw new IllegalArgumentException("Unknown option: " + key);
+        }
+      }
+      runner.setPolicy(new Policy(tax, road, police, fire));
+    } catch (IllegalArgumentException | IndexOutOfBoundsException | ArithmeticException e) {
+      System.err.println(e.getMessage());
+      System.err.println(USAGE);
+      System.exit(2);
+      return;
+    }
+
+    BatchResult result;
+    if (out != null) {
+      try (Writer writer = Files.newBufferedWriter(Paths.get(out), StandardCharsets.UTF_8)) {
+        result = runner.run(writer);
+      }
+    } else {
+      Writer writer =
+          new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+      result = runner.run(writer);
+    }
+    System.err.println(result);
+  }
+}
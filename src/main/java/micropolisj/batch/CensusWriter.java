@@ -0,0 +1,82 @@
+// This file is part of MicropolisJ.
+// Copyright (C) 2013 Jason Long
+// Portions Copyright (C) 1989-2007 Electronic Arts Inc.
+//
+// MicropolisJ is free software; you can redistribute it and/or modify
+// it under the terms of the GNU GPLv3, with additional terms.
+// See the README file, included in this distribution, for details.
+
+package micropolisj.batch;
+
+import java.io.IOException;
+import java.io.Writer;
+import micropolisj.engine.Micropolis;
+
+/**
+ * Writes the census of the cities of a batch as CSV, one row per city and month. Cities running on
+ * different threads may write at the same time; each row is formatted by the thread of its city,
+ * and only the writing itself is serialized, so rows of different cities interleave but are never
+ * mixed up.
+ */
+final class CensusWriter {
+  static final String HEADER =
+      "seed,year,month,population,residential,commercial,industrial,funds,score,class,"
+          + "crime,pollution,land_value,traffic";
+
+  private final Writer out;
+
+  CensusWriter(Writer out) throws IOException {
+    this.out = out;
+    out.write(HEADER);
+    out.write('\n');
+  }
+
+  /**
+   * Writes a row with the census of the given city, which must just have been {@link
+   * Micropolis#isCensusTaken taken}, dated at the month it counts.
+   */
+  void write(long seed, Micropolis city) throws IOException {
+    String row = format(seed, city);
+    synchronized (this) {
+      out.write(row);
+    }
+  }
+
+  synchronized void flush() throws IOException {
+    out.flush();
+  }
+
+  static String format(long seed, Micropolis city) {
+    int cityTime = city.getCityTime() - Micropolis.CENSUSRATE;
+    StringBuilder row = new StringBuilder(96);
+    row.append(seed)
+        .append(',')
+        .append(1900 + cityTime / 48)
+        .append(',')
+        .append(cityTime % 48 / 4 + 1)
+        .append(',')
+        .append(city.getCityPopulation())
+        .append(',')
+        .append(city.getResPop())
+        .append(',')
+        .append(city.getComPop())
+        .append(',')
+        .append(city.getIndPop())
+        .append(',')
+        .append(city.getBudget().getTotalFunds())
+        .append(',')
+        .append(city.getEvaluation().getCityScore())
+        .append(',')
+        .append(city.getEvaluation().getCityClass())
+        .append(',')
+        .append(city.getCrimeAverage())
+        .append(',')
+        .append(city.getPollutionAverage())
+        .append(',')
+        .append(city.getLandValueAverage())
+        .append(',')
+        .append(city.getTrafficAverage())
+        .append('\n');
+    return row.toString();
+  }
+}
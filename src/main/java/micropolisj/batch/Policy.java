@@ -0,0 +1,88 @@
+// This file is part of MicropolisJ.
+// Copyright (C) 2013 Jason Long
+// Portions Copyright (C) 1989-2007 Electronic Arts Inc.
+//
+// MicropolisJ is free software; you can redistribute it and/or modify
+// it under the terms of the GNU GPLv3, with additional terms.
+// See the README file, included in this distribution, for details.
+
+package micropolisj.batch;
+
+import micropolisj.engine.Micropolis;
+
+/**
+ * The budget the cities of a batch are run with: the tax rate, and the shares of what roads, police
+ * stations and fire stations request that the city funds.
+ */
+public final class Policy {
+  /** The budget of a new city: 7% tax, everything fully funded. */
+  public static final Policy DEFAULT = new Policy(7, 1.0, 1.0, 1.0);
+
+  private final int taxRate;
+  private final double roadPercent;
+  private final double policePercent;
+  private final double firePercent;
+
+  /**
+   * Creates a policy with the given tax rate, in percent, and the given shares of road, police and
+   * fire requests funded, from 0 to 1.
+   *
+   * @throws IllegalArgumentException if the tax rate is outside of 0 to 20, or a share outside of 0
+   *     to 1
+   */
+  public Policy(int taxRate, double roadPercent, double policePercent, double firePercent) {
+    if (taxRate < 0 || taxRate > 20) {
+      throw new IllegalArgumentException("Unsupported tax rate: " + taxRate);
+    }
+    checkPercent(roadPercent);
+    checkPercent(policePercent);
+    checkPercent(firePercent);
+    this.taxRate = taxRate;
+    this.roadPercent = roadPercent;
+    this.policePercent = policePercent;
+    this.firePercent = firePercent;
+  }
+
+  private static void checkPercent(double percent) {
+    if (!(percent >= 0.0 && percent <= 1.0)) {
+      throw new IllegalArgumentException("Unsupported budget share: " + percent);
+    }
+  }
+
+  /** Sets the budget of the given city to this policy. */
+  public void apply(Micropolis city) {
+    city.setCityTax(taxRate);
+    city.setRoadPercent(roadPercent);
+    city.setPolicePercent(policePercent);
+    city.setFirePercent(firePercent);
+  }
+
+  public int getTaxRate() {
+    return taxRate;
+  }
+
+  public double getRoadPercent() {
+    return roadPercent;
+  }
+
+  public double getPolicePercent() {
+    return policePercent;
+  }
+
+  public double getFirePercent() {
+    return firePercent;
+  }
+
+  @Override
+  public String toString() {
+    return "tax="
+        + taxRate
+        + "% road="
+        + Math.round(roadPercent * 100)
+        + "% police="
+        + Math.round(policePercent * 100)
+        + "% fire="
+        + Math.round(firePercent * 100)
+        + "%";
+  }
+}
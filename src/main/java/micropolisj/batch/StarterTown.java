@@ -0,0 +1,66 @@
+// This file is part of MicropolisJ.
+// Copyright (C) 2013 Jason Long
+// Portions Copyright (C) 1989-2007 Electronic Arts Inc.
+//
+// MicropolisJ is free software; you can redistribute it and/or modify
+// it under the terms of the GNU GPLv3, with additional terms.
+// See the README file, included in this distribution, for details.
+
+package micropolisj.batch;
+
+import micropolisj.engine.Micropolis;
+import micropolisj.engine.MicropolisTool;
+import micropolisj.engine.TileConstants;
+
+/**
+ * Lays out the town a generated city starts from, since a map with no zones never grows: a coal
+ * power plant, a power line, and rows of zones along a few roads, in the middle of the map. The
+ * town is paid for out of the funds of the city, like a player would.
+ */
+final class StarterTown {
+
+  /** Edge length of the square the town is laid out in. */
+  static final int SIZE = 40;
+
+  private static final MicropolisTool[] ZONES = {
+    MicropolisTool.RESIDENTIAL,
+    MicropolisTool.COMMERCIAL,
+    MicropolisTool.RESIDENTIAL,
+    MicropolisTool.INDUSTRIAL,
+    MicropolisTool.RESIDENTIAL
+  };
+
+  private StarterTown() {}
+
+  static void build(Micropolis city) {
+    int width = Math.min(SIZE, city.getWidth());
+    int height = Math.min(SIZE, city.getHeight());
+    int ox = (city.getWidth() - width) / 2;
+    int oy = (city.getHeight() - height) / 2;
+
+    // the terrain under the town is cleared for free, whatever the generator put there
+    for (int y = oy; y < oy + height; y++) {
+      for (int x = ox; x < ox + width; x++) {
+        city.setTile(x, y, TileConstants.DIRT);
+      }
+    }
+    apply(city, MicropolisTool.POWERPLANT, ox + 2, oy + 2);
+    for (int y = oy + 1; y < oy + height - 1; y++) {
+      apply(city, MicropolisTool.WIRE, ox + 5, y);
+    }
+    int k = 0;
+    for (int r = oy + 8; r < oy + height - 4; r += 10) {
+      for (int x = ox + 5; x < ox + width - 1; x++) {
+        apply(city, MicropolisTool.ROADS, x, r);
+      }
+      for (int x = ox + 7; x < ox + width - 1; x += 3) {
+        apply(city, ZONES[k++ % ZONES.length], x, r - 2);
+        apply(city, ZONES[k++ % ZONES.length], x, r + 2);
+      }
+    }
+  }
+
+  private static void apply(Micropolis city, MicropolisTool tool, int x, int y) {
+    tool.beginStroke(city, x, y).apply();
+  }
+}
@@ -0,0 +1,9 @@
+/**
+ * Contains a runner that simulates many cities at once without a user interface, to measure how
+ * changes to the rules of the game play out over many years.
+ *
+ * <p>The BatchRunner class runs one city per seed on a pool of threads and streams the census of
+ * every city to a CSV file. Each city is a separate engine with its own random numbers, so the
+ * cities share nothing but the tile specifications, which are read-only.
+ */
+package micropolisj.batch;
@@ -0,0 +1,88 @@
+// This file is part of MicropolisJ.
+// Copyright (C) 2013 Jason Long
+// Portions Copyright (C) 1989-2007 Electronic Arts Inc.
+//
+// MicropolisJ is free software; you can redistribute it and/or modify
+// it under the terms of the GNU GPLv3, with additional terms.
+// See the README file, included in this distribution, for details.
+
+package micropolisj.engine;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * What happened while a city was advanced by {@link Micropolis#advance} or {@link
+ * Micropolis#advanceUntil}, which report it all at once instead of event by event.
+ */
+public final class AdvanceSummary {
+  private final int startTime;
+  private int endTime;
+  private int steps;
+  private final List<MicropolisMessage> messages = new ArrayList<>();
+  private int earthquakes;
+  boolean censusChanged;
+  boolean demandChanged;
+  boolean evaluationChanged;
+  boolean fundsChanged;
+  boolean optionsChanged;
+  boolean overlaysChanged;
+  boolean tilesChanged;
+
+  AdvanceSummary(int startTime) {
+    this.startTime = startTime;
+    this.endTime = startTime;
+  }
+
+  void stepTaken() {
+    steps++;
+  }
+
+  void messageSent(MicropolisMessage message) {
+    messages.add(message);
+  }
+
+  void earthquakeStarted() {
+    earthquakes++;
+  }
+
+  void finish(int endTime) {
+    this.endTime = endTime;
+  }
+
+  /** Returns the city time, in weeks, when the city started to advance. */
+  public int getStartTime() {
+    return startTime;
+  }
+
+  /** Returns the city time, in weeks, when the city stopped advancing. */
+  public int getEndTime() {
+    return endTime;
+  }
+
+  /** Returns the number of whole months the city advanced by; there are four weeks in a month. */
+  public int getMonths() {
+    return (endTime - startTime) / 4;
+  }
+
+  /** Returns the number of simulation steps taken. */
+  public int getSteps() {
+    return steps;
+  }
+
+  /** Returns the messages the city sent, in order. */
+  public List<MicropolisMessage> getMessages() {
+    return Collections.unmodifiableList(messages);
+  }
+
+  /** Returns the number of earthquakes that started. */
+  public int getEarthquakes() {
+    return earthquakes;
+  }
+
+  /** Returns whether any tile of the map changed. */
+  public boolean isTilesChanged() {
+    return tilesChanged;
+  }
+}
@@ -11,7 +11,6 @@ package micropolisj.engine;
 import java.util.Arrays;
 import java.util.EnumMap;
 import java.util.Map;
-import java.util.Random;
 
 /** Contains the code for performing a city evaluation. */
 public class CityEval {
@@ -19,8 +18,6 @@ public class CityEval {
 
   private final Micropolis engine;
 
-  private final Random random;
-
   /** Score for various problems. */
   private final Map<CityProblem, Integer> problemTable = new EnumMap<>(CityProblem.class);
 
@@ -46,9 +43,6 @@ public class CityEval {
 
   public CityEval(Micropolis engine) {
     this.engine = engine;
-    random = engine.getRandom();
-
-    assert random != null;
   }
 
   private static double clamp(double x) {
@@ -148,7 +142,7 @@ public class CityEval {
 
     int countVotes = 0;
     for (int i = 0; i < 600; i++) {
-      if (random.nextInt(301) < probTab.get(pp[i % pp.length])) {
+      if (engine.getRandom().nextInt(301) < probTab.get(pp[i % pp.length])) {
         votes[i % pp.length]++;
         countVotes++;
         if (countVotes >= 100) break;
@@ -166,12 +160,22 @@ public class CityEval {
     int count = 1;
     int total = 0;
 
-    for (int y = 0; y < engine.getHeight(); y++) {
-      for (int x = 0; x < engine.getWidth(); x++) {
+    // land value and traffic are kept per 2x2 section, so walk the
+    // sections and weigh each one by the number of tiles it covers
+    int[][] landValueMem = engine.getLandValueMem();
+    int[][] trfDensity = engine.getTrfDensity();
+    int width = engine.getWidth();
+    int height = engine.getHeight();
+    for (int y = 0; y < landValueMem.length; y++) {
+      int[] landValueRow = landValueMem[y];
+      int[] trfRow = trfDensity[y];
+      int rows = Math.min(2, height - 2 * y);
+      for (int x = 0; x < landValueRow.length; x++) {
         // only consider tiles that have nonzero landvalue
-        if (engine.getLandValue(x, y) != 0) {
-          total += engine.getTrafficDensity(x, y);
-          count++;
+        if (landValueRow[x] != 0) {
+          int tiles = rows * Math.min(2, width - 2 * x);
+          total += trfRow[x] * tiles;
+          count += tiles;
         }
       }
     }
@@ -265,7 +269,7 @@ public class CityEval {
   private void doVotes() {
     cityYes = cityNo = 0;
     for (int i = 0; i < 100; i++) {
-      if (random.nextInt(1001) < cityScore) {
+      if (engine.getRandom().nextInt(1001) < cityScore) {
         cityYes++;
       } else {
         cityNo++;
@@ -0,0 +1,340 @@
+// This file is part of MicropolisJ.
+// Copyright (C) 2013 Jason Long
+// Portions Copyright (C) 1989-2007 Electronic Arts Inc.
+//
+// MicropolisJ is free software; you can redistribute it and/or modify
+// it under the terms of the GNU GPLv3, with additional terms.
+// See the README file, included in this distribution, for details.
+
+package micropolisj.engine;
+
+import static micropolisj.engine.TileGrid.CHUNK_SHIFT;
+import static micropolisj.engine.TileGrid.CHUNK_SIZE;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * What a front end draws of a city, as of one moment of the simulation: the tiles, the sprites, the
+ * overlay maps and a few census numbers. A frame is taken by the thread simulating the city, and
+ * can then be read by another thread without looking at the city itself.
+ *
+ * <p>Frames are reused by {@link FrameBuffer}, which keeps a frame unchanged from when it is handed
+ * out until the next frame is asked for. To tell what changed from one frame to the next, a reader
+ * remembers the {@link #getChunkVersion version} of each chunk of tiles it drew, and the {@link
+ * #getMapId map} and {@link #getOverlayVersion overlay} versions.
+ */
+public final class CityFrame {
+  private static final AtomicLong MAP_IDS = new AtomicLong();
+
+  private int version;
+  private long mapId;
+  private int width;
+  private int height;
+  private char[] tiles = new char[0];
+  private TileGrid grid;
+  private int[] chunkVersions = new int[0];
+  private List<SpriteState> sprites = Collections.emptyList();
+  private Overlays overlays = Overlays.EMPTY;
+  private int cityTime;
+  private int cityPopulation;
+  private int totalFunds;
+  private int centerMassX;
+  private int centerMassY;
+  private DetailLevel detailLevel = DetailLevel.FULL;
+
+  /** A sprite, as drawn. */
+  public static final class SpriteState {
+    private final SpriteKind kind;
+    private final int frame;
+    private final int x;
+    private final int y;
+    private final int offx;
+    private final int offy;
+    private final int width;
+    private final int height;
+
+    private SpriteState(Sprite sprite) {
+      kind = sprite.getKind();
+      frame = sprite.getFrame();
+      x = sprite.getX();
+      y = sprite.getY();
+      offx = sprite.getOffx();
+      offy = sprite.getOffy();
+      width = sprite.getWidth();
+      height = sprite.getHeight();
+    }
+
+    public SpriteKind getKind() {
+      return kind;
+    }
+
+    public int getFrame() {
+      return frame;
+    }
+
+    public int getX() {
+      return x;
+    }
+
+    public int getY() {
+      return y;
+    }
+
+    public int getOffx() {
+      return offx;
+    }
+
+    public int getOffy() {
+      return offy;
+    }
+
+    public int getWidth() {
+      return width;
+    }
+
+    public int getHeight() {
+      return height;
+    }
+  }
+
+  /**
+   * Copies of the overlay maps, taken whenever the city reports that they changed, and shared by
+   * the frames until then.
+   */
+  static final class Overlays {
+    static final Overlays EMPTY = new Overlays();
+
+    private final int version;
+    private final int[][] landValueMem;
+    private final int[][] trfDensity;
+    private final int[][] pollutionMem;
+    private final int[][] crimeMem;
+    private final int[][] popDensity;
+    private final int[][] rateOGMem;
+    private final int[][] fireRate;
+    private final int[][] policeMapEffect;
+
+    private Overlays() {
+      version = 0;
+      landValueMem = new int[0][];
+      trfDensity = new int[0][];
+      pollutionMem = new int[0][];
+      crimeMem = new int[0][];
+      popDensity = new int[0][];
+      rateOGMem = new int[0][];
+      fireRate = new int[0][];
+      policeMapEffect = new int[0][];
+    }
+
+    Overlays(Micropolis city, int version) {
+      this.version = version;
+      landValueMem = copy(city.getLandValueMem());
+      trfDensity = copy(city.getTrfDensity());
+      pollutionMem = copy(city.getPollutionMem());
+      crimeMem = copy(city.getCrimeMem());
+      popDensity = copy(city.getPopDensity());
+      rateOGMem = copy(city.getRateOGMem());
+      fireRate = copy(city.getFireRate());
+      policeMapEffect = copy(city.getPoliceMapEffect());
+    }
+
+    private static int[][] copy(int[][] a) {
+      int[][] result = new int[a.length][];
+      for (int i = 0; i < a.length; i++) {
+        result[i] = a[i].clone();
+      }
+      return result;
+    }
+  }
+
+  /** Creates an empty frame, of version 0, showing no city. */
+  public CityFrame() {}
+
+  /**
+   * Takes a frame of a city that is not being simulated, on the thread that owns it. Each frame
+   * taken this way counts as a different map.
+   */
+  public static CityFrame of(Micropolis city) {
+    CityFrame frame = new CityFrame();
+    frame.update(city, 1, nextMapId(), new Overlays(city, 1), snapshotSprites(city));
+    return frame;
+  }
+
+  static long nextMapId() {
+    return MAP_IDS.incrementAndGet();
+  }
+
+  /** Takes a picture of the visible sprites of the city, to be shared by frames. */
+  static List<SpriteState> snapshotSprites(Micropolis city) {
+    List<SpriteState> visible = new ArrayList<>();
+    for (Sprite sprite : city.allSprites()) {
+      if (sprite.isVisible()) {
+        visible.add(new SpriteState(sprite));
+      }
+    }
+    return Collections.unmodifiableList(visible);
+  }
+
+  /**
+   * Makes this frame show the city as it is now, copying only the chunks of tiles written since the
+   * frame was last updated from the same map.
+   */
+  void update(
+      Micropolis city, int version, long mapId, Overlays overlays, List<SpriteState> sprites) {
+    TileGrid map = city.getMap();
+    int chunksX = (map.getWidth() + CHUNK_SIZE - 1) >> CHUNK_SHIFT;
+    int chunksY = (map.getHeight() + CHUNK_SIZE - 1) >> CHUNK_SHIFT;
+    boolean all = map != grid || this.mapId != mapId;
+    if (map != grid) {
+      grid = map;
+      width = map.getWidth();
+      height = map.getHeight();
+      tiles = new char[width * height];
+      chunkVersions = new int[chunksX * chunksY];
+    }
+
+    for (int cy = 0; cy < chunksY; cy++) {
+      for (int cx = 0; cx < chunksX; cx++) {
+        int writes = map.getWriteCount(cx, cy);
+        if (all || chunkVersions[cy * chunksX + cx] != writes) {
+          chunkVersions[cy * chunksX + cx] = writes;
+          int x = cx << CHUNK_SHIFT;
+          int w = Math.min(CHUNK_SIZE, width - x);
+          for (int y = cy << CHUNK_SHIFT; y < Math.min((cy + 1) << CHUNK_SHIFT, height); y++) {
+            map.copyRow(y, x, tiles, y * width + x, w);
+          }
+        }
+      }
+    }
+
+    this.sprites = sprites;
+    this.version = version;
+    this.mapId = mapId;
+    this.overlays = overlays;
+    cityTime = city.getCityTime();
+    cityPopulation = city.getCityPopulation();
+    totalFunds = city.getBudget().getTotalFunds();
+    centerMassX = city.getCenterMassX();
+    centerMassY = city.getCenterMassY();
+    detailLevel = city.getDetailLevel();
+  }
+
+  /** Returns the number of the frame, counting up from 1; 0 if it shows no city yet. */
+  public int getVersion() {
+    return version;
+  }
+
+  /**
+   * Returns a number identifying the map: it changes when the frame shows another city, or when the
+   * whole map of the city was replaced, e.g. by loading a file.
+   */
+  public long getMapId() {
+    return mapId;
+  }
+
+  public int getWidth() {
+    return width;
+  }
+
+  public int getHeight() {
+    return height;
+  }
+
+  public char getTile(int x, int y) {
+    return tiles[y * width + x];
+  }
+
+  /** Copies the raw values of a run of tiles of one row into the given array. */
+  public void copyRow(int y, int x, char[] dest, int destPos, int length) {
+    System.arraycopy(tiles, y * width + x, dest, destPos, length);
+  }
+
+  /** Returns the width and height, in tiles, of the square chunks of tiles the map is made of. */
+  public static int getChunkSize() {
+    return CHUNK_SIZE;
+  }
+
+  /**
+   * Returns a number that changes whenever a tile of the given chunk changes, on the same map; see
+   * {@link #getChunkSize}.
+   */
+  public int getChunkVersion(int cx, int cy) {
+    return chunkVersions[cy * ((width + CHUNK_SIZE - 1) >> CHUNK_SHIFT) + cx];
+  }
+
+  /** Returns the visible sprites. */
+  public List<SpriteState> getSprites() {
+    return sprites;
+  }
+
+  /** Returns a number that changes whenever the overlay maps change. */
+  public int getOverlayVersion() {
+    return overlays.version;
+  }
+
+  // the overlay maps below are shared between frames, and must not be modified
+
+  public int[][] getPollutionMem() {
+    return overlays.pollutionMem;
+  }
+
+  public int[][] getCrimeMem() {
+    return overlays.crimeMem;
+  }
+
+  public int[][] getPopDensity() {
+    return overlays.popDensity;
+  }
+
+  public int[][] getRateOGMem() {
+    return overlays.rateOGMem;
+  }
+
+  public int[][] getFireRate() {
+    return overlays.fireRate;
+  }
+
+  public int[][] getPoliceMapEffect() {
+    return overlays.policeMapEffect;
+  }
+
+  public int getLandValue(int xpos, int ypos) {
+    return xpos >= 0 && xpos < width && ypos >= 0 && ypos < height
+        ? overlays.landValueMem[ypos / 2][xpos / 2]
+        : 0;
+  }
+
+  public int getTrafficDensity(int xpos, int ypos) {
+    return xpos >= 0 && xpos < width && ypos >= 0 && ypos < height
+        ? overlays.trfDensity[ypos / 2][xpos / 2]
+        : 0;
+  }
+
+  public int getCityTime() {
+    return cityTime;
+  }
+
+  public int getCityPopulation() {
+    return cityPopulation;
+  }
+
+  public int getTotalFunds() {
+    return totalFunds;
+  }
+
+  public int getCenterMassX() {
+    return centerMassX;
+  }
+
+  public int getCenterMassY() {
+    return centerMassY;
+  }
+
+  /** Returns the detail level the city was simulated at. */
+  public DetailLevel getDetailLevel() {
+    return detailLevel;
+  }
+}
@@ -0,0 +1,115 @@
+// This file is part of MicropolisJ.
+// Copyright (C) 2013 Jason Long
+// Portions Copyright (C) 1989-2007 Electronic Arts Inc.
+//
+// MicropolisJ is free software; you can redistribute it and/or modify
+// it under the terms of the GNU GPLv3, with additional terms.
+// See the README file, included in this distribution, for details.
+
+package micropolisj.engine;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.random.RandomGenerator;
+
+/**
+ * The random number generator of a city: the L64X128MixRandom algorithm of the JDK, producing the
+ * same numbers from the same seed, but with a state that can be saved with the city, so that a
+ * loaded city goes on exactly like the one saved. It can be split into independent generators for
+ * the strips of a parallel map scan.
+ */
+final class CityRandom implements RandomGenerator {
+  /** The multiplier of the LCG part of the generator. */
+  private static final long M = 0xd1342543de82ef95L;
+
+  private static final long GOLDEN_RATIO_64 = 0x9e3779b97f4a7c15L;
+  private static final long SILVER_RATIO_64 = 0x6A09E667F3BCC909L;
+
+  /** The number of longs making up the state, as written by {@link #writeState}. */
+  static final int STATE_LONGS = 4;
+
+  /** The additive constant of the LCG part; always odd. */
+  private final long a;
+
+  /** The state of the LCG part. */
+  private long s;
+
+  /** The state of the xoroshiro128 part; never both zero. */
+  private long x0;
+
+  private long x1;
+
+  /** Creates a generator from the given seed, with the same numbers as the JDK's. */
+  CityRandom(long seed) {
+    this(
+        mixMurmur64(seed ^ SILVER_RATIO_64),
+        1,
+        mixStafford13(seed ^ SILVER_RATIO_64),
+        mixStafford13((seed ^ SILVER_RATIO_64) + GOLDEN_RATIO_64));
+  }
+
+  private CityRandom(long a, long s, long x0, long x1) {
+    this.a = a | 1;
+    this.s = s;
+    this.x0 = x0;
+    this.x1 = x1;
+    if ((x0 | x1) == 0) {
+      this.x0 = mixStafford13(s + GOLDEN_RATIO_64);
+      this.x1 = mixStafford13(s + 2 * GOLDEN_RATIO_64);
+    }
+  }
+
+  /** Reads the state written by {@link #writeState}. */
+  static CityRandom readState(DataInput in) throws IOException {
+    return new CityRandom(in.readLong(), in.readLong(), in.readLong(), in.readLong());
+  }
+
+  void writeState(DataOutput out) throws IOException {
+    out.writeLong(a);
+    out.writeLong(s);
+    out.writeLong(x0);
+    out.writeLong(x1);
+  }
+
+  /**
+   * Returns a new generator seeded from this one, whose numbers are independent of the numbers this
+   * one goes on with; the same as splitting the JDK's generator.
+   */
+  CityRandom split() {
+    long brine = nextLong();
+    return new CityRandom(brine << 1, nextLong(), nextLong(), nextLong());
+  }
+
+  @Override
+  public long nextLong() {
+    long result = mixLea64(s + x0);
+
+    s = M * s + a;
+
+    // xoroshiro128, version 1.0
+    long q0 = x0;
+    long q1 = x1 ^ q0;
+    x0 = Long.rotateLeft(q0, 24) ^ q1 ^ q1 << 16;
+    x1 = Long.rotateLeft(q1, 37);
+    return result;
+  }
+
+  private static long mixMurmur64(long z) {
+    z = (z ^ z >>> 33) * 0xff51afd7ed558ccdL;
+    z = (z ^ z >>> 33) * 0xc4ceb9fe1a85ec53L;
+    return z ^ z >>> 33;
+  }
+
+  private static long mixStafford13(long z) {
+    z = (z ^ z >>> 30) * 0xbf58476d1ce4e5b9L;
+    z = (z ^ z >>> 27) * 0x94d049bb133111ebL;
+    return z ^ z >>> 31;
+  }
+
+  private static long mixLea64(long z) {
+    z = (z ^ z >>> 32) * 0xdaba0b6eb09322e3L;
+    z = (z ^ z >>> 32) * 0xdaba0b6eb09322e3L;
+    return z ^ z >>> 32;
+  }
+}
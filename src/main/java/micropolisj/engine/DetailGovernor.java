@@ -0,0 +1,77 @@
+// This file is part of MicropolisJ.
+// Copyright (C) 2013 Jason Long
+// Portions Copyright (C) 1989-2007 Electronic Arts Inc.
+//
+// MicropolisJ is free software; you can redistribute it and/or modify
+// it under the terms of the GNU GPLv3, with additional terms.
+// See the README file, included in this distribution, for details.
+
+package micropolisj.engine;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Adapts the {@link DetailLevel} of a city to how well the machine keeps up with its speed. The
+ * thread animating the city reports how long each round of steps took; when steps keep taking most
+ * of the time the speed allows them, the governor sheds one level of cosmetic work, and when they
+ * keep taking little of it, the governor restores one.
+ *
+ * <p>At {@link Speed#MAX}, steps are never fast enough, so the city is soon at {@link
+ * DetailLevel#MINIMAL}.
+ */
+public final class DetailGovernor {
+  /** Share of the time allowed above which steps are too slow. */
+  static final double HIGH_LOAD = 0.75;
+
+  /** Share of the time allowed below which steps have time to spare. */
+  static final double LOW_LOAD = 0.35;
+
+  /** Rounds in a row too slow before a level is shed. */
+  static final int SHED_ROUNDS = 4;
+
+  /** Rounds in a row with time to spare before a level is restored; restoring is more cautious. */
+  static final int RESTORE_ROUNDS = 40;
+
+  private final Micropolis city;
+  private int slowRounds;
+  private int fastRounds;
+
+  /** Creates a governor for the given city, which starts at {@link DetailLevel#FULL}. */
+  public DetailGovernor(Micropolis city) {
+    this.city = city;
+    city.setDetailLevel(DetailLevel.FULL);
+  }
+
+  /**
+   * Reports that the given number of animation steps took the given time, at the given speed, and
+   * changes the detail level of the city if need be.
+   */
+  public void stepsTaken(Speed speed, int steps, long nanos) {
+    if (speed == Speed.PAUSED || steps == 0) {
+      return;
+    }
+    double allowed =
+        (double) TimeUnit.MILLISECONDS.toNanos(speed.animationDelay)
+            * steps
+            / speed.simStepsPerUpdate;
+    DetailLevel level = city.getDetailLevel();
+    DetailLevel[] levels = DetailLevel.values();
+
+    if (nanos > allowed * HIGH_LOAD) {
+      fastRounds = 0;
+      if (++slowRounds >= SHED_ROUNDS && level.ordinal() + 1 < levels.length) {
+        slowRounds = 0;
+        city.setDetailLevel(levels[level.ordinal() + 1]);
+      }
+    } else if (nanos < allowed * LOW_LOAD) {
+      slowRounds = 0;
+      if (++fastRounds >= RESTORE_ROUNDS && level.ordinal() > 0) {
+        fastRounds = 0;
+        city.setDetailLevel(levels[level.ordinal() - 1]);
+      }
+    } else {
+      slowRounds = 0;
+      fastRounds = 0;
+    }
+  }
+}
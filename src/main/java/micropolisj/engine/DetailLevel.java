@@ -0,0 +1,47 @@
+// This file is part of MicropolisJ.
+// Copyright (C) 2013 Jason Long
+// Portions Copyright (C) 1989-2007 Electronic Arts Inc.
+//
+// MicropolisJ is free software; you can redistribute it and/or modify
+// it under the terms of the GNU GPLv3, with additional terms.
+// See the README file, included in this distribution, for details.
+
+package micropolisj.engine;
+
+/**
+ * Lists how much cosmetic work the simulation does besides the rules of the game, from all of it to
+ * as little as possible. Lowering the level lets a machine that cannot keep up with the speed
+ * selected spend its time on the simulation itself; the phases of the simulation run the same at
+ * every level, but since animated tiles are part of the map, only {@link #FULL} replays a city
+ * exactly.
+ *
+ * @see DetailGovernor
+ */
+public enum DetailLevel {
+  FULL(1, 0, 1),
+  REDUCED(2, 1, 2),
+  LOW(4, 8, 4),
+  MINIMAL(8, 32, 8);
+
+  /** Tiles are animated every this many animation steps. */
+  public final int tileAnimationInterval;
+
+  /**
+   * Changes of the overlay maps are reported to map listeners right away if 0; otherwise they are
+   * collected, and reported at most once every this many animation steps.
+   */
+  public final int overlayNotificationInterval;
+
+  /**
+   * Sprites are reported to map listeners as they move, and are drawn from every frame, only at 1;
+   * otherwise, front ends take a new picture of them, and refresh their minimap, every this many
+   * frames.
+   */
+  public final int refreshInterval;
+
+  DetailLevel(int tileAnimationInterval, int overlayNotificationInterval, int refreshInterval) {
+    this.tileAnimationInterval = tileAnimationInterval;
+    this.overlayNotificationInterval = overlayNotificationInterval;
+    this.refreshInterval = refreshInterval;
+  }
+}
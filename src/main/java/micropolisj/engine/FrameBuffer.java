@@ -0,0 +1,103 @@
+// This file is part of MicropolisJ.
+// Copyright (C) 2013 Jason Long
+// Portions Copyright (C) 1989-2007 Electronic Arts Inc.
+//
+// MicropolisJ is free software; you can redistribute it and/or modify
+// it under the terms of the GNU GPLv3, with additional terms.
+// See the README file, included in this distribution, for details.
+
+package micropolisj.engine;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hands frames of a city from the thread simulating it to one other thread drawing them, without
+ * either waiting for the other.
+ *
+ * <p>The buffer holds three frames: one being taken by the simulating thread, one being drawn, and
+ * the latest frame taken, waiting to be drawn. Publishing a frame swaps it with the waiting one,
+ * and acquiring the latest frame swaps the frame drawn with the waiting one if it is newer. A frame
+ * that is drawn is never written, and a frame that is never drawn is simply taken over again.
+ *
+ * <p>{@link #publish} must only be called by one thread at a time, which must own the city; the
+ * city may change hands between calls as long as the hand-over itself is synchronized. {@link
+ * #acquire} must likewise only be called by one thread at a time.
+ */
+public final class FrameBuffer implements MapListener {
+  /** Set along with the index of the waiting frame if it was published since the last acquire. */
+  private static final int FRESH = 4;
+
+  private final Micropolis city;
+  private final CityFrame[] frames = {new CityFrame(), new CityFrame(), new CityFrame()};
+
+  /** The index of the waiting frame, with the {@link #FRESH} bit. */
+  private final AtomicInteger waiting = new AtomicInteger(1);
+
+  // owned by the publishing thread
+  private int back;
+  private int version;
+  private long mapId = CityFrame.nextMapId();
+  private CityFrame.Overlays overlays;
+  private int overlayVersion;
+  private List<CityFrame.SpriteState> sprites;
+
+  // owned by the acquiring thread
+  private int front = 2;
+
+  /** Creates a buffer of frames of the given city, which it listens to until {@link #close}. */
+  public FrameBuffer(Micropolis city) {
+    this.city = city;
+    city.addMapListener(this);
+  }
+
+  /** Stops listening to the city. */
+  public void close() {
+    city.removeMapListener(this);
+  }
+
+  /**
+   * Takes a frame of the city as it is now, replacing the latest frame published. Below full
+   * detail, the sprites are only pictured again every {@link DetailLevel#refreshInterval} frames.
+   */
+  public void publish() {
+    if (overlays == null) {
+      overlays = new CityFrame.Overlays(city, ++overlayVersion);
+    }
+    version++;
+    if (sprites == null || version % city.getDetailLevel().refreshInterval == 0) {
+      sprites = CityFrame.snapshotSprites(city);
+    }
+    frames[back].update(city, version, mapId, overlays, sprites);
+    back = waiting.getAndSet(back | FRESH) & ~FRESH;
+  }
+
+  /**
+   * Returns the latest frame published, which stays unchanged until the next call. Before anything
+   * is published, returns an empty frame, of version 0.
+   */
+  public CityFrame acquire() {
+    if ((waiting.get() & FRESH) != 0) {
+      front = waiting.getAndSet(front) & ~FRESH;
+    }
+    return frames[front];
+  }
+
+  @Override
+  public void mapOverlayDataChanged() {
+    overlays = null;
+  }
+
+  @Override
+  public void spriteMoved(Sprite sprite) {}
+
+  @Override
+  public void tileChanged(int xpos, int ypos) {}
+
+  @Override
+  public void wholeMapChanged() {
+    mapId = CityFrame.nextMapId();
+    overlays = null;
+    sprites = null;
+  }
+}
@@ -19,7 +19,6 @@ import static micropolisj.engine.TileConstants.WOODS_HIGH;
 import static micropolisj.engine.TileConstants.WOODS_LOW;
 import static micropolisj.engine.TileConstants.isTree;
 
-import java.util.Arrays;
 import java.util.Random;
 
 /** Contains the code for generating a random map terrain. */
@@ -72,8 +71,8 @@ public class MapGenerator {
     30, 31, 29, 37
   };
   private final Micropolis engine;
-  private final char[][] map;
-  private final CreateIsland createIsland = CreateIsland.SELDOM;
+  private final TileGrid map;
+  private CreateIsland createIsland = CreateIsland.SELDOM;
   private Random random;
   private int xStart;
   private int yStart;
@@ -89,21 +88,43 @@ public class MapGenerator {
   }
 
   private int getWidth() {
-    return map[0].length;
+    return map.getWidth();
   }
 
   private int getHeight() {
-    return map.length;
+    return map.getHeight();
+  }
+
+  /**
+   * Returns how many times larger than the classic map the map is, so that lakes and forests can be
+   * spread over larger maps at the same density.
+   */
+  private int getAreaFactor() {
+    return Math.max(
+        1, getWidth() * getHeight() / (Micropolis.DEFAULT_WIDTH * Micropolis.DEFAULT_HEIGHT));
+  }
+
+  public CreateIsland getCreateIsland() {
+    return createIsland;
+  }
+
+  /**
+   * Sets whether the next maps generated are islands; the default is {@link CreateIsland#SELDOM}.
+   */
+  public void setCreateIsland(CreateIsland createIsland) {
+    assert createIsland != null;
+    this.createIsland = createIsland;
   }
 
   /** Generate a random map terrain. */
   public void generateNewCity() {
-    long r = Micropolis.DEFAULT_PRNG.nextLong();
+    long r = engine.getRandom().nextLong();
     generateSomeCity(r);
   }
 
   private void generateSomeCity(long r) {
     generateMap(r);
+    map.compact();
     engine.fireWholeMapChanged();
   }
 
@@ -151,13 +172,13 @@ public class MapGenerator {
 
     for (int y = 0; y < worldY; y++) {
       for (int x = 0; x < worldX; x++) {
-        map[y][x] = RIVER;
+        map.set(x, y, RIVER);
       }
     }
 
     for (int y = 5; y < worldY - 5; y++) {
       for (int x = 5; x < worldX - 5; x++) {
-        map[y][x] = DIRT;
+        map.set(x, y, DIRT);
       }
     }
 
@@ -187,14 +208,13 @@ public class MapGenerator {
   }
 
   private void clearMap() {
-    for (char[] chars : map) {
-      Arrays.fill(chars, DIRT);
-    }
+    map.fill(DIRT);
   }
 
   private void getRandStart() {
-    xStart = 40 + random.nextInt(getWidth() - 79);
-    yStart = 33 + random.nextInt(getHeight() - 66);
+    // somewhere in the middle third of the map
+    xStart = getWidth() / 3 + random.nextInt(getWidth() / 3 + 1);
+    yStart = getHeight() / 3 + random.nextInt(getHeight() / 3 + 1);
 
     mapX = xStart;
     mapY = yStart;
@@ -202,7 +222,7 @@ public class MapGenerator {
 
   private void makeLakes() {
     int lim1;
-    lim1 = random.nextInt(11);
+    lim1 = random.nextInt(11) * getAreaFactor();
 
     for (int t = 0; t < lim1; t++) {
       int x = random.nextInt(getWidth() - 20) + 10;
@@ -300,19 +320,19 @@ public class MapGenerator {
 
     if (!engine.testBounds(xloc, yloc)) return;
 
-    char tmp = map[yloc][xloc];
+    char tmp = map.get(xloc, yloc);
     if (tmp != DIRT) {
       tmp &= LOMASK;
       if (tmp == RIVER && mapChar != CHANNEL) return;
       if (tmp == CHANNEL) return;
     }
-    map[yloc][xloc] = mapChar;
+    map.set(xloc, yloc, mapChar);
   }
 
   private void smoothRiver() {
-    for (int mapY = 0; mapY < map.length; mapY++) {
-      for (int mapX = 0; mapX < map[mapY].length; mapX++) {
-        if (map[mapY][mapX] == REDGE) {
+    for (int mapY = 0; mapY < getHeight(); mapY++) {
+      for (int mapX = 0; mapX < getWidth(); mapX++) {
+        if (map.get(mapX, mapY) == REDGE) {
           int bitindex = 0;
 
           for (int z = 0; z < 4; z++) {
@@ -320,16 +340,16 @@ public class MapGenerator {
             int xtem = mapX + DX[z];
             int ytem = mapY + DY[z];
             if (engine.testBounds(xtem, ytem)
-                && (map[ytem][xtem] & LOMASK) != DIRT
-                && ((map[ytem][xtem] & LOMASK) < WOODS_LOW
-                    || (map[ytem][xtem] & LOMASK) > WOODS_HIGH)) {
+                && (map.get(xtem, ytem) & LOMASK) != DIRT
+                && ((map.get(xtem, ytem) & LOMASK) < WOODS_LOW
+                    || (map.get(xtem, ytem) & LOMASK) > WOODS_HIGH)) {
               bitindex |= 1;
             }
           }
 
           char temp = REdTab[bitindex & 15];
           if (temp != RIVER && random.nextInt(2) != 0) temp++;
-          map[mapY][mapX] = temp;
+          map.set(mapX, mapY, temp);
         }
       }
     }
@@ -338,7 +358,7 @@ public class MapGenerator {
   private void doTrees() {
     int amount;
 
-    amount = random.nextInt(101) + 50;
+    amount = (random.nextInt(101) + 50) * getAreaFactor();
 
     for (int x = 0; x < amount; x++) {
       int xloc = random.nextInt(getWidth());
@@ -363,8 +383,8 @@ public class MapGenerator {
 
       if (!engine.testBounds(mapX, mapY)) return;
 
-      if ((map[mapY][mapX] & LOMASK) == DIRT) {
-        map[mapY][mapX] = WOODS;
+      if ((map.get(mapX, mapY) & LOMASK) == DIRT) {
+        map.set(mapX, mapY, WOODS);
       }
     }
   }
@@ -376,15 +396,15 @@ public class MapGenerator {
   }
 
   private void smoothTrees() {
-    for (int mapY = 0; mapY < map.length; mapY++) {
-      for (int mapX = 0; mapX < map[mapY].length; mapX++) {
-        if (isTree(map[mapY][mapX])) {
+    for (int mapY = 0; mapY < getHeight(); mapY++) {
+      for (int mapX = 0; mapX < getWidth(); mapX++) {
+        if (isTree(map.get(mapX, mapY))) {
           int bitindex = 0;
           for (int z = 0; z < 4; z++) {
             bitindex <<= 1;
             int xtem = mapX + DX[z];
             int ytem = mapY + DY[z];
-            if (engine.testBounds(xtem, ytem) && isTree(map[ytem][xtem])) {
+            if (engine.testBounds(xtem, ytem) && isTree(map.get(xtem, ytem))) {
               bitindex |= 1;
             }
           }
@@ -396,14 +416,15 @@ public class MapGenerator {
               }
             }
           }
-          map[mapY][mapX] = temp;
+          map.set(mapX, mapY, temp);
         }
       }
     }
   }
 
   /** Three settings on whether to generate a new map as an island. */
-  enum CreateIsland {
+  public enum CreateIsland {
+    NEVER,
     ALWAYS,
     SELDOM // seldom == 10% of the time
   }
@@ -23,7 +23,6 @@ import static micropolisj.engine.TileConstants.HOUSE;
 import static micropolisj.engine.TileConstants.INDCLR;
 import static micropolisj.engine.TileConstants.IZB;
 import static micropolisj.engine.TileConstants.LHTHR;
-import static micropolisj.engine.TileConstants.LOMASK;
 import static micropolisj.engine.TileConstants.NUCLEAR;
 import static micropolisj.engine.TileConstants.POLICESTATION;
 import static micropolisj.engine.TileConstants.PORT;
@@ -54,10 +53,10 @@ class MapScanner extends TileBehavior {
   private final Behavior behavior;
   private final TrafficGen traffic;
 
-  MapScanner(Micropolis city, Behavior behavior) {
-    super(city);
+  MapScanner(ScanStrip strip, Behavior behavior) {
+    super(strip);
     this.behavior = behavior;
-    traffic = new TrafficGen(city);
+    traffic = new TrafficGen(strip);
   }
 
   /**
@@ -117,9 +116,9 @@ class MapScanner extends TileBehavior {
     boolean zonePwrFlag = setZonePower();
 
     if (zonePwrFlag) {
-      getCity().setPoweredZoneCount(getCity().getPoweredZoneCount() + 1);
+      getStrip().poweredZoneCount++;
     } else {
-      getCity().setUnpoweredZoneCount(getCity().getUnpoweredZoneCount() + 1);
+      getStrip().unpoweredZoneCount++;
     }
 
     return zonePwrFlag;
@@ -182,33 +181,33 @@ class MapScanner extends TileBehavior {
 
   private void doCoalPower() {
     checkZonePower();
-    getCity().setCoalCount(getCity().getCoalCount() + 1);
+    getStrip().coalCount++;
     if (getCity().getCityTime() % 8 == 0) {
       repairZone(POWERPLANT, 4);
     }
 
-    getCity().getPowerPlants().add(new CityLocation(getXpos(), getYpos()));
+    getStrip().addPowerPlant(getXpos(), getYpos());
   }
 
   private void doNuclearPower() {
     checkZonePower();
     if (!getCity().isNoDisasters()
         && getRandom().nextInt(MELTDOWN_TAB[getCity().getGameLevel()] + 1) == 0) {
-      getCity().doMeltdown(getXpos(), getYpos());
+      getStrip().doMeltdown(getXpos(), getYpos());
       return;
     }
 
-    getCity().setNuclearCount(getCity().getNuclearCount() + 1);
+    getStrip().nuclearCount++;
     if (getCity().getCityTime() % 8 == 0) {
       repairZone(NUCLEAR, 4);
     }
 
-    getCity().getPowerPlants().add(new CityLocation(getXpos(), getYpos()));
+    getStrip().addPowerPlant(getXpos(), getYpos());
   }
 
   private void doFireStation() {
     boolean powerOn = checkZonePower();
-    getCity().setFireStationCount(getCity().getFireStationCount() + 1);
+    getStrip().fireStationCount++;
     if (getCity().getCityTime() % 8 == 0) {
       repairZone(FIRESTATION, 3);
     }
@@ -229,7 +228,7 @@ class MapScanner extends TileBehavior {
 
   private void doPoliceStation() {
     boolean powerOn = checkZonePower();
-    getCity().setPoliceCount(getCity().getPoliceCount() + 1);
+    getStrip().policeCount++;
     if (getCity().getCityTime() % 8 == 0) {
       repairZone(POLICESTATION, 3);
     }
@@ -248,7 +247,7 @@ class MapScanner extends TileBehavior {
 
   private void doStadiumEmpty() {
     boolean powerOn = checkZonePower();
-    getCity().setStadiumCount(getCity().getStadiumCount() + 1);
+    getStrip().stadiumCount++;
     if (getCity().getCityTime() % 16 == 0) {
       repairZone(STADIUM, 4);
     }
@@ -264,7 +263,7 @@ class MapScanner extends TileBehavior {
 
   private void doStadiumFull() {
     checkZonePower();
-    getCity().setStadiumCount(getCity().getStadiumCount() + 1);
+    getStrip().stadiumCount++;
     if ((getCity().getCityTime() + getXpos() + getYpos()) % 8 == 0) {
       drawStadium(STADIUM);
     }
@@ -272,7 +271,7 @@ class MapScanner extends TileBehavior {
 
   private void doAirport() {
     boolean powerOn = checkZonePower();
-    getCity().setAirportCount(getCity().getAirportCount() + 1);
+    getStrip().airportCount++;
     if (getCity().getCityTime() % 8 == 0) {
       repairZone(AIRPORT, 6);
     }
@@ -280,38 +279,38 @@ class MapScanner extends TileBehavior {
     if (powerOn) {
 
       if (getRandom().nextInt(6) == 0) {
-        getCity().generatePlane(getXpos(), getYpos());
+        getStrip().generatePlane(getXpos(), getYpos());
       }
 
       if (getRandom().nextInt(13) == 0) {
-        getCity().generateCopter(getXpos(), getYpos());
+        getStrip().generateCopter(getXpos(), getYpos());
       }
     }
   }
 
   private void doSeaport() {
     boolean powerOn = checkZonePower();
-    getCity().setSeaportCount(getCity().getSeaportCount() + 1);
+    getStrip().seaportCount++;
     if (getCity().getCityTime() % 16 == 0) {
       repairZone(PORT, 4);
     }
 
     if (powerOn && !getCity().hasSprite(SpriteKind.SHI)) {
-      getCity().generateShip();
+      getStrip().generateShip();
     }
   }
 
   /** Place hospital or church if needed. */
   private void makeHospital() {
-    if (getCity().getNeedHospital() > 0) {
+    if (getStrip().needHospital > 0) {
       zonePlop(HOSPITAL);
-      getCity().setNeedHospital(0);
+      getStrip().needHospital = 0;
     }
 
     // FIXME- should be 'else if'
-    if (getCity().getNeedChurch() > 0) {
+    if (getStrip().needChurch > 0) {
       zonePlop(CHURCH);
-      getCity().setNeedChurch(0);
+      getStrip().needChurch = 0;
     }
   }
 
@@ -319,24 +318,24 @@ class MapScanner extends TileBehavior {
   private void doHospitalChurch() {
     checkZonePower();
     if (getTile() == HOSPITAL) {
-      getCity().setHospitalCount(getCity().getHospitalCount() + 1);
+      getStrip().hospitalCount++;
 
       if (getCity().getCityTime() % 16 == 0) {
         repairZone(HOSPITAL, 3);
       }
-      if (getCity().getNeedHospital() == -1) // too many hospitals
+      if (getStrip().needHospital == -1) // too many hospitals
       {
         if (getRandom().nextInt(21) == 0) {
           zonePlop(RESCLR);
         }
       }
     } else if (getTile() == CHURCH) {
-      getCity().setChurchCount(getCity().getChurchCount() + 1);
+      getStrip().churchCount++;
 
       if (getCity().getCityTime() % 16 == 0) {
         repairZone(CHURCH, 3);
       }
-      if (getCity().getNeedChurch() == -1) // too many churches
+      if (getStrip().needChurch == -1) // too many churches
       {
         if (getRandom().nextInt(21) == 0) {
           zonePlop(RESCLR);
@@ -382,10 +381,10 @@ class MapScanner extends TileBehavior {
   /** Called when the current tile is the key tile of a commercial zone. */
   private void doCommercial() {
     boolean powerOn = checkZonePower();
-    getCity().setComZoneCount(getCity().getComZoneCount() + 1);
+    getStrip().comZoneCount++;
 
     int tpop = commercialZonePop(getTile());
-    getCity().setComPop(getCity().getComPop() + tpop);
+    getStrip().comPop += tpop;
 
     int trafficGood;
     trafficGood = tpop > getRandom().nextInt(6) ? makeTraffic(ZoneType.COMMERCIAL) : 1;
@@ -420,10 +419,10 @@ class MapScanner extends TileBehavior {
   /** Called when the current tile is the key tile of an industrial zone. */
   private void doIndustrial() {
     boolean powerOn = checkZonePower();
-    getCity().setIndZoneCount(getCity().getIndZoneCount() + 1);
+    getStrip().indZoneCount++;
 
     int tpop = industrialZonePop(getTile());
-    getCity().setIndPop(getCity().getIndPop() + tpop);
+    getStrip().indPop += tpop;
 
     int trafficGood;
     trafficGood = tpop > getRandom().nextInt(6) ? makeTraffic(ZoneType.INDUSTRIAL) : 1;
@@ -455,7 +454,7 @@ class MapScanner extends TileBehavior {
   /** Called when the current tile is the key tile of a residential zone. */
   private void doResidential() {
     boolean powerOn = checkZonePower();
-    getCity().setResZoneCount(getCity().getResZoneCount() + 1);
+    getStrip().resZoneCount++;
 
     int tpop; // population of this zone
     tpop =
@@ -463,7 +462,7 @@ class MapScanner extends TileBehavior {
             ? getCity().doFreePop(getXpos(), getYpos())
             : residentialZonePop(getTile());
 
-    getCity().setResPop(getCity().getResPop() + tpop);
+    getStrip().resPop += tpop;
 
     int trafficGood;
     trafficGood = tpop > getRandom().nextInt(36) ? makeTraffic(ZoneType.RESIDENTIAL) : 1;
@@ -695,7 +694,7 @@ class MapScanner extends TileBehavior {
     for (int x = getXpos() - 1; x <= getXpos() + 1; x++) {
       for (int y = getYpos() - 1; y <= getYpos() + 1; y++) {
         if (getCity().testBounds(x, y)) {
-          int loc = getCity().getMap()[y][x] & LOMASK;
+          int loc = getCity().getTile(x, y);
           if (loc >= LHTHR && loc <= HHTHR) { // little house
             getCity().setTile(x, y, (char) (border[z] + RESCLR - 4));
             return;
@@ -16,16 +16,13 @@ import static micropolisj.engine.TileConstants.FIRE;
 import static micropolisj.engine.TileConstants.FLOOD;
 import static micropolisj.engine.TileConstants.HHTHR;
 import static micropolisj.engine.TileConstants.INDBASE;
-import static micropolisj.engine.TileConstants.LASTZONE;
 import static micropolisj.engine.TileConstants.LHTHR;
 import static micropolisj.engine.TileConstants.LOMASK;
 import static micropolisj.engine.TileConstants.NUCLEAR;
 import static micropolisj.engine.TileConstants.PORTBASE;
-import static micropolisj.engine.TileConstants.POWERPLANT;
 import static micropolisj.engine.TileConstants.PWRBIT;
 import static micropolisj.engine.TileConstants.RADTILE;
 import static micropolisj.engine.TileConstants.RESCLR;
-import static micropolisj.engine.TileConstants.RIVER;
 import static micropolisj.engine.TileConstants.RUBBLE;
 import static micropolisj.engine.TileConstants.commercialZonePop;
 import static micropolisj.engine.TileConstants.getDescriptionNumber;
@@ -39,28 +36,35 @@ import static micropolisj.engine.TileConstants.isCombustible;
 import static micropolisj.engine.TileConstants.isConductive;
 import static micropolisj.engine.TileConstants.isConstructed;
 import static micropolisj.engine.TileConstants.isFloodable;
-import static micropolisj.engine.TileConstants.isRiverEdge;
 import static micropolisj.engine.TileConstants.isVulnerable;
 import static micropolisj.engine.TileConstants.isZoneCenter;
 import static micropolisj.engine.TileConstants.residentialZonePop;
+import static micropolisj.engine.TileGrid.CHUNK_MASK;
+import static micropolisj.engine.TileGrid.CHUNK_SHIFT;
+import static micropolisj.engine.TileGrid.CHUNK_SIZE;
 
+import java.io.ByteArrayInputStream;
 import java.io.DataInput;
 import java.io.DataInputStream;
 import java.io.DataOutput;
 import java.io.DataOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Random;
-import java.util.Stack;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Predicate;
+import java.util.random.RandomGenerator;
 
 /**
  * The main simulation engine for Micropolis. The front-end should call animate() periodically to
@@ -72,11 +76,24 @@ public class Micropolis {
   private static final int SOUTH_EDGE = 1;
 
   public static final int CENSUSRATE = 4;
-  static final Random DEFAULT_PRNG = new Random();
-  private static final int DEFAULT_WIDTH = 120;
 
-  // half-size arrays
-  private static final int DEFAULT_HEIGHT = 100;
+  /** Size of the map in the classic game, and of cities created without giving a size. */
+  static final int DEFAULT_WIDTH = 120;
+
+  static final int DEFAULT_HEIGHT = 100;
+
+  /** Smallest map width or height supported; the terrain generator needs room for its lakes. */
+  public static final int MIN_SIZE = 32;
+
+  /** Largest map width or height supported by the save file format. */
+  public static final int MAX_SIZE = 4096;
+
+  /** Length of a save file holding a map of the classic size. */
+  private static final int CLASSIC_FILE_SIZE = 27120;
+
+  /** Offset of the map size within a save file, in the miscellaneous values. */
+  private static final int MAP_SIZE_OFFSET = 0x0B40 + 2 * 18;
+
   private static final int TAXFREQ = 48;
   private static final int[] TaxTable = {
     200, 150, 120, 100, 80, 50, 30, 0, -10, -40, -100, -150, -200, -250, -300, -350, -400, -450,
@@ -102,12 +119,16 @@ public class Micropolis {
   private final CityEval evaluation;
   private final History history = new History();
   private final List<FinancialHistory> financialHistory = new ArrayList<>();
-  private final Random random;
+
+  /** The seed the random number generator was last seeded with. */
+  private long seed;
+
+  private CityRandom random;
   private final List<Sprite> sprites = new ArrayList<>();
-  private final Stack<CityLocation> powerPlants = new Stack<>();
   private final Collection<CityListener> cityListeners = new ArrayList<>();
   private final Collection<MapListener> mapListeners = new ArrayList<>();
   private final Collection<EarthquakeListener> earthquakeListeners = new ArrayList<>();
+  private Executor listenerExecutor = Runnable::run;
   private int[][] pollutionMem;
   private int[][] crimeMem;
   private int[][] popDensity;
@@ -117,6 +138,10 @@ public class Micropolis {
   private boolean autoBulldoze = true;
   private boolean autoBudget;
   private Speed simSpeed = Speed.NORMAL;
+  private TraversalOrder traversalOrder = TraversalOrder.CLASSIC;
+  private DetailLevel detailLevel = DetailLevel.FULL;
+  private boolean overlaysChanged; // not reported yet, below full detail
+  private AdvanceSummary advancing; // while advance() runs
   private boolean noDisasters;
   private int gameLevel;
   private int centerMassX;
@@ -130,7 +155,7 @@ public class Micropolis {
   private double firePercent = 1.0;
   private int cityTime; // counts "weeks" (actually, 1/48'ths years)
   // full size arrays
-  private char[][] map;
+  private TileGrid map;
   private int[][] fireStMap; // firestations- cleared and rebuilt each sim cycle
   private int[][] policeMap; // police stations- cleared and rebuilt each sim cycle
   private int[][] comRate;
@@ -173,7 +198,6 @@ public class Micropolis {
   private int fireEffect = 1000;
   private int floodCnt; // number of turns the flood will last
   private int acycle; // animation cycle (mod 960)
-  private boolean[][] powerMap;
 
   /**
    * For each 2x2 section of the city, the land value of the city (0-250). 0 is lowest land value;
@@ -194,6 +218,90 @@ public class Micropolis {
    */
   private int[][] terrainMem;
 
+  // scratch grids of the overlay scans, reused by every scan; each phase that can be computed
+  // ahead has its own
+  private int[][] halfGrid;
+  private int[][] halfScratch;
+  private int[][] smallScratch;
+  private int[][] pollutionScratch;
+  private int[][] fireScratch;
+
+  // The results of the overlay phases that can be computed ahead of their step (see OverlayPhase),
+  // until published at their step. nextTerrainMem and nextFireRate are also what the terrain and
+  // the fire effect are updated from, so they are kept between scans.
+  private int[][] nextLandValueMem;
+  private int[][] nextPollutionMem;
+  private int[][] nextTerrainMem;
+  private int nextLandValueAverage;
+  private int nextPollutionAverage;
+  private int[][] nextPopDensity;
+  private int nextCenterMassX;
+  private int nextCenterMassY;
+  private int[][] nextFireRate;
+
+  /** The number of rows of the half grid of each slice of the computation of the pollution. */
+  private static final int ROWS_PER_SLICE = CHUNK_SIZE / 2;
+
+  /** The number of zones of each slice of the computation of the population density. */
+  private static final int ZONES_PER_SLICE = 1024;
+
+  /** The pool computing overlay phases ahead of their step, or null to compute them at it. */
+  private ForkJoinPool overlayPool;
+
+  /** The computation of each overlay phase started ahead of its step, until its step. */
+  private final ForkJoinTask<?>[] overlayTasks = new ForkJoinTask<?>[OverlayPhase.values().length];
+
+  /** The overlay version of the map when each of the phases computed ahead was started. */
+  private final int[] overlayVersions = new int[OverlayPhase.values().length];
+
+  /**
+   * The time each step may spend computing overlay phases ahead of their step, a slice at a time,
+   * in nanoseconds, or 0 to compute each of them at its step in one go.
+   */
+  private long stepBudget;
+
+  /** Which overlay phases are computed ahead a slice at a time, until their step. */
+  private final boolean[] overlaySliced = new boolean[OverlayPhase.values().length];
+
+  /** Which of the overlay phases computed a slice at a time are complete. */
+  private final boolean[] overlayComputed = new boolean[OverlayPhase.values().length];
+
+  // where the computation of the population density was left, when done a slice at a time
+  private int popZoneX;
+  private int popZoneY;
+  private int popXTotal;
+  private int popYTotal;
+  private int popZoneCount;
+  private boolean popZonesCounted;
+
+  // the inputs the station effect maps and the commercial rate were last computed from
+  private int[][] lastFireStMap;
+  private int[][] lastPoliceMap;
+  private int comRateCenterX = -1;
+  private int comRateCenterY = -1;
+  private char[] tileRows;
+  private int[] columnMax;
+
+  // What ptlScan derives from the tiles alone: for each 2x2 section the pollution and the number
+  // of constructed tiles, and for each 4x4 section the amount of natural land features. Kept
+  // between scans, with the write count of each chunk of the map they were computed at.
+  private int[][] pollutionSources;
+  private int[][] constructedCounts;
+  private int[][] terrainCounts;
+  private int[] ptlWriteCounts;
+  private boolean[] chunkChanged;
+  private boolean[] terrainRowChanged;
+
+  // where the computation of the pollution was left, when done a few rows at a time
+  private int ptlRow;
+  private int ptlLandValueTotal;
+  private int ptlLandValueCount;
+  private int ptlPollutionCount;
+  private int ptlPollutionTotal;
+  private int ptlTerrainRow;
+
+  private final OverlayKernels kernels = OverlayKernels.INSTANCE;
+
   private boolean autoGo;
   private int cityPopulation;
   // used in generateBudget()
@@ -210,98 +318,71 @@ public class Micropolis {
   private int cashFlow; // net change in totalFunds in previous year
   private int scycle; // same as cityTime, except mod 1024
   private int fcycle; // counts simulation steps (mod 1024)
-  private Map<String, TileBehavior> tileBehaviors;
+
+  /** The map scan state of the classic scan, which scans the map as a single strip. */
+  private final ScanStrip scanStrip;
+
+  /** The pool running parallel map scans, or null to scan the classic way. */
+  private ForkJoinPool scanPool;
+
+  /** The map scan state of each strip of a parallel scan, created on first use. */
+  private ScanStrip[] scanStrips;
 
   public Micropolis() {
-    random = DEFAULT_PRNG;
+    this(DEFAULT_WIDTH, DEFAULT_HEIGHT);
+  }
+
+  /**
+   * Creates an empty city with a map of the given size, and random numbers seeded at random.
+   *
+   * @throws IllegalArgumentException if the width or height is outside of {@link #MIN_SIZE} and
+   *     {@link #MAX_SIZE}
+   */
+  public Micropolis(int width, int height) {
+    this(width, height, ThreadLocalRandom.current().nextLong());
+  }
+
+  /**
+   * Creates an empty city with a map of the given size, whose random numbers start from the given
+   * seed. Two cities created with the same seed, and played the same way, evolve the same way.
+   *
+   * @throws IllegalArgumentException if the width or height is outside of {@link #MIN_SIZE} and
+   *     {@link #MAX_SIZE}
+   */
+  public Micropolis(int width, int height, long seed) {
+    if (!isValidSize(width, height)) {
+      throw new IllegalArgumentException("Unsupported map size: " + width + "x" + height);
+    }
+    setSeed(seed);
     evaluation = new CityEval(this);
-    init(DEFAULT_WIDTH, DEFAULT_HEIGHT);
-    initTileBehaviors();
+    init(width, height);
+    scanStrip = new ScanStrip(this, false);
+  }
+
+  private static boolean isValidSize(int width, int height) {
+    return width >= MIN_SIZE && width <= MAX_SIZE && height >= MIN_SIZE && height <= MAX_SIZE;
   }
 
   static boolean isTileDozeable(ToolEffectIfc eff) {
     int myTile = eff.getTile(0, 0);
-    TileSpec ts = Tiles.get(myTile);
-    if (ts.isCanBulldoze()) {
+    if (TileProperties.is(myTile, TileProperties.BULLDOZABLE)) {
       return true;
     }
 
-    if (ts.getOwner() != null) {
+    int owner = TileProperties.getOwner(myTile);
+    if (owner != TileProperties.NONE) {
       // part of a zone; only bulldozeable if the owner tile is
       // no longer intact.
 
-      int baseTile = eff.getTile(-ts.getOwnerOffsetX(), -ts.getOwnerOffsetY());
-      return ts.getOwner().getTileNumber() != baseTile;
+      int baseTile =
+          eff.getTile(
+              -TileProperties.getOwnerOffsetX(myTile), -TileProperties.getOwnerOffsetY(myTile));
+      return owner != baseTile;
     }
 
     return false;
   }
 
-  private static int[][] doSmooth(int[][] tem) {
-    int h = tem.length;
-    int w = tem[0].length;
-    int[][] tem2 = new int[h][w];
-
-    for (int y = 0; y < h; y++) {
-      for (int x = 0; x < w; x++) {
-        int z = tem[y][x];
-        if (x > 0) z += tem[y][x - 1];
-        if (x + 1 < w) z += tem[y][x + 1];
-        if (y > 0) z += tem[y - 1][x];
-        if (y + 1 < h) z += tem[y + 1][x];
-        z /= 4;
-        if (z > 255) z = 255;
-        tem2[y][x] = z;
-      }
-    }
-
-    return tem2;
-  }
-
-  private static int[][] smoothFirePoliceMap(int[][] omap) {
-    int smX = omap[0].length;
-    int smY = omap.length;
-    int[][] nmap = new int[smY][smX];
-    for (int sy = 0; sy < smY; sy++) {
-      for (int sx = 0; sx < smX; sx++) {
-        int edge = 0;
-        if (sx > 0) {
-          edge += omap[sy][sx - 1];
-        }
-        if (sx + 1 < smX) {
-          edge += omap[sy][sx + 1];
-        }
-        if (sy > 0) {
-          edge += omap[sy - 1][sx];
-        }
-        if (sy + 1 < smY) {
-          edge += omap[sy + 1][sx];
-        }
-        edge = edge / 4 + omap[sy][sx];
-        nmap[sy][sx] = edge / 2;
-      }
-    }
-    return nmap;
-  }
-
-  private static int[][] smoothTerrain(int[][] qtem) {
-    int qwx = qtem[0].length;
-    int qwy = qtem.length;
-
-    int[][] mem = new int[qwy][qwx];
-    for (int y = 0; y < qwy; y++) {
-      for (int x = 0; x < qwx; x++) {
-        int z = 0;
-        if (x > 0) z += qtem[y][x - 1];
-        if (x + 1 < qwx) z += qtem[y][x + 1];
-        if (y > 0) z += qtem[y - 1][x];
-        if (y + 1 < qwy) z += qtem[y + 1][x];
-        mem[y][x] = z / 4 + qtem[y][x] / 2;
-      }
-    }
-    return mem;
-  }
-
   private static void loadHistoryArray(int[] array, DataInput dis) throws IOException {
     for (int i = 0; i < 240; i++) {
       array[i] = dis.readShort();
@@ -320,8 +401,8 @@ public class Micropolis {
   }
 
   private void init(int width, int height) {
-    map = new char[height][width];
-    powerMap = new boolean[height][width];
+    discardOverlayPhases();
+    map = new TileGrid(width, height);
 
     int hX = (width + 1) / 2;
     int hY = (height + 1) / 2;
@@ -331,11 +412,22 @@ public class Micropolis {
     crimeMem = new int[hY][hX];
     popDensity = new int[hY][hX];
     trfDensity = new int[hY][hX];
+    halfGrid = new int[hY][hX];
+    halfScratch = new int[hY][hX];
+    pollutionScratch = new int[hY][hX];
+    nextLandValueMem = new int[hY][hX];
+    nextPollutionMem = new int[hY][hX];
+    nextPopDensity = new int[hY][hX];
+    pollutionSources = new int[hY][hX];
+    constructedCounts = new int[hY][hX];
 
     int qX = (width + 3) / 4;
     int qY = (height + 3) / 4;
 
     terrainMem = new int[qY][qX];
+    nextTerrainMem = new int[qY][qX];
+    terrainCounts = new int[qY][qX];
+    terrainRowChanged = new boolean[qY];
 
     int smX = (width + 7) / 8;
     int smY = (height + 7) / 8;
@@ -346,72 +438,158 @@ public class Micropolis {
     policeMapEffect = new int[smY][smX];
     fireRate = new int[smY][smX];
     comRate = new int[smY][smX];
+    smallScratch = new int[smY][smX];
+    fireScratch = new int[smY][smX];
+    nextFireRate = new int[smY][smX];
+    lastFireStMap = new int[smY][smX];
+    lastPoliceMap = new int[smY][smX];
+    comRateCenterX = -1;
+    comRateCenterY = -1;
+    tileRows = new char[2 * width];
+    columnMax = new int[hX];
+
+    int chunksX = (width + CHUNK_MASK) >> CHUNK_SHIFT;
+    int chunksY = (height + CHUNK_MASK) >> CHUNK_SHIFT;
+    ptlWriteCounts = new int[chunksX * chunksY];
+    Arrays.fill(ptlWriteCounts, -1);
+    chunkChanged = new boolean[chunksX];
 
     centerMassX = hX;
     centerMassY = hY;
   }
 
   private void fireCensusChanged() {
-    for (CityListener l : cityListeners) {
-      l.censusChanged();
+    if (advancing != null) {
+      advancing.censusChanged = true;
+      return;
     }
+    listenerExecutor.execute(
+        () -> {
+          for (CityListener l : cityListeners) {
+            l.censusChanged();
+          }
+        });
   }
 
   private void fireCityMessage(MicropolisMessage message, CityLocation loc) {
-    for (CityListener l : cityListeners) {
-      l.cityMessage(message, loc);
+    if (advancing != null) {
+      advancing.messageSent(message);
+      return;
     }
+    listenerExecutor.execute(
+        () -> {
+          for (CityListener l : cityListeners) {
+            l.cityMessage(message, loc);
+          }
+        });
   }
 
   private void fireCitySound(Sound sound, CityLocation loc) {
-    for (CityListener l : cityListeners) {
-      l.citySound(sound, loc);
+    if (advancing != null) {
+      return;
     }
+    listenerExecutor.execute(
+        () -> {
+          for (CityListener l : cityListeners) {
+            l.citySound(sound, loc);
+          }
+        });
   }
 
   private void fireDemandChanged() {
-    for (CityListener l : cityListeners) {
-      l.demandChanged();
+    if (advancing != null) {
+      advancing.demandChanged = true;
+      return;
     }
+    listenerExecutor.execute(
+        () -> {
+          for (CityListener l : cityListeners) {
+            l.demandChanged();
+          }
+        });
   }
 
   private void fireEarthquakeStarted() {
-    for (EarthquakeListener l : earthquakeListeners) {
-      l.earthquakeStarted();
+    if (advancing != null) {
+      advancing.earthquakeStarted();
+      return;
     }
+    listenerExecutor.execute(
+        () -> {
+          for (EarthquakeListener l : earthquakeListeners) {
+            l.earthquakeStarted();
+          }
+        });
   }
 
   void fireEvaluationChanged() {
-    for (CityListener l : cityListeners) {
-      l.evaluationChanged();
+    if (advancing != null) {
+      advancing.evaluationChanged = true;
+      return;
     }
+    listenerExecutor.execute(
+        () -> {
+          for (CityListener l : cityListeners) {
+            l.evaluationChanged();
+          }
+        });
   }
 
   private void fireFundsChanged() {
-    for (CityListener l : cityListeners) {
-      l.fundsChanged();
+    if (advancing != null) {
+      advancing.fundsChanged = true;
+      return;
     }
+    listenerExecutor.execute(
+        () -> {
+          for (CityListener l : cityListeners) {
+            l.fundsChanged();
+          }
+        });
   }
 
   private void fireMapOverlayDataChanged() {
+    if (advancing != null) {
+      advancing.overlaysChanged = true;
+      return;
+    }
+    if (detailLevel.overlayNotificationInterval != 0) {
+      // reported by animate()
+      overlaysChanged = true;
+      return;
+    }
     for (MapListener l : mapListeners) {
       l.mapOverlayDataChanged();
     }
   }
 
   private void fireOptionsChanged() {
-    for (CityListener l : cityListeners) {
-      l.optionsChanged();
+    if (advancing != null) {
+      advancing.optionsChanged = true;
+      return;
     }
+    listenerExecutor.execute(
+        () -> {
+          for (CityListener l : cityListeners) {
+            l.optionsChanged();
+          }
+        });
   }
 
   void fireSpriteMoved(Sprite sprite) {
+    if (advancing != null || detailLevel.refreshInterval != 1) {
+      return;
+    }
     for (MapListener l : mapListeners) {
       l.spriteMoved(sprite);
     }
   }
 
   private void fireTileChanged(int xpos, int ypos) {
+    if (advancing != null) {
+      advancing.tilesChanged = true;
+      return;
+    }
     for (MapListener l : mapListeners) {
       l.tileChanged(xpos, ypos);
     }
@@ -423,6 +601,15 @@ public class Micropolis {
     }
   }
 
+  /**
+   * Sets what calls the city and earthquake listeners, which is by default the thread firing the
+   * event. A front end simulating the city on a thread of its own can have the events delivered on
+   * its user interface thread instead. Map listeners are always called right away.
+   */
+  public void setListenerExecutor(Executor executor) {
+    listenerExecutor = executor;
+  }
+
   public void addListener(CityListener l) {
     cityListeners.add(l);
   }
@@ -448,23 +635,38 @@ public class Micropolis {
   }
 
   public int getWidth() {
-    return map[0].length;
+    return map.getWidth();
   }
 
   public int getHeight() {
-    return map.length;
+    return map.getHeight();
   }
 
   public char getTile(int xpos, int ypos) {
-    return (char) (map[ypos][xpos] & LOMASK);
+    return (char) (map.get(xpos, ypos) & LOMASK);
   }
 
   private char getTileRaw(int xpos, int ypos) {
-    return map[ypos][xpos];
+    return map.get(xpos, ypos);
   }
 
+  /**
+   * Same as {@link #isTileDozeable(ToolEffectIfc)} for a tile of the map, without a tool effect.
+   */
   private boolean isTileDozeable(int xpos, int ypos) {
-    return isTileDozeable(new ToolEffect(this, xpos, ypos));
+    int tile = getTile(xpos, ypos);
+    if (TileProperties.is(tile, TileProperties.BULLDOZABLE)) {
+      return true;
+    }
+
+    int owner = TileProperties.getOwner(tile);
+    if (owner != TileProperties.NONE) {
+      int baseX = xpos - TileProperties.getOwnerOffsetX(tile);
+      int baseY = ypos - TileProperties.getOwnerOffsetY(tile);
+      return !testBounds(baseX, baseY) || getTile(baseX, baseY) != owner;
+    }
+
+    return false;
   }
 
   public boolean isTilePowered(int xpos, int ypos) {
@@ -477,14 +679,16 @@ public class Micropolis {
     // this method
     assert (newTile & LOMASK) == newTile;
 
-    if (map[ypos][xpos] != newTile) {
-      map[ypos][xpos] = newTile;
-      fireTileChanged(xpos, ypos);
+    if (map.get(xpos, ypos) != newTile) {
+      map.set(xpos, ypos, newTile);
+      if (!map.isDeferringChanges()) {
+        fireTileChanged(xpos, ypos);
+      }
     }
   }
 
   public void setTilePower(int xpos, int ypos, boolean power) {
-    map[ypos][xpos] = (char) (map[ypos][xpos] & ~PWRBIT | (power ? PWRBIT : 0));
+    map.set(xpos, ypos, (char) (map.get(xpos, ypos) & ~PWRBIT | (power ? PWRBIT : 0)));
   }
 
   public boolean testBounds(int xpos, int ypos) {
@@ -492,7 +696,7 @@ public class Micropolis {
   }
 
   boolean hasPower(int x, int y) {
-    return powerMap[y][x];
+    return map.getPowerGrid().hasPower(x, y);
   }
 
   /** Checks whether the next call to animate() will collect taxes and process the budget. */
@@ -503,9 +707,21 @@ public class Micropolis {
         && (acycle + 1) % 2 == 0;
   }
 
+  /**
+   * Checks whether the last simulation step took the census of the month that just ended, so that
+   * the census numbers, such as the population of each zone type, are all of that month.
+   */
+  public boolean isCensusTaken() {
+    return cityTime % CENSUSRATE == 0 && fcycle % 16 == 9;
+  }
+
   private void step() {
+    long start = System.nanoTime();
     fcycle = (fcycle + 1) % 1024;
     simulate(fcycle % 16);
+    if (stepBudget != 0) {
+      computeOverlaySlices(start);
+    }
   }
 
   private void clearCensus() {
@@ -529,7 +745,7 @@ public class Micropolis {
     nuclearCount = 0;
     seaportCount = 0;
     airportCount = 0;
-    powerPlants.clear();
+    map.getPowerGrid().clearPlants();
 
     for (int y = 0; y < fireStMap.length; y++) {
       for (int x = 0; x < fireStMap[y].length; x++) {
@@ -550,6 +766,7 @@ public class Micropolis {
           setValves();
         }
         clearCensus();
+        map.compact();
         break;
 
       case 1:
@@ -585,6 +802,8 @@ public class Micropolis {
         break;
 
       case 9:
+        startOverlayPhases();
+
         if (cityTime % CENSUSRATE == 0) {
           takeCensus();
 
@@ -661,53 +880,106 @@ public class Micropolis {
   }
 
   private void popDenScan() {
-    int xtot = 0;
-    int ytot = 0;
-    int zoneCount = 0;
-    int width = getWidth();
-    int height = getHeight();
-    int[][] tem = new int[(height + 1) / 2][(width + 1) / 2];
-
-    for (int x = 0; x < width; x++) {
-      for (int y = 0; y < height; y++) {
-        char tile = getTile(x, y);
-        if (isZoneCenter(tile)) {
-          int den = computePopDen(x, y, tile) * 8;
-          if (den > 254) den = 254;
-          tem[y / 2][x / 2] = den;
-          xtot += x;
-          ytot += y;
-          zoneCount++;
-        }
-      }
-    }
+    awaitOverlayPhase(OverlayPhase.POPULATION_DENSITY);
+    copyGrid(nextPopDensity, popDensity);
 
-    tem = doSmooth(tem);
-    tem = doSmooth(tem);
-    tem = doSmooth(tem);
+    distIntMarket(); // set ComRate, from the center of mass found by the last scan
 
-    for (int x = 0; x < (width + 1) / 2; x++) {
-      for (int y = 0; y < (height + 1) / 2; y++) {
-        popDensity[y][x] = 2 * tem[y][x];
-      }
+    centerMassX = nextCenterMassX;
+    centerMassY = nextCenterMassY;
+
+    fireMapOverlayDataChanged(); // PDMAP
+    fireMapOverlayDataChanged(); // RGMAP
+  }
+
+  /**
+   * Computes the population density of each zone into halfGrid, and the center of mass of the city.
+   * Iterating the zones is left to the simulation thread, which is the one changing them.
+   */
+  private void countZonePopulation() {
+    beginZonePopulation();
+    countZonePopulation(Integer.MAX_VALUE);
+  }
+
+  private void beginZonePopulation() {
+    for (int[] row : halfGrid) {
+      Arrays.fill(row, 0);
     }
+    popZoneX = 0;
+    popZoneY = 0;
+    popXTotal = 0;
+    popYTotal = 0;
+    popZoneCount = 0;
+    popZonesCounted = false;
+  }
 
-    distIntMarket(); // set ComRate
+  /**
+   * Goes on with the computation of the population density of the zones for up to the given number
+   * of zones, where it was left, and completes it once all zones are done.
+   *
+   * @return true if the computation is complete
+   */
+  private boolean countZonePopulation(int zones) {
+    int xtot = popXTotal;
+    int ytot = popYTotal;
+    int zoneCount = popZoneCount;
+    int width = getWidth();
+    int height = getHeight();
+    int[][] tem = halfGrid;
+    int counted = 0;
+
+    // zones come in scan order, so where two zones share a cell of tem the later one wins
+    for (ZoneRegistry.Zone zone : map.getZones().getZonesFrom(popZoneX, popZoneY)) {
+      int x = zone.getX();
+      int y = zone.getY();
+      if (counted++ == zones) {
+        popZoneX = x;
+        popZoneY = y;
+        popXTotal = xtot;
+        popYTotal = ytot;
+        popZoneCount = zoneCount;
+        return false;
+      }
+      int den = computePopDen(x, y, zone.getTile()) * 8;
+      if (den > 254) den = 254;
+      tem[y / 2][x / 2] = den;
+      xtot += x;
+      ytot += y;
+      zoneCount++;
+    }
 
     // find center of mass for city
     if (zoneCount == 0) {
-      centerMassX = (width + 1) / 2;
-      centerMassY = (height + 1) / 2;
+      nextCenterMassX = (width + 1) / 2;
+      nextCenterMassY = (height + 1) / 2;
     } else {
-      centerMassX = xtot / zoneCount;
-      centerMassY = ytot / zoneCount;
+      nextCenterMassX = xtot / zoneCount;
+      nextCenterMassY = ytot / zoneCount;
     }
+    return true;
+  }
 
-    fireMapOverlayDataChanged(); // PDMAP
-    fireMapOverlayDataChanged(); // RGMAP
+  /** Smooths the population density of the zones, from halfGrid, into nextPopDensity. */
+  private void smoothPopulationDensity() {
+    kernels.smooth(halfGrid, halfScratch);
+    kernels.smooth(halfScratch, halfGrid);
+    kernels.smooth(halfGrid, halfScratch);
+
+    for (int y = 0; y < nextPopDensity.length; y++) {
+      for (int x = 0; x < nextPopDensity[y].length; x++) {
+        nextPopDensity[y][x] = 2 * halfScratch[y][x];
+      }
+    }
   }
 
   private void distIntMarket() {
+    // the commercial rate only depends on the distance to the center of mass
+    if (centerMassX == comRateCenterX && centerMassY == comRateCenterY) {
+      return;
+    }
+    comRateCenterX = centerMassX;
+    comRateCenterY = centerMassY;
+
     for (int y = 0; y < comRate.length; y++) {
       for (int x = 0; x < comRate[y].length; x++) {
         int z = getDisCC(x * 4, y * 4);
@@ -720,67 +992,27 @@ public class Micropolis {
 
   // tends to empty RateOGMem[][]
   private void decROGMem() {
-    for (int y = 0; y < rateOGMem.length; y++) {
-      for (int x = 0; x < rateOGMem[y].length; x++) {
-        int z = rateOGMem[y][x];
-        if (z == 0) continue;
-
-        if (z > 0) {
-          rateOGMem[y][x]--;
-          if (z > 200) {
-            rateOGMem[y][x] = 200; // prevent overflow?
-          }
-          continue;
-        }
-
-        rateOGMem[y][x]++;
-        if (z < -200) {
-          rateOGMem[y][x] = -200;
-        }
-      }
-    }
+    kernels.decayRateOfGrowth(rateOGMem);
   }
 
   // tends to empty trfDensity
   private void decTrafficMem() {
-    for (int y = 0; y < trfDensity.length; y++) {
-      for (int x = 0; x < trfDensity[y].length; x++) {
-        int z = trfDensity[y][x];
-        if (z != 0) {
-          if (z > 200) trfDensity[y][x] = z - 34;
-          else if (z > 24) trfDensity[y][x] = z - 24;
-          else trfDensity[y][x] = 0;
-        }
-      }
-    }
+    kernels.decayTraffic(trfDensity);
   }
 
   private void crimeScan() {
-    policeMap = smoothFirePoliceMap(policeMap);
-    policeMap = smoothFirePoliceMap(policeMap);
-    policeMap = smoothFirePoliceMap(policeMap);
-
-    for (int sy = 0; sy < policeMap.length; sy++) {
-      System.arraycopy(policeMap[sy], 0, policeMapEffect[sy], 0, policeMap[sy].length);
-    }
+    smoothStationMap(policeMap, lastPoliceMap, policeMapEffect, smallScratch);
+    copyGrid(policeMapEffect, policeMap);
 
     int count = 0;
     int sum = 0;
     int cmax = 0;
     for (int hy = 0; hy < landValueMem.length; hy++) {
+      kernels.crime(landValueMem[hy], popDensity[hy], policeMap[hy / 4], crimeMem[hy]);
       for (int hx = 0; hx < landValueMem[hy].length; hx++) {
-        int val = landValueMem[hy][hx];
-        if (val == 0) {
-          crimeMem[hy][hx] = 0;
-        } else {
+        if (landValueMem[hy][hx] != 0) {
           count++;
-          int z = 128 - val + popDensity[hy][hx];
-          z = Math.min(300, z);
-          z -= policeMap[hy / 4][hx / 4];
-          z = Math.min(250, z);
-          z = Math.max(0, z);
-          crimeMem[hy][hx] = z;
-
+          int z = crimeMem[hy][hx];
           sum += z;
           if (z > cmax || z == cmax && random.nextInt(4) == 0) {
             cmax = z;
@@ -831,108 +1063,207 @@ public class Micropolis {
   }
 
   private void fireAnalysis() {
-    fireStMap = smoothFirePoliceMap(fireStMap);
-    fireStMap = smoothFirePoliceMap(fireStMap);
-    fireStMap = smoothFirePoliceMap(fireStMap);
-    for (int sy = 0; sy < fireStMap.length; sy++) {
-      System.arraycopy(fireStMap[sy], 0, fireRate[sy], 0, fireStMap[sy].length);
-    }
+    awaitOverlayPhase(OverlayPhase.FIRE);
+    copyGrid(nextFireRate, fireStMap);
+    copyGrid(nextFireRate, fireRate);
 
     fireMapOverlayDataChanged();
   }
 
-  private boolean testForCond(CityLocation loc, int dir) {
-    int xsave = loc.getX();
-    int ysave = loc.getY();
+  /**
+   * Smooths a map of the fire or police stations into the map of their effect, leaving the station
+   * map as it is. The station map is cleared and rebuilt from scratch by every map scan, so it is
+   * compared with the one the effect was last computed from instead, and if they are the same, the
+   * effect is still valid and left as it is.
+   *
+   * @param last the station map the effect was last computed from
+   */
+  private void smoothStationMap(int[][] stations, int[][] last, int[][] effect, int[][] scratch) {
+    if (Arrays.deepEquals(stations, last)) {
+      return;
+    }
+    copyGrid(stations, last);
+
+    kernels.smoothFirePolice(stations, scratch);
+    kernels.smoothFirePolice(scratch, effect);
+    kernels.smoothFirePolice(effect, scratch);
+    copyGrid(scratch, effect);
+  }
 
-    boolean rv = false;
-    if (movePowerLocation(loc, dir)) {
-      char t = getTile(loc.getX(), loc.getY());
-      rv = isConductive(t) && t != NUCLEAR && t != POWERPLANT && !hasPower(loc.getX(), loc.getY());
+  private static void copyGrid(int[][] from, int[][] to) {
+    for (int y = 0; y < from.length; y++) {
+      System.arraycopy(from[y], 0, to[y], 0, from[y].length);
     }
+  }
 
-    loc.setX(xsave);
-    loc.setY(ysave);
-    return rv;
+  /**
+   * Starts computing the overlay phases that can be computed together with the first one, on the
+   * overlay pool if there is one, or else a slice at a time if there is a step budget. They are
+   * started as soon as the map scan is done: the steps between it and the first phase only write
+   * the census, the traffic and the rate of growth, which none of them reads.
+   */
+  private void startOverlayPhases() {
+    if (overlayPool == null && stepBudget == 0) {
+      return;
+    }
+    OverlayPhase first = OverlayPhase.values()[0];
+    for (OverlayPhase phase : OverlayPhase.values()) {
+      if (phase.canBeComputedWith(first)) {
+        int i = phase.ordinal();
+        overlayVersions[i] = map.getOverlayVersion();
+        if (overlayPool != null) {
+          prepareOverlayPhase(phase);
+          overlayTasks[i] = overlayPool.submit(() -> computeOverlayPhase(phase));
+        } else {
+          beginOverlaySlices(phase);
+          overlaySliced[i] = true;
+          overlayComputed[i] = false;
+        }
+      }
+    }
   }
 
-  private boolean movePowerLocation(CityLocation loc, int dir) {
-    switch (dir) {
-      case 0:
-        if (loc.getY() > 0) {
-          loc.setY(loc.getY() - 1);
-          return true;
-        } else return false;
-      case 1:
-        if (loc.getX() + 1 < getWidth()) {
-          loc.setX(loc.getX() + 1);
-          return true;
-        } else return false;
-      case 2:
-        if (loc.getY() + 1 < getHeight()) {
-          loc.setY(loc.getY() + 1);
-          return true;
-        } else return false;
-      case 3:
-        if (loc.getX() > 0) {
-          loc.setX(loc.getX() - 1);
-          return true;
-        } else return false;
-      case 4:
-        return true;
+  /**
+   * Spends what is left of the step budget, since the step started at the given time, on slices of
+   * the overlay phases computed ahead, in the order of their steps.
+   */
+  private void computeOverlaySlices(long stepStart) {
+    for (OverlayPhase phase : OverlayPhase.values()) {
+      int i = phase.ordinal();
+      while (overlaySliced[i] && !overlayComputed[i]) {
+        if (System.nanoTime() - stepStart >= stepBudget) {
+          return;
+        }
+        overlayComputed[i] = computeOverlaySlice(phase);
+      }
     }
-    return false;
   }
 
-  private void powerScan() {
-    // clear powerMap
-    for (boolean[] bb : powerMap) {
-      Arrays.fill(bb, false);
+  /**
+   * Waits for the computation of the given overlay phase, if it was started ahead, and computes it
+   * now if it was not, if it failed, or if the map changed since in a way that matters to it.
+   */
+  private void awaitOverlayPhase(OverlayPhase phase) {
+    int i = phase.ordinal();
+    ForkJoinTask<?> task = overlayTasks[i];
+    boolean sliced = overlaySliced[i];
+    if (task != null || sliced) {
+      overlayTasks[i] = null;
+      overlaySliced[i] = false;
+      boolean valid =
+          !phase.getReads().contains(OverlayPhase.Data.MAP)
+              || overlayVersions[i] == map.getOverlayVersion();
+      if (task != null) {
+        task.quietlyJoin();
+        valid &= !task.isCompletedAbnormally();
+      } else if (valid) {
+        while (!overlayComputed[i]) {
+          overlayComputed[i] = computeOverlaySlice(phase);
+        }
+      }
+      if (valid) {
+        return;
+      }
+      // what it kept from the tiles may have been read while they were written
+      Arrays.fill(ptlWriteCounts, -1);
+    }
+    prepareOverlayPhase(phase);
+    computeOverlayPhase(phase);
+  }
+
+  /** Waits for the overlay phases computed ahead, and drops their results. */
+  private void discardOverlayPhases() {
+    for (int i = 0; i < overlayTasks.length; i++) {
+      if (overlayTasks[i] != null) {
+        overlayTasks[i].quietlyJoin();
+        overlayTasks[i] = null;
+        Arrays.fill(ptlWriteCounts, -1);
+      }
+      overlaySliced[i] = false;
+    }
+  }
+
+  /** Does the part of the computation of an overlay phase reserved to the simulation thread. */
+  private void prepareOverlayPhase(OverlayPhase phase) {
+    if (phase == OverlayPhase.POPULATION_DENSITY) {
+      countZonePopulation();
+    }
+  }
+
+  /** Computes an overlay phase into the maps holding its results until its step. */
+  private void computeOverlayPhase(OverlayPhase phase) {
+    switch (phase) {
+      case POLLUTION:
+        computePollution();
+        break;
+      case POPULATION_DENSITY:
+        smoothPopulationDensity();
+        break;
+      case FIRE:
+        smoothStationMap(fireStMap, lastFireStMap, nextFireRate, fireScratch);
+        break;
+      default:
+        throw new IllegalArgumentException("Not computed ahead: " + phase);
+    }
+  }
+
+  private void beginOverlaySlices(OverlayPhase phase) {
+    switch (phase) {
+      case POLLUTION:
+        beginPollution();
+        break;
+      case POPULATION_DENSITY:
+        beginZonePopulation();
+        break;
+      default:
+        break;
     }
+  }
 
+  /**
+   * Does the next slice of the computation of an overlay phase, which takes a bounded amount of
+   * work: a few rows of the pollution, a few zones of the population density or its smoothing, or
+   * the fire coverage, whose maps are small.
+   *
+   * @return true if the phase is computed
+   */
+  private boolean computeOverlaySlice(OverlayPhase phase) {
+    switch (phase) {
+      case POLLUTION:
+        return computePollutionRows(ROWS_PER_SLICE);
+      case POPULATION_DENSITY:
+        if (!popZonesCounted) {
+          popZonesCounted = countZonePopulation(ZONES_PER_SLICE);
+          return false;
+        }
+        smoothPopulationDensity();
+        return true;
+      default:
+        computeOverlayPhase(phase);
+        return true;
+    }
+  }
+
+  private void powerScan() {
     //
     // Note: brownouts are based on total number of power plants, not the number
     // of powerplants connected to your city.
     //
 
     int maxPower = coalCount * 700 + nuclearCount * 2000;
-    int numPower = 0;
-
-    // This is kind of odd algorithm, but I haven't the heart to rewrite it at
-    // this time.
-
-    while (!powerPlants.isEmpty()) {
-      CityLocation loc = powerPlants.pop();
-
-      int aDir = 4;
-      int conNum;
-      do {
-        if (++numPower > maxPower) {
-          // trigger notification
-          sendMessage(MicropolisMessage.BROWNOUTS_REPORT);
-          return;
-        }
-        movePowerLocation(loc, aDir);
-        powerMap[loc.getY()][loc.getX()] = true;
-
-        conNum = 0;
-        int dir = 0;
-        while (dir < 4 && conNum < 2) {
-          if (testForCond(loc, dir)) {
-            conNum++;
-            aDir = dir;
-          }
-          dir++;
-        }
-        if (conNum > 1) {
-          powerPlants.add(new CityLocation(loc.getX(), loc.getY()));
-        }
-      } while (conNum != 0);
+    if (!map.getPowerGrid().scan(maxPower)) {
+      // trigger notification
+      sendMessage(MicropolisMessage.BROWNOUTS_REPORT);
     }
   }
 
-  /** Increase the traffic-density measurement at a particular spot. */
-  void addTraffic(int mapX, int mapY) {
+  /**
+   * Increase the traffic-density measurement at a particular spot.
+   *
+   * @param random where the map scan draws its random numbers from
+   * @return true if the traffic there is bad enough to send the helicopter, if any, to look
+   */
+  boolean addTraffic(int mapX, int mapY, RandomGenerator random) {
     int z = trfDensity[mapY / 2][mapX / 2];
     z += 50;
 
@@ -940,17 +1271,23 @@ public class Micropolis {
     // by random chance. why is there no cap
     // the rest of the time?
 
+    boolean jam = false;
     if (z > 240 && random.nextInt(6) == 0) {
       z = 240;
-
-      HelicopterSprite copter = (HelicopterSprite) getSprite(SpriteKind.COP);
-      if (copter != null) {
-        copter.setDestX(mapX);
-        copter.setDestY(mapY);
-      }
+      jam = true;
     }
 
     trfDensity[mapY / 2][mapX / 2] = z;
+    return jam;
+  }
+
+  /** Sends the helicopter, if any, to the given spot. */
+  void sendCopterTo(int mapX, int mapY) {
+    HelicopterSprite copter = (HelicopterSprite) getSprite(SpriteKind.COP);
+    if (copter != null) {
+      copter.setDestX(mapX);
+      copter.setDestY(mapY);
+    }
   }
 
   /** Accessor method for fireRate[]. */
@@ -969,98 +1306,231 @@ public class Micropolis {
 
   // power, terrain, land value
   private void ptlScan() {
-    int qX = (getWidth() + 3) / 4;
-    int qY = (getHeight() + 3) / 4;
-    int[][] qtem = new int[qY][qX];
-
-    int landValueTotal = 0;
-    int landValueCount = 0;
-
-    int hwldx = (getWidth() + 1) / 2;
-    int hwldy = (getHeight() + 1) / 2;
-    int[][] tem = new int[hwldy][hwldx];
-    for (int x = 0; x < hwldx; x++) {
-      for (int y = 0; y < hwldy; y++) {
-        int plevel = 0;
-        int lvflag = 0;
-        int zx = 2 * x;
+    awaitOverlayPhase(OverlayPhase.POLLUTION);
+    copyGrid(nextLandValueMem, landValueMem);
+    copyGrid(nextPollutionMem, pollutionMem);
+    copyGrid(nextTerrainMem, terrainMem);
+    landValueAverage = nextLandValueAverage;
+    pollutionAverage = nextPollutionAverage;
+
+    // The location of the maximum pollution is found column by column, and ties are broken at
+    // random as they are met. Only columns holding a value of at least the maximum so far can
+    // change it or draw a random number, so the others are skipped.
+    int[] colMax = columnMax;
+    int pmax = 0;
+    for (int x = 0; x < colMax.length; x++) {
+      if (colMax[x] == 0 || colMax[x] < pmax) {
+        continue;
+      }
+      for (int y = 0; y < pollutionMem.length; y++) {
+        int z = pollutionMem[y][x];
+        if (z != 0 && (z > pmax || z == pmax && random.nextInt(4) == 0)) {
+          pmax = z;
+          pollutionMaxLocationX = 2 * x;
+          pollutionMaxLocationY = 2 * y;
+        }
+      }
+    }
+
+    fireMapOverlayDataChanged(); // PLMAP
+    fireMapOverlayDataChanged(); // LVMAP
+  }
+
+  /**
+   * Computes the land value, pollution and terrain into nextLandValueMem, nextPollutionMem and
+   * nextTerrainMem, from the tiles and the published maps, and the maximum pollution of each column
+   * into columnMax.
+   */
+  private void computePollution() {
+    beginPollution();
+    computePollutionRows(Integer.MAX_VALUE);
+  }
+
+  private void beginPollution() {
+    Arrays.fill(columnMax, 0);
+    ptlRow = 0;
+    ptlLandValueTotal = 0;
+    ptlLandValueCount = 0;
+    ptlPollutionCount = 0;
+    ptlPollutionTotal = 0;
+    ptlTerrainRow = 0;
+  }
+
+  /**
+   * Goes on with the computation of the pollution for up to the given number of rows of the half
+   * grid, where it was left, and completes it once all rows are done.
+   *
+   * @return true if the computation is complete
+   */
+  private boolean computePollutionRows(int rows) {
+    int width = getWidth();
+    int height = getHeight();
+    int hwldx = (width + 1) / 2;
+    int hwldy = (height + 1) / 2;
+    int chunksX = (width + CHUNK_MASK) >> CHUNK_SHIFT;
+    int[][] qtem = terrainCounts;
+    int[][] tem = pollutionSources;
+    int[][] smoothed = pollutionScratch;
+    char[] tiles = tileRows;
+    int[] colMax = columnMax;
+
+    int landValueTotal = ptlLandValueTotal;
+    int landValueCount = ptlLandValueCount;
+    int pcount = ptlPollutionCount;
+    int ptotal = ptlPollutionTotal;
+    int nextTerrainRow = ptlTerrainRow;
+    int end = hwldy + 2 - ptlRow <= rows ? hwldy + 2 : ptlRow + rows;
+
+    // A single pass over the rows of the half grid. Each row is computed from two rows of tiles;
+    // the two smoothing passes of the pollution follow one and two rows behind, and the smoothing
+    // of the terrain follows once the rows of the quarter grid around it are complete. Thus each
+    // pass only reads complete rows. The land value equation reads the pollution and terrain
+    // of the last scan, which are only replaced when the results are published.
+    for (int y = ptlRow; y < end; y++) {
+      if (y < hwldy) {
+        // the pollution, constructed tiles and terrain of each cell only depend on the tiles, so
+        // they are kept from the last scan for the chunks of the map that were not written since
+        int cy = (2 * y) >> CHUNK_SHIFT;
+        if ((2 * y & CHUNK_MASK) == 0) {
+          boolean anyChanged = false;
+          for (int cx = 0; cx < chunksX; cx++) {
+            int count = map.getWriteCount(cx, cy);
+            chunkChanged[cx] = count != ptlWriteCounts[cy * chunksX + cx];
+            ptlWriteCounts[cy * chunksX + cx] = count;
+            anyChanged |= chunkChanged[cx];
+          }
+          for (int q = y / 2; q < y / 2 + CHUNK_SIZE / 4 && q < qtem.length; q++) {
+            terrainRowChanged[q] = anyChanged;
+          }
+        }
+
+        int[] qrow = qtem[y / 2];
+        int[] terrainRow = terrainMem[y / 2];
+        int[] plevelRow = tem[y];
+        int[] lvflags = constructedCounts[y];
+        int[] pollutionRow = pollutionMem[y];
+        int[] crimeRow = crimeMem[y];
+        int[] landValueRow = nextLandValueMem[y];
+
+        // the last row and column of a map with odd size only cover one tile
         int zy = 2 * y;
+        int tileRowCount = Math.min(2, height - zy);
+        for (int cx = 0; cx < chunksX; cx++) {
+          if (!chunkChanged[cx]) {
+            continue;
+          }
+          int x0 = cx << CHUNK_SHIFT;
+          int x1 = Math.min(x0 + CHUNK_SIZE, width);
+          for (int r = 0; r < tileRowCount; r++) {
+            map.copyRow(zy + r, x0, tiles, r * width + x0, x1 - x0);
+          }
+          Arrays.fill(plevelRow, x0 >> 1, (x1 + 1) >> 1, 0);
+          Arrays.fill(lvflags, x0 >> 1, (x1 + 1) >> 1, 0);
+          if ((y & 1) == 0) {
+            Arrays.fill(qrow, x0 >> 2, (x1 + 3) >> 2, 0);
+          }
 
-        for (int mx = zx; mx <= zx + 1; mx++) {
-          for (int my = zy; my <= zy + 1; my++) {
-            int tile = getTile(mx, my);
-            if (tile != DIRT) {
-              if (tile < RUBBLE) // natural land features
-              {
-                // inc terrainMem
-                qtem[y / 2][x / 2] += 15;
-                continue;
+          // sum up the pollution and count the constructed tiles of each cell, tile by tile
+          for (int r = 0; r < tileRowCount; r++) {
+            for (int mx = x0, i = r * width + x0; mx < x1; mx++, i++) {
+              int tile = tiles[i] & LOMASK;
+              if (tile != DIRT) {
+                if (tile < RUBBLE) // natural land features
+                {
+                  // inc terrainMem
+                  qrow[mx >> 2] += 15;
+                  continue;
+                }
+                plevelRow[mx >> 1] += getPollutionValue(tile);
+                if (isConstructed(tile)) lvflags[mx >> 1]++;
               }
-              plevel += getPollutionValue(tile);
-              if (isConstructed(tile)) lvflag++;
             }
           }
         }
 
-        if (plevel < 0) plevel = 250; // ?
+        for (int x = 0; x < hwldx; x++) {
+          int plevel = plevelRow[x];
+          int lvflag = lvflags[x];
 
-        if (plevel > 255) plevel = 255;
+          if (plevel < 0) plevel = 250; // ?
 
-        tem[y][x] = plevel;
+          if (plevel > 255) plevel = 255;
 
-        if (lvflag == 0) {
-          landValueMem[y][x] = 0;
-        } else {
-          // land value equation
-
-          int dis = 34 - getDisCC(x, y);
-          dis *= 4;
-          dis += terrainMem[y / 2][x / 2];
-          dis -= pollutionMem[y][x];
-          if (crimeMem[y][x] > 190) {
-            dis -= 20;
+          plevelRow[x] = plevel;
+
+          if (lvflag == 0) {
+            landValueRow[x] = 0;
+          } else {
+            // land value equation
+
+            int dis = 34 - getDisCC(x, y);
+            dis *= 4;
+            dis += terrainRow[x / 2];
+            dis -= pollutionRow[x];
+            if (crimeRow[x] > 190) {
+              dis -= 20;
+            }
+            if (dis > 250) dis = 250;
+            if (dis < 1) dis = 1;
+            landValueRow[x] = dis;
+            landValueTotal += dis;
+            landValueCount++;
           }
-          if (dis > 250) dis = 250;
-          if (dis < 1) dis = 1;
-          landValueMem[y][x] = dis;
-          landValueTotal += dis;
-          landValueCount++;
         }
       }
-    }
-
-    landValueAverage = landValueCount != 0 ? landValueTotal / landValueCount : 0;
 
-    tem = doSmooth(tem);
-    tem = doSmooth(tem);
+      int y1 = y - 1;
+      if (y1 >= 0 && y1 < hwldy) {
+        kernels.smoothRow(
+            OverlayKernels.above(tem, y1), tem[y1], OverlayKernels.below(tem, y1), smoothed[y1]);
+      }
 
-    int pcount = 0;
-    int ptotal = 0;
-    int pmax = 0;
-    for (int x = 0; x < hwldx; x++) {
-      for (int y = 0; y < hwldy; y++) {
-        int z = tem[y][x];
-        pollutionMem[y][x] = z;
-
-        if (z != 0) {
-          pcount++;
-          ptotal += z;
-
-          if (z > pmax || z == pmax && random.nextInt(4) == 0) {
-            pmax = z;
-            pollutionMaxLocationX = 2 * x;
-            pollutionMaxLocationY = 2 * y;
+      int y2 = y - 2;
+      if (y2 >= 0) {
+        int[] pollutionRow = nextPollutionMem[y2];
+        kernels.smoothRow(
+            OverlayKernels.above(smoothed, y2),
+            smoothed[y2],
+            OverlayKernels.below(smoothed, y2),
+            pollutionRow);
+        for (int x = 0; x < hwldx; x++) {
+          int z = pollutionRow[x];
+          if (z != 0) {
+            pcount++;
+            ptotal += z;
+            colMax[x] = Math.max(colMax[x], z);
           }
         }
       }
-    }
 
-    pollutionAverage = pcount != 0 ? ptotal / pcount : 0;
+      while (nextTerrainRow < qtem.length && (2 * nextTerrainRow + 3 <= y || y >= hwldy - 1)) {
+        // a row of terrainMem only changes with the terrain counts of the rows around it
+        int t = nextTerrainRow++;
+        if (terrainRowChanged[t]
+            || t > 0 && terrainRowChanged[t - 1]
+            || t + 1 < qtem.length && terrainRowChanged[t + 1]) {
+          kernels.smoothTerrainRow(
+              OverlayKernels.above(qtem, t),
+              qtem[t],
+              OverlayKernels.below(qtem, t),
+              nextTerrainMem[t]);
+        }
+      }
+    }
 
-    terrainMem = smoothTerrain(qtem);
+    ptlRow = end;
+    ptlLandValueTotal = landValueTotal;
+    ptlLandValueCount = landValueCount;
+    ptlPollutionCount = pcount;
+    ptlPollutionTotal = ptotal;
+    ptlTerrainRow = nextTerrainRow;
+    if (end < hwldy + 2) {
+      return false;
+    }
 
-    fireMapOverlayDataChanged(); // PLMAP
-    fireMapOverlayDataChanged(); // LVMAP
+    nextLandValueAverage = landValueCount != 0 ? landValueTotal / landValueCount : 0;
+    nextPollutionAverage = pcount != 0 ? ptotal / pcount : 0;
+    return true;
   }
 
   public CityLocation getLocationOfMaxPollution() {
@@ -1173,57 +1643,149 @@ public class Micropolis {
     return Math.min(z, 32);
   }
 
-  private void initTileBehaviors() {
+  /** Creates the behavior of each tile number, for the map scan of the given strip. */
+  TileBehavior[] createTileBehaviors(ScanStrip strip) {
     Map<String, TileBehavior> bb;
     bb = new HashMap<>();
 
-    bb.put("FIRE", new TerrainBehavior(this, TerrainBehavior.B.FIRE));
-    bb.put("FLOOD", new TerrainBehavior(this, TerrainBehavior.B.FLOOD));
-    bb.put("RADIOACTIVE", new TerrainBehavior(this, TerrainBehavior.B.RADIOACTIVE));
-    bb.put("ROAD", new TerrainBehavior(this, TerrainBehavior.B.ROAD));
-    bb.put("RAIL", new TerrainBehavior(this, TerrainBehavior.B.RAIL));
-    bb.put("EXPLOSION", new TerrainBehavior(this, TerrainBehavior.B.EXPLOSION));
-    bb.put("RESIDENTIAL", new MapScanner(this, Behavior.RESIDENTIAL));
-    bb.put("HOSPITAL_CHURCH", new MapScanner(this, Behavior.HOSPITAL_CHURCH));
-    bb.put("COMMERCIAL", new MapScanner(this, Behavior.COMMERCIAL));
-    bb.put("INDUSTRIAL", new MapScanner(this, Behavior.INDUSTRIAL));
-    bb.put("COAL", new MapScanner(this, Behavior.COAL));
-    bb.put("NUCLEAR", new MapScanner(this, Behavior.NUCLEAR));
-    bb.put("FIRESTATION", new MapScanner(this, Behavior.FIRESTATION));
-    bb.put("POLICESTATION", new MapScanner(this, Behavior.POLICESTATION));
-    bb.put("STADIUM_EMPTY", new MapScanner(this, Behavior.STADIUM_EMPTY));
-    bb.put("STADIUM_FULL", new MapScanner(this, Behavior.STADIUM_FULL));
-    bb.put("AIRPORT", new MapScanner(this, Behavior.AIRPORT));
-    bb.put("SEAPORT", new MapScanner(this, Behavior.SEAPORT));
-
-    tileBehaviors = bb;
-  }
-
-  private void mapScan(int x0, int x1) {
+    bb.put("FIRE", new TerrainBehavior(strip, TerrainBehavior.B.FIRE));
+    bb.put("FLOOD", new TerrainBehavior(strip, TerrainBehavior.B.FLOOD));
+    bb.put("RADIOACTIVE", new TerrainBehavior(strip, TerrainBehavior.B.RADIOACTIVE));
+    bb.put("ROAD", new TerrainBehavior(strip, TerrainBehavior.B.ROAD));
+    bb.put("RAIL", new TerrainBehavior(strip, TerrainBehavior.B.RAIL));
+    bb.put("EXPLOSION", new TerrainBehavior(strip, TerrainBehavior.B.EXPLOSION));
+    bb.put("RESIDENTIAL", new MapScanner(strip, Behavior.RESIDENTIAL));
+    bb.put("HOSPITAL_CHURCH", new MapScanner(strip, Behavior.HOSPITAL_CHURCH));
+    bb.put("COMMERCIAL", new MapScanner(strip, Behavior.COMMERCIAL));
+    bb.put("INDUSTRIAL", new MapScanner(strip, Behavior.INDUSTRIAL));
+    bb.put("COAL", new MapScanner(strip, Behavior.COAL));
+    bb.put("NUCLEAR", new MapScanner(strip, Behavior.NUCLEAR));
+    bb.put("FIRESTATION", new MapScanner(strip, Behavior.FIRESTATION));
+    bb.put("POLICESTATION", new MapScanner(strip, Behavior.POLICESTATION));
+    bb.put("STADIUM_EMPTY", new MapScanner(strip, Behavior.STADIUM_EMPTY));
+    bb.put("STADIUM_FULL", new MapScanner(strip, Behavior.STADIUM_FULL));
+    bb.put("AIRPORT", new MapScanner(strip, Behavior.AIRPORT));
+    bb.put("SEAPORT", new MapScanner(strip, Behavior.SEAPORT));
+
+    // resolve the behavior names once, so the map scan need not look them up for every tile
+    TileBehavior[] table = new TileBehavior[LOMASK + 1];
+    for (int tile = 0; tile < table.length; tile++) {
+      String behaviorStr = getTileBehavior(tile);
+      if (behaviorStr != null) {
+        TileBehavior b = bb.get(behaviorStr);
+        if (b == null) {
+          throw new RuntimeException("Unknown behavior: " + behaviorStr);
+        }
+        table[tile] = b;
+      }
+    }
+    return table;
+  }
+
+  void mapScan(int x0, int x1) {
+    if (scanPool != null) {
+      mapScanParallel(x0, x1);
+      return;
+    }
+
+    scanStrip.begin(random);
+    mapScan(scanStrip, x0, x1, 0, getHeight());
+    scanStrip.finish();
+  }
+
+  /**
+   * Scans the band in strips of {@link ScanStrip#HEIGHT} rows, first the even strips, all at the
+   * same time, then the odd ones. The strips draw their random numbers from generators split off
+   * the city's generator, one per strip in order from the top.
+   */
+  private void mapScanParallel(int x0, int x1) {
+    int count = (getHeight() + ScanStrip.HEIGHT - 1) / ScanStrip.HEIGHT;
+    if (scanStrips == null || scanStrips.length != count) {
+      scanStrips = new ScanStrip[count];
+      for (int k = 0; k < count; k++) {
+        scanStrips[k] = new ScanStrip(this, true);
+      }
+    }
+    RandomGenerator[] randoms = new RandomGenerator[count];
+    for (int k = 0; k < count; k++) {
+      randoms[k] = random.split();
+    }
+
+    List<ForkJoinTask<?>> tasks = new ArrayList<>();
+    for (int parity = 0; parity < 2; parity++) {
+      map.deferChanges(ScanStrip.HEIGHT / 2);
+      for (int k = parity; k < count; k += 2) {
+        ScanStrip strip = scanStrips[k];
+        int y0 = k * ScanStrip.HEIGHT;
+        int y1 = Math.min(y0 + ScanStrip.HEIGHT, getHeight());
+        strip.begin(randoms[k]);
+        tasks.add(scanPool.submit(() -> mapScan(strip, x0, x1, y0, y1)));
+      }
+      for (ForkJoinTask<?> task : tasks) {
+        task.quietlyJoin();
+      }
+      map.commitChanges(pos -> fireTileChanged(pos % getWidth(), pos / getWidth()));
+      for (ForkJoinTask<?> task : tasks) {
+        task.join(); // rethrows what a strip failed with
+      }
+      tasks.clear();
+      for (int k = parity; k < count; k += 2) {
+        scanStrips[k].finish();
+      }
+    }
+  }
+
+  /** Runs the behaviors of the tiles of the band between the given rows. */
+  private void mapScan(ScanStrip strip, int x0, int x1, int y0, int y1) {
+    if (traversalOrder == TraversalOrder.BLOCKED) {
+      mapScanBlocked(strip, x0, x1, y0, y1);
+      return;
+    }
+
+    // visits the tiles with a behavior, column by column, as if every
+    // tile of the band was looked at
     for (int x = x0; x < x1; x++) {
-      for (int y = 0; y < getHeight(); y++) {
-        mapScanTile(x, y);
+      for (int y = map.nextBehaviorTile(x, y0);
+          y >= 0 && y < y1;
+          y = map.nextBehaviorTile(x, y + 1)) {
+        mapScanTile(strip, x, y);
       }
     }
   }
 
-  private void mapScanTile(int xpos, int ypos) {
-    int tile = getTile(xpos, ypos);
-    String behaviorStr = getTileBehavior(tile);
-    if (behaviorStr == null) {
-      return; // nothing to do
+  private void mapScanBlocked(ScanStrip strip, int x0, int x1, int y0, int y1) {
+    // visits the chunks of the band row by row, skipping those without
+    // tiles with a behavior, and the tiles of each chunk row by row
+    for (int cy = y0 >> CHUNK_SHIFT; cy << CHUNK_SHIFT < y1; cy++) {
+      for (int cx = x0 >> CHUNK_SHIFT; cx << CHUNK_SHIFT < x1; cx++) {
+        if (!map.hasBehavior(cx, cy)) {
+          continue;
+        }
+        int left = cx << CHUNK_SHIFT;
+        long columns =
+            TileGrid.chunkColumns(Math.max(x0 - left, 0), Math.min(x1 - left, CHUNK_SIZE));
+        for (int i = map.nextBehaviorTileInChunk(cx, cy, 0, columns);
+            i >= 0;
+            i = map.nextBehaviorTileInChunk(cx, cy, i + 1, columns)) {
+          mapScanTile(strip, left | i & CHUNK_MASK, cy << CHUNK_SHIFT | i >> CHUNK_SHIFT);
+        }
+      }
     }
+  }
 
-    TileBehavior b = tileBehaviors.get(behaviorStr);
+  private void mapScanTile(ScanStrip strip, int xpos, int ypos) {
+    TileBehavior b = strip.behaviors[getTile(xpos, ypos)];
     if (b != null) {
       b.processTile(xpos, ypos);
-    } else {
-      throw new RuntimeException("Unknown behavior: " + behaviorStr);
     }
   }
 
   void generateShip() {
     int edge = random.nextInt(4);
+    if (map.getIndex().count(TileIndex.Kind.CHANNEL) == 0) {
+      // no channel anywhere, let alone on the edge
+      return;
+    }
 
     if (edge == 0) {
       for (int x = 4; x < getWidth() - 2; x++) {
@@ -1508,7 +2070,7 @@ public class Micropolis {
       int y = ypos - 15 + random.nextInt(31);
       if (!testBounds(x, y)) continue;
 
-      int t = map[y][x];
+      int t = map.get(x, y);
       if (isZoneCenter(t)) {
         continue;
       }
@@ -1538,8 +2100,16 @@ public class Micropolis {
     gameLevel = dis.readShort();
     evaluation.setCityClass(dis.readShort()); // [16]
     evaluation.setCityScore(dis.readShort());
+    int mapWidth = dis.readShort(); // [18-19] map size, zero for the classic size
+    int mapHeight = dis.readShort();
+    long savedSeed = dis.readLong(); // [20-23] seed of the random numbers
+    int seeded = dis.readShort(); // [24] 1 if there is a seed, 2 if the state follows
+    CityRandom savedRandom = null;
+    if (seeded == 2) {
+      savedRandom = CityRandom.readState(dis); // [25-40] state of the random numbers
+    }
 
-    for (int i = 18; i < 50; i++) {
+    for (int i = seeded == 2 ? 25 + 4 * CityRandom.STATE_LONGS : 25; i < 50; i++) {
       dis.readShort();
     }
 
@@ -1553,7 +2123,9 @@ public class Micropolis {
     taxEffect = cityTax;
     int simSpeedAsInt = dis.readShort();
     simSpeed =
-        simSpeedAsInt >= 0 && simSpeedAsInt <= 4 ? Speed.values()[simSpeedAsInt] : Speed.NORMAL;
+        simSpeedAsInt >= 0 && simSpeedAsInt < Speed.values().length
+            ? Speed.values()[simSpeedAsInt]
+            : Speed.NORMAL;
 
     // read budget numbers, convert them to percentages
     //
@@ -1587,6 +2159,23 @@ public class Micropolis {
     resCap = false;
     comCap = false;
     indCap = false;
+
+    if (mapWidth == 0 && mapHeight == 0) {
+      mapWidth = DEFAULT_WIDTH;
+      mapHeight = DEFAULT_HEIGHT;
+    }
+    if (!isValidSize(mapWidth, mapHeight)) {
+      throw new IOException("Unsupported map size: " + mapWidth + "x" + mapHeight);
+    }
+    if (mapWidth != getWidth() || mapHeight != getHeight()) {
+      init(mapWidth, mapHeight);
+    }
+    if (seeded != 0) {
+      setSeed(savedSeed);
+    }
+    if (savedRandom != null) {
+      random = savedRandom;
+    }
   }
 
   private void writeMisc(DataOutput out) throws IOException {
@@ -1611,7 +2200,22 @@ public class Micropolis {
     out.writeShort(evaluation.getCityClass());
     out.writeShort(evaluation.getCityScore());
     // 18
-    for (int i = 18; i < 50; i++) {
+    if (getWidth() == DEFAULT_WIDTH && getHeight() == DEFAULT_HEIGHT) {
+      // leave the classic size unmarked, as in files of other editions
+      out.writeShort(0);
+      out.writeShort(0);
+    } else {
+      out.writeShort(getWidth());
+      out.writeShort(getHeight());
+    }
+    // 20
+    // the state of the generator is saved along with its seed, without changing it, so that saving
+    // does not change how the city goes on, and the city loaded from the file draws the same
+    // random numbers from there
+    out.writeLong(seed);
+    out.writeShort(2);
+    random.writeState(out);
+    for (int i = 25 + 4 * CityRandom.STATE_LONGS; i < 50; i++) {
       out.writeShort(0);
     }
     // 50
@@ -1636,21 +2240,21 @@ public class Micropolis {
   }
 
   private void loadMap(DataInput dis) throws IOException {
-    for (int x = 0; x < DEFAULT_WIDTH; x++) {
-      for (int y = 0; y < DEFAULT_HEIGHT; y++) {
+    for (int x = 0; x < getWidth(); x++) {
+      for (int y = 0; y < getHeight(); y++) {
         int z = dis.readShort();
         z &=
             ~(1024 | 2048 | 4096 | 8192
                 | 16384); // clear ZONEBIT,ANIMBIT,BULLBIT,BURNBIT,CONDBIT on import
-        map[y][x] = (char) z;
+        map.set(x, y, (char) z);
       }
     }
   }
 
   private void writeMap(DataOutput out) throws IOException {
-    for (int x = 0; x < DEFAULT_WIDTH; x++) {
-      for (int y = 0; y < DEFAULT_HEIGHT; y++) {
-        int z = map[y][x];
+    for (int x = 0; x < getWidth(); x++) {
+      for (int y = 0; y < getHeight(); y++) {
+        int z = map.get(x, y);
         if (isConductive(z & LOMASK)) {
           z |= 16384; // synthesize CONDBIT on export
         }
@@ -1672,43 +2276,61 @@ public class Micropolis {
   }
 
   public void load(File filename) throws IOException {
-    try (FileInputStream fis = new FileInputStream(filename);
-        DataInputStream dis = new DataInputStream(fis)) {
-      if (fis.getChannel().size() > 27120) {
-        // some editions of the classic Simcity game
-        // start the file off with a 128-byte header,
-        // but otherwise use the same format as us,
-        // so read in that 128-byte header and continue
-        // as before.
-        byte[] bbHeader = new byte[128];
-        fis.read(bbHeader);
-      }
+    byte[] data = Files.readAllBytes(filename.toPath());
+    int headerLength = getHeaderLength(data);
+    try (DataInputStream dis =
+        new DataInputStream(
+            new ByteArrayInputStream(data, headerLength, data.length - headerLength))) {
       load(dis);
     }
   }
 
+  /**
+   * Some editions of the classic Simcity game start the file off with a 128-byte header, but
+   * otherwise use the same format as us. The header is detected by checking which offset yields a
+   * file length matching the map size recorded in the file.
+   */
+  private static int getHeaderLength(byte[] data) {
+    for (int headerLength : new int[] {0, 128}) {
+      if (getExpectedFileSize(data, headerLength) == data.length - headerLength) {
+        return headerLength;
+      }
+    }
+    return data.length > CLASSIC_FILE_SIZE ? 128 : 0;
+  }
+
+  private static long getExpectedFileSize(byte[] data, int headerLength) {
+    int pos = headerLength + MAP_SIZE_OFFSET;
+    if (data.length < pos + 4) {
+      return -1;
+    }
+    int width = (short) ((data[pos] & 0xff) << 8 | data[pos + 1] & 0xff);
+    int height = (short) ((data[pos + 2] & 0xff) << 8 | data[pos + 3] & 0xff);
+    if (width == 0 && height == 0) {
+      return CLASSIC_FILE_SIZE;
+    }
+    return CLASSIC_FILE_SIZE + 2L * (width * height - DEFAULT_WIDTH * DEFAULT_HEIGHT);
+  }
+
   private void checkPowerMap() {
     coalCount = 0;
     nuclearCount = 0;
 
-    powerPlants.clear();
-    for (int y = 0; y < map.length; y++) {
-      for (int x = 0; x < map[y].length; x++) {
-        int tile = getTile(x, y);
-        if (tile == NUCLEAR) {
-          nuclearCount++;
-          powerPlants.add(new CityLocation(x, y));
-        } else if (tile == POWERPLANT) {
-          coalCount++;
-          powerPlants.add(new CityLocation(x, y));
-        }
+    map.getPowerGrid().clearPlants();
+    for (ZoneRegistry.Zone plant : map.getZones().getPowerPlants()) {
+      if (plant.getTile() == NUCLEAR) {
+        nuclearCount++;
+      } else {
+        coalCount++;
       }
+      map.getPowerGrid().addPlant(plant.getX(), plant.getY());
     }
 
     powerScan();
   }
 
   private void load(DataInput dis) throws IOException {
+    discardOverlayPhases();
 
     loadHistoryArray(history.getRes(), dis);
     loadHistoryArray(history.getCom(), dis);
@@ -1718,6 +2340,7 @@ public class Micropolis {
     loadHistoryArray(history.getMoney(), dis);
     loadMisc(dis);
     loadMap(dis);
+    map.compact();
 
     checkPowerMap();
 
@@ -1769,7 +2392,83 @@ public class Micropolis {
       step();
     }
     moveObjects();
-    animateTiles();
+    if (acycle % detailLevel.tileAnimationInterval == 0) {
+      animateTiles();
+    }
+    if (overlaysChanged && acycle % detailLevel.overlayNotificationInterval == 0) {
+      overlaysChanged = false;
+      for (MapListener l : mapListeners) {
+        l.mapOverlayDataChanged();
+      }
+    }
+  }
+
+  /**
+   * Advances the city by the given number of months, as fast as possible, for tools that run cities
+   * without showing them; see {@link #advanceUntil}.
+   */
+  public AdvanceSummary advance(int months) {
+    int endTime = cityTime + 4 * months; // four weeks in a month
+    return advanceUntil(city -> city.cityTime >= endTime);
+  }
+
+  /**
+   * Advances the city, as fast as possible, until the given condition holds; the condition is
+   * tested before each simulation step, and must eventually hold.
+   *
+   * <p>Unlike calling {@link #animate} in a loop, this only does the work that affects the game:
+   * the simulation steps, and moving the sprites, which may crash, burn or wreck the city. Tiles
+   * are not animated, so a city advanced this way does not replay exactly like an animated one, but
+   * it does like another city with the same seed advanced the same way. Listeners hear nothing
+   * while the city advances; instead, afterwards, they hear once of each kind of change that
+   * happened, and map listeners hear of a {@link MapListener#wholeMapChanged change of the whole
+   * map} if any tile changed. Messages, sounds and earthquakes are not replayed; the messages and
+   * earthquakes are in the summary returned. There is no stopping to show the budget either; the
+   * city keeps its current budget settings.
+   */
+  public AdvanceSummary advanceUntil(Predicate<? super Micropolis> condition) {
+    assert advancing == null;
+    AdvanceSummary summary = new AdvanceSummary(cityTime);
+    advancing = summary;
+    try {
+      while (!condition.test(this)) {
+        // the two animation cycles of a step, without the tile animation
+        for (int i = 0; i < 2; i++) {
+          acycle = (acycle + 1) % 960;
+          if (acycle % 2 == 0) {
+            step();
+            summary.stepTaken();
+          }
+          moveObjects();
+        }
+      }
+    } finally {
+      advancing = null;
+      summary.finish(cityTime);
+    }
+
+    if (summary.censusChanged) {
+      fireCensusChanged();
+    }
+    if (summary.demandChanged) {
+      fireDemandChanged();
+    }
+    if (summary.evaluationChanged) {
+      fireEvaluationChanged();
+    }
+    if (summary.fundsChanged) {
+      fireFundsChanged();
+    }
+    if (summary.optionsChanged) {
+      fireOptionsChanged();
+    }
+    if (summary.overlaysChanged) {
+      fireMapOverlayDataChanged();
+    }
+    if (summary.tilesChanged) {
+      fireWholeMapChanged();
+    }
+    return summary;
   }
 
   public Sprite[] allSprites() {
@@ -1787,15 +2486,13 @@ public class Micropolis {
   }
 
   private void animateTiles() {
-    for (int y = 0; y < map.length; y++) {
-      for (int x = 0; x < map[y].length; x++) {
-        char tilevalue = map[y][x];
-        TileSpec spec = Tiles.get(tilevalue & LOMASK);
-        if (spec != null && spec.getAnimNext() != null) {
-          int flags = tilevalue & ALLBITS;
-          setTile(x, y, (char) (spec.getAnimNext().getTileNumber() | flags));
-        }
-      }
+    int width = getWidth();
+    for (int pos = map.nextAnimatedTile(0); pos >= 0; pos = map.nextAnimatedTile(pos + 1)) {
+      int x = pos % width;
+      int y = pos / width;
+      char tilevalue = map.get(x, y);
+      int flags = tilevalue & ALLBITS;
+      setTile(x, y, (char) (TileProperties.getAnimNext(tilevalue) | flags));
     }
   }
 
@@ -1841,18 +2538,49 @@ public class Micropolis {
 
   public void makeFire() {
     // forty attempts at finding place to start fire
-    for (int t = 0; t < 40; t++) {
-      int x = random.nextInt(getWidth());
-      int y = random.nextInt(getHeight());
-      int tile = getTile(x, y);
-      if (!isZoneCenter(tile) && isCombustible(tile)) {
-        if (tile > 21 && tile < LASTZONE) {
-          setTile(x, y, (char) (FIRE + random.nextInt(8)));
-          sendMessageAt(MicropolisMessage.FIRE_REPORT, x, y);
-          return;
-        }
-      }
+    if (probesUntilHit(TileIndex.Kind.FLAMMABLE, 40) < 0) {
+      return;
     }
+    int pos = map.getIndex().sample(TileIndex.Kind.FLAMMABLE, random);
+    int x = pos % getWidth();
+    int y = pos / getWidth();
+    setTile(x, y, (char) (FIRE + random.nextInt(8)));
+    sendMessageAt(MicropolisMessage.FIRE_REPORT, x, y);
+  }
+
+  /**
+   * Simulates probing random map locations until one holds a tile of the given kind, without
+   * actually probing: the number of probes needed follows a geometric distribution, which is
+   * sampled directly from the number of such tiles. The outcome is distributed as if the map had
+   * been probed, and a probe that hits finds each tile of the kind with the same probability, so
+   * that the caller can pick the tile from the {@link TileIndex}.
+   *
+   * @return the number of probes it took, or -1 if none of the first {@code tries} probes hit
+   */
+  private int probesUntilHit(TileIndex.Kind kind, int tries) {
+    return probesUntilHit(kind, getWidth() * getHeight(), tries);
+  }
+
+  /**
+   * Simulates probing random locations of a part of the map, of the given number of tiles, until
+   * one holds a tile of the given kind, like {@link #probesUntilHit(TileIndex.Kind, int)}. Tiles of
+   * the kind outside the part still count as hits; the caller rejects those it picks, and goes on
+   * probing with the tries left. The hits accepted then come with the same odds per probe as when
+   * probing the part itself.
+   *
+   * @return the number of probes it took, or -1 if none of the first {@code tries} probes hit
+   */
+  private int probesUntilHit(TileIndex.Kind kind, int area, int tries) {
+    int count = map.getIndex().count(kind);
+    if (count == 0) {
+      return -1;
+    }
+    double p = (double) count / area;
+    if (p >= 1.0) {
+      return 1;
+    }
+    double n = 1 + Math.floor(Math.log(1.0 - random.nextDouble()) / Math.log(1.0 - p));
+    return n <= tries ? (int) n : -1;
   }
 
   /**
@@ -1862,11 +2590,9 @@ public class Micropolis {
    */
   public boolean makeMeltdown() {
     ArrayList<CityLocation> candidates = new ArrayList<>();
-    for (int y = 0; y < map.length; y++) {
-      for (int x = 0; x < map[y].length; x++) {
-        if (getTile(x, y) == NUCLEAR) {
-          candidates.add(new CityLocation(x, y));
-        }
+    for (ZoneRegistry.Zone plant : map.getZones().getPowerPlants()) {
+      if (plant.getTile() == NUCLEAR) {
+        candidates.add(new CityLocation(plant.getX(), plant.getY()));
       }
     }
 
@@ -1893,13 +2619,19 @@ public class Micropolis {
       return;
     }
 
-    // try to find a suitable starting spot for monster
-
-    for (int i = 0; i < 300; i++) {
-      int x = random.nextInt(getWidth() - 19) + 10;
-      int y = random.nextInt(getHeight() - 9) + 5;
-      int t = getTile(x, y);
-      if (t == RIVER) {
+    // three hundred attempts at finding a suitable starting spot for monster, on a river away
+    // from the map edge; only that part of the map is probed
+    int area = (getWidth() - 19) * (getHeight() - 9);
+    for (int tries = 300; ; ) {
+      int probes = probesUntilHit(TileIndex.Kind.RIVER, area, tries);
+      if (probes < 0) {
+        break;
+      }
+      tries -= probes;
+      int pos = map.getIndex().sample(TileIndex.Kind.RIVER, random);
+      int x = pos % getWidth();
+      int y = pos / getWidth();
+      if (x >= 10 && x < getWidth() - 9 && y >= 5 && y < getHeight() - 4) {
         makeMonsterAt(x, y);
         return;
       }
@@ -1935,22 +2667,26 @@ public class Micropolis {
     int[] dx = {0, 1, 0, -1};
     int[] dy = {-1, 0, 1, 0};
 
-    for (int z = 0; z < 300; z++) {
-      int x = random.nextInt(getWidth());
-      int y = random.nextInt(getHeight());
-      int tile = getTile(x, y);
-      if (isRiverEdge(tile)) {
-        for (int t = 0; t < 4; t++) {
-          int xx = x + dx[t];
-          int yy = y + dy[t];
-          if (testBounds(xx, yy)) {
-            int c = map[yy][xx];
-            if (isFloodable(c)) {
-              setTile(xx, yy, FLOOD);
-              floodCnt = 30;
-              sendMessageAt(MicropolisMessage.FLOOD_REPORT, xx, yy);
-              return;
-            }
+    // three hundred attempts at finding a river edge next to floodable land
+    for (int tries = 300; ; ) {
+      int probes = probesUntilHit(TileIndex.Kind.RIVER_EDGE, tries);
+      if (probes < 0) {
+        return;
+      }
+      tries -= probes;
+      int pos = map.getIndex().sample(TileIndex.Kind.RIVER_EDGE, random);
+      int x = pos % getWidth();
+      int y = pos / getWidth();
+      for (int t = 0; t < 4; t++) {
+        int xx = x + dx[t];
+        int yy = y + dy[t];
+        if (testBounds(xx, yy)) {
+          int c = map.get(xx, yy);
+          if (isFloodable(c)) {
+            setTile(xx, yy, FLOOD);
+            floodCnt = 30;
+            sendMessageAt(MicropolisMessage.FLOOD_REPORT, xx, yy);
+            return;
           }
         }
       }
@@ -1992,9 +2728,9 @@ public class Micropolis {
         int x = xpos - 1 + dx;
         int y = ypos - 1 + dy;
         int tile = getTileRaw(x, y);
-        TileSpec ts = Tiles.get(tile & LOMASK);
-        if (ts != null && ts.getOnPower() != null) {
-          setTile(x, y, (char) (ts.getOnPower().getTileNumber() | tile & ALLBITS));
+        int onPower = TileProperties.getOnPower(tile);
+        if (onPower != TileProperties.NONE) {
+          setTile(x, y, (char) (onPower | tile & ALLBITS));
         }
       }
     }
@@ -2016,9 +2752,9 @@ public class Micropolis {
         int x = xpos - 1 + dx;
         int y = ypos - 1 + dy;
         int tile = getTileRaw(x, y);
-        TileSpec ts = Tiles.get(tile & LOMASK);
-        if (ts != null && ts.getOnShutdown() != null) {
-          setTile(x, y, (char) (ts.getOnShutdown().getTileNumber() | tile & ALLBITS));
+        int onShutdown = TileProperties.getOnShutdown(tile);
+        if (onShutdown != TileProperties.NONE) {
+          setTile(x, y, (char) (onShutdown | tile & ALLBITS));
         }
       }
     }
@@ -2229,6 +2965,22 @@ public class Micropolis {
     budget.setTotalFunds(totalFunds);
   }
 
+  /**
+   * For each 2x2 section of the city, the land value (0-250). 0 means nothing is built there.
+   * Updated each cycle by ptlScan().
+   */
+  public int[][] getLandValueMem() {
+    return landValueMem;
+  }
+
+  /**
+   * For each 2x2 section of the city, the traffic density (0-255). Raised by the traffic generator
+   * and decays each cycle.
+   */
+  public int[][] getTrfDensity() {
+    return trfDensity;
+  }
+
   /**
    * For each 2x2 section of the city, the pollution level of the city (0-255). 0 is no pollution;
    * 255 is maximum pollution. Updated each cycle by ptlScan(); affects land value.
@@ -2269,6 +3021,90 @@ public class Micropolis {
     return policeMapEffect;
   }
 
+  public TraversalOrder getTraversalOrder() {
+    return traversalOrder;
+  }
+
+  /**
+   * Sets the order in which the map scan visits the tiles of the map. Defaults to {@link
+   * TraversalOrder#CLASSIC}.
+   */
+  public void setTraversalOrder(TraversalOrder order) {
+    this.traversalOrder = order;
+  }
+
+  public DetailLevel getDetailLevel() {
+    return detailLevel;
+  }
+
+  /**
+   * Sets how much cosmetic work the simulation does; see {@link DetailLevel}. Defaults to {@link
+   * DetailLevel#FULL}, and is usually left to a {@link DetailGovernor}.
+   */
+  public void setDetailLevel(DetailLevel level) {
+    this.detailLevel = level;
+    if (level.overlayNotificationInterval == 0 && overlaysChanged) {
+      fireMapOverlayDataChanged();
+      overlaysChanged = false;
+    }
+  }
+
+  public ForkJoinPool getScanPool() {
+    return scanPool;
+  }
+
+  /**
+   * Sets the pool to scan the map in parallel with, or null to scan it on the simulation thread
+   * alone, the classic way. Defaults to null.
+   *
+   * <p>A parallel scan splits the map into strips of rows, each running its tile behaviors with
+   * random numbers of its own, so it does not evolve the city the same way as the classic scan.
+   * Cities scanned in parallel only depend on the seed, though, and not on the parallelism of the
+   * pool. Map listeners are notified of the tiles changed by each half of the strips once it is
+   * done, on the simulation thread.
+   */
+  public void setScanPool(ForkJoinPool pool) {
+    this.scanPool = pool;
+  }
+
+  public ForkJoinPool getOverlayPool() {
+    return overlayPool;
+  }
+
+  /**
+   * Sets the pool to compute overlay phases with ahead of their step, or null to compute each of
+   * them at its step on the simulation thread, the classic way. Defaults to null.
+   *
+   * <p>The phases that can be computed ahead (see {@link OverlayPhase}) are started once the map
+   * scan is done, and run on the pool while the simulation goes on. Each phase is still published
+   * at its own step, and computed again there if the map changed in a way that matters to it, so
+   * the city evolves exactly the same way with or without the pool.
+   */
+  public void setOverlayPool(ForkJoinPool pool) {
+    this.overlayPool = pool;
+  }
+
+  public long getStepBudget() {
+    return stepBudget;
+  }
+
+  /**
+   * Sets the time each simulation step may spend computing overlay phases ahead of their step, in
+   * nanoseconds, or 0 to compute each of them at its step in one go, the classic way. Defaults to
+   * 0. Ignored while there is an overlay pool.
+   *
+   * <p>With a budget, the phases that can be computed ahead (see {@link OverlayPhase}) are computed
+   * a slice at a time, in the steps after the map scan, as long as the step has time left. What
+   * remains of a phase at its own step is computed then. This spreads the cost of the heavy steps
+   * of the cycle over the light ones, without changing how the city evolves.
+   */
+  public void setStepBudget(long nanos) {
+    if (nanos < 0) {
+      throw new IllegalArgumentException("Negative step budget: " + nanos);
+    }
+    this.stepBudget = nanos;
+  }
+
   public boolean isAutoBulldoze() {
     return autoBulldoze;
   }
@@ -2333,7 +3169,7 @@ public class Micropolis {
     return cityTime;
   }
 
-  public char[][] getMap() {
+  public TileGrid getMap() {
     return map;
   }
 
@@ -2601,15 +3437,30 @@ public class Micropolis {
     return financialHistory;
   }
 
-  public Random getRandom() {
+  public RandomGenerator getRandom() {
     return random;
   }
 
+  /**
+   * Returns the seed the random numbers of the city were last seeded with: on creation, by {@link
+   * #setSeed}, or in the file the city was loaded from. Saving the city does not change it.
+   */
+  public long getSeed() {
+    return seed;
+  }
+
+  /** Seeds the random numbers of the city, so that it evolves the same way from now on. */
+  public void setSeed(long seed) {
+    this.seed = seed;
+    random = new CityRandom(seed);
+  }
+
   public Iterable<Sprite> getSprites() {
     return sprites;
   }
 
-  public List<CityLocation> getPowerPlants() {
-    return powerPlants;
+  /** Adds a power plant, found by the map scan, to power the city from at the next power scan. */
+  void addPowerPlant(int xpos, int ypos) {
+    map.getPowerGrid().addPlant(xpos, ypos);
   }
 }
@@ -0,0 +1,193 @@
+// This file is part of MicropolisJ.
+// Copyright (C) 2013 Jason Long
+// Portions Copyright (C) 1989-2007 Electronic Arts Inc.
+//
+// MicropolisJ is free software; you can redistribute it and/or modify
+// it under the terms of the GNU GPLv3, with additional terms.
+// See the README file, included in this distribution, for details.
+
+package micropolisj.engine;
+
+import java.util.Arrays;
+
+/**
+ * The element-wise passes over the overlay maps: the smoothing filters, the decay of the traffic
+ * and growth maps, and the crime equation. Each filter reads one grid and writes its result into
+ * another grid of the same size, which the caller provides, so that repeated passes can alternate
+ * between two preallocated grids instead of allocating a new one per pass.
+ *
+ * <p>All filters combine a cell with its four neighbors, where neighbors outside of the grid count
+ * as zero. The sum of the neighbors is computed first, with the first and last column handled
+ * separately so that the loop over the other columns has no bounds checks of its own.
+ *
+ * <p>This class is the plain Java implementation. When the JVM is started with the incubating
+ * Vector API ({@code --add-modules jdk.incubator.vector}), {@link #INSTANCE} is a {@link
+ * VectorOverlayKernels} instead, which computes exactly the same results. Setting the system
+ * property {@code micropolisj.vector} to {@code false} keeps the plain implementation.
+ */
+class OverlayKernels {
+
+  /** The kernels used by the simulation. */
+  static final OverlayKernels INSTANCE = create();
+
+  OverlayKernels() {}
+
+  /** Returns the vectorized kernels if the Vector API is available, else the plain ones. */
+  static OverlayKernels create() {
+    if (!Boolean.parseBoolean(System.getProperty("micropolisj.vector", "true"))
+        || ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+      return new OverlayKernels();
+    }
+    try {
+      return (OverlayKernels)
+          Class.forName("micropolisj.engine.VectorOverlayKernels")
+              .getDeclaredConstructor()
+              .newInstance();
+    } catch (ReflectiveOperationException | LinkageError e) {
+      return new OverlayKernels();
+    }
+  }
+
+  /** Averages each cell with its neighbors, capped at 255; used for pollution and population. */
+  void smooth(int[][] src, int[][] dst) {
+    for (int y = 0; y < src.length; y++) {
+      smoothRow(above(src, y), src[y], below(src, y), dst[y]);
+    }
+  }
+
+  /** Smooths the fire station and police station effect maps. */
+  void smoothFirePolice(int[][] src, int[][] dst) {
+    for (int y = 0; y < src.length; y++) {
+      smoothFirePoliceRow(above(src, y), src[y], below(src, y), dst[y]);
+    }
+  }
+
+  /** Smooths the terrain map. */
+  void smoothTerrain(int[][] src, int[][] dst) {
+    for (int y = 0; y < src.length; y++) {
+      smoothTerrainRow(above(src, y), src[y], below(src, y), dst[y]);
+    }
+  }
+
+  /** Returns the row above row y of a grid, or null for the first row. */
+  static int[] above(int[][] grid, int y) {
+    return y > 0 ? grid[y - 1] : null;
+  }
+
+  /** Returns the row below row y of a grid, or null for the last row. */
+  static int[] below(int[][] grid, int y) {
+    return y + 1 < grid.length ? grid[y + 1] : null;
+  }
+
+  // The filters for a single row, given the rows above and below it, which are null at the edges
+  // of the grid. These let a scan smooth the rows of a grid as soon as they are complete.
+
+  void smoothRow(int[] up, int[] row, int[] down, int[] out) {
+    sumNeighbors(up, row, down, out);
+    for (int x = 0; x < out.length; x++) {
+      out[x] = smoothCell(out[x], row[x]);
+    }
+  }
+
+  void smoothFirePoliceRow(int[] up, int[] row, int[] down, int[] out) {
+    sumNeighbors(up, row, down, out);
+    for (int x = 0; x < out.length; x++) {
+      out[x] = smoothFirePoliceCell(out[x], row[x]);
+    }
+  }
+
+  void smoothTerrainRow(int[] up, int[] row, int[] down, int[] out) {
+    sumNeighbors(up, row, down, out);
+    for (int x = 0; x < out.length; x++) {
+      out[x] = smoothTerrainCell(out[x], row[x]);
+    }
+  }
+
+  /** Lets the traffic density of each cell fade away, by 34 above 200 and by 24 below. */
+  void decayTraffic(int[][] grid) {
+    for (int[] row : grid) {
+      for (int x = 0; x < row.length; x++) {
+        row[x] = decayTraffic(row[x]);
+      }
+    }
+  }
+
+  /** Moves the rate of growth of each cell one step towards zero, capped at 200 either way. */
+  void decayRateOfGrowth(int[][] grid) {
+    for (int[] row : grid) {
+      for (int x = 0; x < row.length; x++) {
+        row[x] = decayRateOfGrowth(row[x]);
+      }
+    }
+  }
+
+  /**
+   * Computes one row of the crime map from the land value and population density of the same row,
+   * and the row of the police station effect map covering it, which has one cell per four cells of
+   * the other maps. Cells without land value have no crime.
+   */
+  void crime(int[] landValue, int[] popDensity, int[] police, int[] out) {
+    for (int x = 0; x < out.length; x++) {
+      out[x] = crime(landValue[x], popDensity[x], police[x / 4]);
+    }
+  }
+
+  // the kernels for a single cell, given the sum of its neighbors where needed
+
+  static int smoothCell(int neighbors, int value) {
+    return Math.min((neighbors + value) / 4, 255);
+  }
+
+  static int smoothFirePoliceCell(int neighbors, int value) {
+    return (neighbors / 4 + value) / 2;
+  }
+
+  static int smoothTerrainCell(int neighbors, int value) {
+    return neighbors / 4 + value / 2;
+  }
+
+  static int decayTraffic(int z) {
+    if (z > 200) return z - 34;
+    else if (z > 24) return z - 24;
+    else return 0;
+  }
+
+  static int decayRateOfGrowth(int z) {
+    if (z > 0) return Math.min(z - 1, 200);
+    else if (z < 0) return Math.max(z + 1, -200);
+    else return 0;
+  }
+
+  static int crime(int landValue, int popDensity, int police) {
+    if (landValue == 0) {
+      return 0;
+    }
+    int z = Math.min(300, 128 - landValue + popDensity) - police;
+    return Math.max(0, Math.min(250, z));
+  }
+
+  /** Writes the sum of the four neighbors of each cell of a row into out. */
+  private static void sumNeighbors(int[] up, int[] row, int[] down, int[] out) {
+    int w = out.length;
+    if (up != null && down != null) {
+      for (int x = 0; x < w; x++) {
+        out[x] = up[x] + down[x];
+      }
+    } else if (up != null) {
+      System.arraycopy(up, 0, out, 0, w);
+    } else if (down != null) {
+      System.arraycopy(down, 0, out, 0, w);
+    } else {
+      Arrays.fill(out, 0);
+    }
+
+    if (w < 2) {
+      return;
+    }
+    out[0] += row[1];
+    for (int x = 1; x < w - 1; x++) {
+      out[x] += row[x - 1] + row[x + 1];
+    }
+    out[w - 1] += row[w - 2];
+  }
+}
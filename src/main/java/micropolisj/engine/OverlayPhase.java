@@ -0,0 +1,160 @@
+// This file is part of MicropolisJ.
+// Copyright (C) 2013 Jason Long
+// Portions Copyright (C) 1989-2007 Electronic Arts Inc.
+//
+// MicropolisJ is free software; you can redistribute it and/or modify
+// it under the terms of the GNU GPLv3, with additional terms.
+// See the README file, included in this distribution, for details.
+
+package micropolisj.engine;
+
+import static micropolisj.engine.TileConstants.COMBASE;
+import static micropolisj.engine.TileConstants.DIRT;
+import static micropolisj.engine.TileConstants.HHTHR;
+import static micropolisj.engine.TileConstants.INDBASE;
+import static micropolisj.engine.TileConstants.LHTHR;
+import static micropolisj.engine.TileConstants.PORTBASE;
+import static micropolisj.engine.TileConstants.RESCLR;
+import static micropolisj.engine.TileConstants.RUBBLE;
+import static micropolisj.engine.TileConstants.commercialZonePop;
+import static micropolisj.engine.TileConstants.getPollutionValue;
+import static micropolisj.engine.TileConstants.industrialZonePop;
+import static micropolisj.engine.TileConstants.isConstructed;
+import static micropolisj.engine.TileConstants.isZoneCenter;
+import static micropolisj.engine.TileConstants.residentialZonePop;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The phases of the simulation cycle that compute the overlay maps, one per step, with the data
+ * each of them reads and writes.
+ *
+ * <p>A phase whose computation is separate from its publication (see {@link #isComputedAhead}) can
+ * be computed ahead of its step, on another thread or a slice at a time in the steps before, as
+ * long as none of the phases in between writes what it reads: it computes into maps of its own,
+ * which are only published at its step, so nothing else sees the difference. The map itself and the
+ * random numbers are also changed between the steps, by sprites, animations and tools; a phase
+ * drawing random numbers is therefore never computed ahead, and one reading the map is computed
+ * again at its step if the map changed in a way that matters to it (see {@link
+ * TileGrid#getOverlayVersion}).
+ */
+enum OverlayPhase {
+  POWER(11, false, EnumSet.of(Data.MAP, Data.CENSUS), EnumSet.of(Data.POWER)),
+  POLLUTION(
+      12,
+      true,
+      EnumSet.of(Data.MAP, Data.CRIME, Data.CENTER_OF_MASS),
+      EnumSet.of(Data.LAND_VALUE, Data.POLLUTION, Data.TERRAIN, Data.RANDOM)),
+  CRIME(
+      13,
+      false,
+      EnumSet.of(Data.LAND_VALUE, Data.POPULATION_DENSITY, Data.POLICE_STATIONS, Data.RANDOM),
+      EnumSet.of(Data.CRIME, Data.POLICE_STATIONS, Data.POLICE_EFFECT, Data.RANDOM)),
+  POPULATION_DENSITY(
+      14,
+      true,
+      EnumSet.of(Data.MAP),
+      EnumSet.of(Data.POPULATION_DENSITY, Data.CENTER_OF_MASS, Data.COMMERCIAL_RATE)),
+  FIRE(15, true, EnumSet.of(Data.FIRE_STATIONS), EnumSet.of(Data.FIRE_STATIONS, Data.FIRE_EFFECT));
+
+  /** The data read or written by the phases. */
+  enum Data {
+    MAP,
+    CENSUS,
+    POWER,
+    LAND_VALUE,
+    POLLUTION,
+    TERRAIN,
+    CRIME,
+    POPULATION_DENSITY,
+    CENTER_OF_MASS,
+    COMMERCIAL_RATE,
+    POLICE_STATIONS,
+    POLICE_EFFECT,
+    FIRE_STATIONS,
+    FIRE_EFFECT,
+    RANDOM
+  }
+
+  private final int step;
+  private final boolean computedAhead;
+  private final Set<Data> reads;
+  private final Set<Data> writes;
+
+  OverlayPhase(int step, boolean computedAhead, Set<Data> reads, Set<Data> writes) {
+    this.step = step;
+    this.computedAhead = computedAhead;
+    this.reads = reads;
+    this.writes = writes;
+  }
+
+  /** Returns the step of the simulation cycle (mod 16) publishing the results of the phase. */
+  int getStep() {
+    return step;
+  }
+
+  /**
+   * Checks whether the computation of the phase is separate from the publication of its results,
+   * and draws no random numbers, so that it can be done ahead of its step.
+   */
+  boolean isComputedAhead() {
+    return computedAhead;
+  }
+
+  Set<Data> getReads() {
+    return reads;
+  }
+
+  Set<Data> getWrites() {
+    return writes;
+  }
+
+  /**
+   * Checks whether the phase can be computed at the step of the given earlier phase: none of the
+   * phases from that one up to this one writes what this one reads.
+   */
+  boolean canBeComputedWith(OverlayPhase first) {
+    if (!computedAhead || first.compareTo(this) >= 0 || reads.contains(Data.RANDOM)) {
+      return false;
+    }
+    for (OverlayPhase p : values()) {
+      if (p.compareTo(first) >= 0 && p.compareTo(this) < 0) {
+        for (Data d : p.writes) {
+          if (reads.contains(d)) {
+            return false;
+          }
+        }
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns what the phases computed ahead read from a tile of the map, given its tile number: two
+   * tile numbers with the same inputs can replace each other without changing their results.
+   */
+  static List<Integer> getMapInputs(int tile) {
+    int zonePop = -1;
+    if (isZoneCenter(tile)) {
+      if (tile == RESCLR) {
+        zonePop = -2;
+      } else if (tile < COMBASE) {
+        zonePop = residentialZonePop(tile);
+      } else if (tile < INDBASE) {
+        zonePop = commercialZonePop(tile) * 8;
+      } else if (tile < PORTBASE) {
+        zonePop = industrialZonePop(tile) * 8;
+      } else {
+        zonePop = 0;
+      }
+    }
+    return List.of(
+        tile == DIRT ? 0 : tile < RUBBLE ? 1 : 2,
+        getPollutionValue(tile),
+        isConstructed(tile) ? 1 : 0,
+        zonePop,
+        tile >= LHTHR && tile <= HHTHR ? 1 : 0);
+  }
+}
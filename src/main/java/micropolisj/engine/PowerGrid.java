@@ -0,0 +1,251 @@
+// This file is part of MicropolisJ.
+// Copyright (C) 2013 Jason Long
+// Portions Copyright (C) 1989-2007 Electronic Arts Inc.
+//
+// MicropolisJ is free software; you can redistribute it and/or modify
+// it under the terms of the GNU GPLv3, with additional terms.
+// See the README file, included in this distribution, for details.
+
+package micropolisj.engine;
+
+import static micropolisj.engine.TileConstants.LOMASK;
+import static micropolisj.engine.TileConstants.NUCLEAR;
+import static micropolisj.engine.TileConstants.POWERPLANT;
+
+import java.util.Arrays;
+
+/**
+ * The power map of a city: which tiles are connected to a power plant, as of the last power scan.
+ *
+ * <p>Power flows from the center of each power plant found by the map scan through adjacent
+ * conductive tiles, but never into the center of another power plant. If the city draws more power
+ * than its plants produce, the classic flood fill of {@link #floodFill} stops early, which leaves
+ * parts of the city without power (a brownout). Since where it stops depends on the exact path the
+ * fill takes, that fill is still used whenever a brownout is possible.
+ *
+ * <p>Otherwise the powered tiles are simply everything reachable from the plants, which is found by
+ * a breadth first search. Better yet, that set cannot change as long as the plants stay the same
+ * and no tile next to a powered tile gains or loses conductivity; the grid is told about every such
+ * change by {@link TileGrid}, and skips the scan entirely while nothing relevant happened.
+ *
+ * <p>Tile positions are packed as {@code y * width + x}.
+ */
+final class PowerGrid {
+  private final TileGrid map;
+  private final int width;
+  private final int height;
+
+  /** One bit per tile, set for the tiles that have power. */
+  private final long[] powered;
+
+  /** Centers of the power plants to scan from, in the order they were found. */
+  private int[] plants = new int[16];
+
+  private int plantCount;
+
+  /** The plants and the maximum power of the last scan that did not need the flood fill. */
+  private int[] lastPlants = new int[0];
+
+  private int lastMaxPower = -1;
+
+  /** Whether a tile affecting the powered area changed since the last scan. */
+  private boolean dirty = true;
+
+  private int[] queue = new int[64];
+
+  PowerGrid(TileGrid map) {
+    this.map = map;
+    this.width = map.getWidth();
+    this.height = map.getHeight();
+    this.powered = new long[(width * height + 63) >> 6];
+  }
+
+  /** Checks whether power can flow into a tile of the given raw value. */
+  static boolean carriesPower(int value) {
+    int tile = value & LOMASK;
+    return TileConstants.isConductive(tile) && tile != NUCLEAR && tile != POWERPLANT;
+  }
+
+  boolean hasPower(int x, int y) {
+    int i = y * width + x;
+    return (powered[i >> 6] & 1L << i) != 0;
+  }
+
+  /** Adds a power plant to power the city from at the next scan. */
+  void addPlant(int x, int y) {
+    if (plantCount == plants.length) {
+      plants = Arrays.copyOf(plants, plantCount * 2);
+    }
+    plants[plantCount++] = y * width + x;
+  }
+
+  void clearPlants() {
+    plantCount = 0;
+  }
+
+  int getPlantCount() {
+    return plantCount;
+  }
+
+  /** Updates the grid for a tile that changed from one raw value to another. */
+  void tileChanged(int x, int y, char oldValue, char newValue) {
+    if (dirty || carriesPower(oldValue) == carriesPower(newValue)) {
+      return;
+    }
+    dirty =
+        hasPower(x, y)
+            || y > 0 && hasPower(x, y - 1)
+            || x + 1 < width && hasPower(x + 1, y)
+            || y + 1 < height && hasPower(x, y + 1)
+            || x > 0 && hasPower(x - 1, y);
+  }
+
+  /** Updates the grid for a map whose tiles were all set to the same value. */
+  void filled() {
+    dirty = true;
+  }
+
+  /**
+   * Recomputes which tiles have power, from the plants added since the last scan, which are then
+   * consumed. The result is the same as that of {@link #floodFill}.
+   *
+   * @param maxPower the number of tiles the plants can power, as counted by the flood fill
+   * @return false if the plants could not power all tiles connected to them
+   */
+  boolean scan(int maxPower) {
+    if (!dirty
+        && maxPower == lastMaxPower
+        && Arrays.equals(plants, 0, plantCount, lastPlants, 0, lastPlants.length)) {
+      plantCount = 0;
+      return true;
+    }
+
+    if (!search(maxPower)) {
+      lastMaxPower = -1;
+      return floodFill(maxPower);
+    }
+    lastPlants = Arrays.copyOf(plants, plantCount);
+    lastMaxPower = maxPower;
+    dirty = false;
+    plantCount = 0;
+    return true;
+  }
+
+  /**
+   * Powers everything reachable from the plants by a breadth first search, unless that many tiles
+   * might exceed the maximum power in the flood fill. The fill counts one step per tile it powers,
+   * plus one per plant and per branching point it returns to, so it takes at most the number of
+   * plants plus twice the number of other tiles.
+   *
+   * @return false if the search gave up
+   */
+  private boolean search(int maxPower) {
+    Arrays.fill(powered, 0L);
+    long steps = plantCount;
+    int tail = 0;
+    for (int p = 0; p < plantCount; p++) {
+      int i = plants[p];
+      if ((powered[i >> 6] & 1L << i) != 0) {
+        continue;
+      }
+      powered[i >> 6] |= 1L << i;
+      tail = enqueue(i, tail);
+    }
+
+    for (int head = 0; head < tail; head++) {
+      int i = queue[head];
+      int x = i % width;
+      int y = i / width;
+      for (int dir = 0; dir < 4; dir++) {
+        int j = neighbor(x, y, dir);
+        if (j < 0
+            || (powered[j >> 6] & 1L << j) != 0
+            || !carriesPower(map.get(j % width, j / width))) {
+          continue;
+        }
+        steps += 2;
+        if (steps > maxPower) {
+          return false;
+        }
+        powered[j >> 6] |= 1L << j;
+        tail = enqueue(j, tail);
+      }
+    }
+    return true;
+  }
+
+  private int enqueue(int i, int tail) {
+    if (tail == queue.length) {
+      queue = Arrays.copyOf(queue, tail * 2);
+    }
+    queue[tail] = i;
+    return tail + 1;
+  }
+
+  /** Returns the position next to the given tile in the given direction, or -1 off the map. */
+  private int neighbor(int x, int y, int dir) {
+    switch (dir) {
+      case 0:
+        return y > 0 ? (y - 1) * width + x : -1;
+      case 1:
+        return x + 1 < width ? y * width + x + 1 : -1;
+      case 2:
+        return y + 1 < height ? (y + 1) * width + x : -1;
+      case 3:
+        return x > 0 ? y * width + x - 1 : -1;
+      default:
+        return y * width + x;
+    }
+  }
+
+  /**
+   * The classic power scan. It follows a single path of conductive tiles from each plant, and
+   * remembers each branching point on a stack to come back to later. Each tile it steps on counts
+   * against the maximum power; once that is exceeded, it stops where it is.
+   *
+   * <p>Plants are taken from the end of the list first. The plants added since the last scan are
+   * consumed.
+   *
+   * @return false if it ran out of power
+   */
+  boolean floodFill(int maxPower) {
+    Arrays.fill(powered, 0L);
+    dirty = true;
+
+    int numPower = 0;
+    while (plantCount > 0) {
+      int loc = plants[--plantCount];
+
+      int aDir = 4;
+      int conNum;
+      do {
+        if (++numPower > maxPower) {
+          return false;
+        }
+        loc = neighbor(loc % width, loc / width, aDir);
+        powered[loc >> 6] |= 1L << loc;
+
+        conNum = 0;
+        int dir = 0;
+        while (dir < 4 && conNum < 2) {
+          if (testForCond(loc, dir)) {
+            conNum++;
+            aDir = dir;
+          }
+          dir++;
+        }
+        if (conNum > 1) {
+          addPlant(loc % width, loc / width);
+        }
+      } while (conNum != 0);
+    }
+    return true;
+  }
+
+  private boolean testForCond(int loc, int dir) {
+    int j = neighbor(loc % width, loc / width, dir);
+    return j >= 0
+        && carriesPower(map.get(j % width, j / width))
+        && (powered[j >> 6] & 1L << j) == 0;
+  }
+}
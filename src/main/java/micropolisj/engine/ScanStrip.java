@@ -0,0 +1,209 @@
+// This file is part of MicropolisJ.
+// Copyright (C) 2013 Jason Long
+// Portions Copyright (C) 1989-2007 Electronic Arts Inc.
+//
+// MicropolisJ is free software; you can redistribute it and/or modify
+// it under the terms of the GNU GPLv3, with additional terms.
+// See the README file, included in this distribution, for details.
+
+package micropolisj.engine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.random.RandomGenerator;
+
+/**
+ * The state of the map scan over one strip of rows of the map: the tile behaviors run on it, the
+ * random numbers they draw, and the census counts they take.
+ *
+ * <p>Classically the whole map is one strip, whose behaviors draw from the city's random number
+ * generator, and whose effects on the rest of the city take place right away. A parallel map scan
+ * (see {@link Micropolis#setScanPool}) instead splits the map into strips of {@link #HEIGHT} rows,
+ * each with a random number generator split off the city's, and scans every other strip at the same
+ * time. Strips scanned together are a strip apart, so as long as no behavior reaches farther than
+ * {@link #REACH} rows from its tile, they never touch the same tiles. Whatever else a behavior
+ * changes (the sprites, the power plants to scan from, the census) is collected by the strip, and
+ * applied by the thread that started the scan, strip by strip from the top of the map. That way,
+ * the city only depends on its seed, and not on how many threads scanned it or which finished
+ * first.
+ */
+final class ScanStrip {
+  /** The number of rows of each strip of a parallel map scan. */
+  static final int HEIGHT = 128;
+
+  /**
+   * The greatest distance, in rows, between a tile and any tile its behavior reads or writes: the
+   * traffic generator starts at a road up to two tiles from its zone, drives up to 30 tiles, and
+   * looks for its destination next to where it stops. It must be at most half of {@link #HEIGHT}.
+   */
+  static final int REACH = 33;
+
+  private final Micropolis city;
+
+  /** Where the behaviors draw their random numbers from, as given to {@link #begin}. */
+  private RandomGenerator random;
+
+  /** Whether effects on the rest of the city wait for {@link #finish}. */
+  private final boolean deferred;
+
+  private final List<Runnable> effects = new ArrayList<>();
+
+  /** Behavior of each tile number; null for tiles without a behavior. */
+  final TileBehavior[] behaviors;
+
+  // census counts taken since the last call to finish()
+  int poweredZoneCount;
+  int unpoweredZoneCount;
+  int firePop;
+  int roadTotal;
+  int railTotal;
+  int resPop;
+  int comPop;
+  int indPop;
+  int resZoneCount;
+  int comZoneCount;
+  int indZoneCount;
+  int hospitalCount;
+  int churchCount;
+  int policeCount;
+  int fireStationCount;
+  int stadiumCount;
+  int coalCount;
+  int nuclearCount;
+  int seaportCount;
+  int airportCount;
+
+  // the city's needs, as of begin(), and as changed by the behaviors since
+  int needHospital;
+  int needChurch;
+
+  ScanStrip(Micropolis city, boolean deferred) {
+    this.city = city;
+    this.deferred = deferred;
+    this.behaviors = city.createTileBehaviors(this);
+  }
+
+  Micropolis getCity() {
+    return city;
+  }
+
+  RandomGenerator getRandom() {
+    return random;
+  }
+
+  /**
+   * Prepares the strip for scanning, after any other strip scanned before was finished, drawing
+   * random numbers from the given generator.
+   */
+  void begin(RandomGenerator random) {
+    this.random = random;
+    needHospital = city.getNeedHospital();
+    needChurch = city.getNeedChurch();
+  }
+
+  /** Applies the census counts and deferred effects of the strip to the city. */
+  void finish() {
+    city.setPoweredZoneCount(city.getPoweredZoneCount() + poweredZoneCount);
+    city.setUnpoweredZoneCount(city.getUnpoweredZoneCount() + unpoweredZoneCount);
+    city.setFirePop(city.getFirePop() + firePop);
+    city.setRoadTotal(city.getRoadTotal() + roadTotal);
+    city.setRailTotal(city.getRailTotal() + railTotal);
+    city.setResPop(city.getResPop() + resPop);
+    city.setComPop(city.getComPop() + comPop);
+    city.setIndPop(city.getIndPop() + indPop);
+    city.setResZoneCount(city.getResZoneCount() + resZoneCount);
+    city.setComZoneCount(city.getComZoneCount() + comZoneCount);
+    city.setIndZoneCount(city.getIndZoneCount() + indZoneCount);
+    city.setHospitalCount(city.getHospitalCount() + hospitalCount);
+    city.setChurchCount(city.getChurchCount() + churchCount);
+    city.setPoliceCount(city.getPoliceCount() + policeCount);
+    city.setFireStationCount(city.getFireStationCount() + fireStationCount);
+    city.setStadiumCount(city.getStadiumCount() + stadiumCount);
+    city.setCoalCount(city.getCoalCount() + coalCount);
+    city.setNuclearCount(city.getNuclearCount() + nuclearCount);
+    city.setSeaportCount(city.getSeaportCount() + seaportCount);
+    city.setAirportCount(city.getAirportCount() + airportCount);
+    poweredZoneCount = 0;
+    unpoweredZoneCount = 0;
+    firePop = 0;
+    roadTotal = 0;
+    railTotal = 0;
+    resPop = 0;
+    comPop = 0;
+    indPop = 0;
+    resZoneCount = 0;
+    comZoneCount = 0;
+    indZoneCount = 0;
+    hospitalCount = 0;
+    churchCount = 0;
+    policeCount = 0;
+    fireStationCount = 0;
+    stadiumCount = 0;
+    coalCount = 0;
+    nuclearCount = 0;
+    seaportCount = 0;
+    airportCount = 0;
+
+    // a behavior only ever satisfies a need
+    if (needHospital == 0) {
+      city.setNeedHospital(0);
+    }
+    if (needChurch == 0) {
+      city.setNeedChurch(0);
+    }
+
+    for (Runnable effect : effects) {
+      effect.run();
+    }
+    effects.clear();
+  }
+
+  private void apply(Runnable effect) {
+    if (deferred) {
+      effects.add(effect);
+    } else {
+      effect.run();
+    }
+  }
+
+  /** Increases the traffic density at a spot passed by the traffic generator. */
+  void addTraffic(int x, int y) {
+    if (city.addTraffic(x, y, random)) {
+      apply(() -> city.sendCopterTo(x, y));
+    }
+  }
+
+  void addPowerPlant(int x, int y) {
+    apply(() -> city.addPowerPlant(x, y));
+  }
+
+  void doMeltdown(int x, int y) {
+    apply(() -> city.doMeltdown(x, y));
+  }
+
+  void makeExplosion(int x, int y) {
+    apply(() -> city.makeExplosion(x, y));
+  }
+
+  void generateCopter(int x, int y) {
+    apply(() -> city.generateCopter(x, y));
+  }
+
+  void generatePlane(int x, int y) {
+    apply(() -> city.generatePlane(x, y));
+  }
+
+  void generateTrain(int x, int y) {
+    apply(() -> city.generateTrain(x, y));
+  }
+
+  /** Adds a ship to the map, unless there is one already. */
+  void generateShip() {
+    apply(
+        () -> {
+          if (!city.hasSprite(SpriteKind.SHI)) {
+            city.generateShip();
+          }
+        });
+  }
+}
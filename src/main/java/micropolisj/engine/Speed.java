@@ -12,13 +12,17 @@ package micropolisj.engine;
  * Lists the simulation speeds available. Contains properties identifying how often the animation
  * timer fires, and how many animation steps are fired at each interval. Note: for every 2 animation
  * steps, one simulation step is triggered.
+ *
+ * <p>{@link #MAX} is not throttled at all: the simulation runs as fast as it can, and the screen is
+ * refreshed at its own fixed rate.
  */
 public enum Speed {
   PAUSED(999, 0),
   SLOW(625, 1), // one sim step every 1250 ms
   NORMAL(125, 1), // one sim step every 250 ms
   FAST(25, 1), // one sim step every 50 ms
-  SUPER_FAST(25, 5); // one sim step every 10 ms
+  SUPER_FAST(25, 5), // one sim step every 10 ms
+  MAX(0, Integer.MAX_VALUE); // as many sim steps as fit between two screen updates
 
   /** The animation speed, expressed as an interval in milliseconds. */
   public final int animationDelay;
@@ -40,8 +40,8 @@ class TerrainBehavior extends TileBehavior {
   private static final int[] TRAFFIC_DENSITY_TAB = {ROADBASE, LTRFBASE, HTRFBASE};
   private final B behavior;
 
-  TerrainBehavior(Micropolis city, B behavior) {
-    super(city);
+  TerrainBehavior(ScanStrip strip, B behavior) {
+    super(strip);
     this.behavior = behavior;
   }
 
@@ -72,7 +72,7 @@ class TerrainBehavior extends TileBehavior {
   }
 
   private void doFire() {
-    getCity().setFirePop(getCity().getFirePop() + 1);
+    getStrip().firePop++;
 
     // one in four times
     if (getRandom().nextInt(4) != 0) {
@@ -93,7 +93,7 @@ class TerrainBehavior extends TileBehavior {
           if (isZoneCenter(c)) {
             getCity().killZone(xtem, ytem, c);
             if (c > IZB) { // explode
-              getCity().makeExplosion(xtem, ytem);
+              getStrip().makeExplosion(xtem, ytem);
             }
           }
           getCity().setTile(xtem, ytem, (char) (FIRE + getRandom().nextInt(4)));
@@ -147,7 +147,7 @@ class TerrainBehavior extends TileBehavior {
 
   /** Called when the current tile is a road tile. */
   private void doRoad() {
-    getCity().setRoadTotal(getCity().getRoadTotal() + 1);
+    getStrip().roadTotal++;
 
     if (getCity().getRoadEffect() < 30) {
       // deteriorating roads
@@ -164,7 +164,7 @@ class TerrainBehavior extends TileBehavior {
 
     if (!isCombustible(getTile())) // bridge
     {
-      getCity().setRoadTotal(getCity().getRoadTotal() + 4);
+      getStrip().roadTotal += 4;
       if (doBridge()) return;
     }
 
@@ -172,7 +172,7 @@ class TerrainBehavior extends TileBehavior {
     if (getTile() < LTRFBASE) tden = 0;
     else if (getTile() < HTRFBASE) tden = 1;
     else {
-      getCity().setRoadTotal(getCity().getRoadTotal() + 1);
+      getStrip().roadTotal++;
       tden = 2;
     }
 
@@ -187,8 +187,8 @@ class TerrainBehavior extends TileBehavior {
 
   /** Called when the current tile is railroad. */
   private void doRail() {
-    getCity().setRailTotal(getCity().getRailTotal() + 1);
-    getCity().generateTrain(getXpos(), getYpos());
+    getStrip().railTotal++;
+    getStrip().generateTrain(getXpos(), getYpos());
 
     if (getCity().getRoadEffect() < 30) { // deteriorating rail
       if (getRandom().nextInt(512) == 0) {
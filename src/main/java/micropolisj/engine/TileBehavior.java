@@ -8,12 +8,12 @@
 
 package micropolisj.engine;
 
-import java.util.Random;
+import java.util.random.RandomGenerator;
 
 abstract class TileBehavior {
   private final Micropolis city;
 
-  private final Random random;
+  private final ScanStrip strip;
 
   private int xpos;
 
@@ -21,9 +21,9 @@ abstract class TileBehavior {
 
   private int tile;
 
-  TileBehavior(Micropolis city) {
-    this.city = city;
-    random = city.getRandom();
+  TileBehavior(ScanStrip strip) {
+    this.city = strip.getCity();
+    this.strip = strip;
   }
 
   public void processTile(int xpos, int ypos) {
@@ -40,8 +40,13 @@ abstract class TileBehavior {
     return city;
   }
 
-  public Random getRandom() {
-    return random;
+  /** Returns the strip of the map scan this behavior runs in. */
+  ScanStrip getStrip() {
+    return strip;
+  }
+
+  public RandomGenerator getRandom() {
+    return strip.getRandom();
   }
 
   public int getXpos() {
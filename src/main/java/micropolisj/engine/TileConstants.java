@@ -197,6 +197,11 @@ public class TileConstants {
         || tileValue >= TINYEXP && tileValue <= LASTTINYEXP;
   }
 
+  /** Checks whether the tile has a behavior, i.e. needs to be visited by the map scan. */
+  static boolean hasTileBehavior(int tile) {
+    return TileProperties.is(tile, TileProperties.HAS_BEHAVIOR);
+  }
+
   // used by scanTile
   public static String getTileBehavior(int tile) {
     assert (tile & LOMASK) == tile;
@@ -209,22 +214,19 @@ public class TileConstants {
   public static int getDescriptionNumber(int tile) {
     assert (tile & LOMASK) == tile;
 
-    TileSpec ts = Tiles.get(tile);
-    return ts != null ? ts.getDescriptionNumber() : -1;
+    return TileProperties.getDescriptionNumber(tile);
   }
 
   public static int getPollutionValue(int tile) {
     assert (tile & LOMASK) == tile;
 
-    TileSpec spec = Tiles.get(tile);
-    return spec != null ? spec.getPollutionValue() : 0;
+    return TileProperties.getPollution(tile);
   }
 
   public static boolean isAnimated(int tile) {
     assert (tile & LOMASK) == tile;
 
-    TileSpec spec = Tiles.get(tile);
-    return spec != null && spec.getAnimNext() != null;
+    return TileProperties.is(tile, TileProperties.ANIMATED);
   }
 
   // used by setFire()
@@ -242,15 +244,13 @@ public class TileConstants {
   public static boolean isCombustible(int tile) {
     assert (tile & LOMASK) == tile;
 
-    TileSpec spec = Tiles.get(tile);
-    return spec != null && spec.isCanBurn();
+    return TileProperties.is(tile, TileProperties.BURNS);
   }
 
   public static boolean isConductive(int tile) {
     assert (tile & LOMASK) == tile;
 
-    TileSpec spec = Tiles.get(tile);
-    return spec != null && spec.isCanConduct();
+    return TileProperties.is(tile, TileProperties.CONDUCTS);
   }
 
   /** Used in repairZone(). */
@@ -270,8 +270,7 @@ public class TileConstants {
   public static boolean isOverWater(int tile) {
     assert (tile & LOMASK) == tile;
 
-    TileSpec spec = Tiles.get(tile);
-    return spec != null && spec.isOverWater();
+    return TileProperties.is(tile, TileProperties.OVERWATER);
   }
 
   public static boolean isRubble(int tile) {
@@ -308,8 +307,7 @@ public class TileConstants {
     assert isZoneCenter(tile);
     assert (tile & LOMASK) == tile;
 
-    TileSpec spec = Tiles.get(tile);
-    return spec != null ? spec.getBuildingSize() : null;
+    return TileProperties.getBuildingSize(tile);
   }
 
   public static boolean isConstructed(int tile) {
@@ -327,8 +325,7 @@ public class TileConstants {
   private static boolean isDozeable(int tile) {
     assert (tile & LOMASK) == tile;
 
-    TileSpec spec = Tiles.get(tile);
-    return spec != null && spec.isCanBulldoze();
+    return TileProperties.is(tile, TileProperties.BULLDOZABLE);
   }
 
   static boolean isFloodable(int tile) {
@@ -474,14 +471,7 @@ public class TileConstants {
   public static boolean isCommercialZone(int tile) {
     assert (tile & LOMASK) == tile;
 
-    TileSpec ts = Tiles.get(tile);
-    if (ts != null) {
-      if (ts.getOwner() != null) {
-        ts = ts.getOwner();
-      }
-      return ts.getBooleanAttribute("commercial-zone");
-    }
-    return false;
+    return TileProperties.is(tile, TileProperties.COMMERCIAL_ZONE);
   }
 
   /**
@@ -491,14 +481,7 @@ public class TileConstants {
   public static boolean isIndustrialZone(int tile) {
     assert (tile & LOMASK) == tile;
 
-    TileSpec ts = Tiles.get(tile);
-    if (ts != null) {
-      if (ts.getOwner() != null) {
-        ts = ts.getOwner();
-      }
-      return ts.getBooleanAttribute("industrial-zone");
-    }
-    return false;
+    return TileProperties.is(tile, TileProperties.INDUSTRIAL_ZONE);
   }
 
   public static boolean isResidentialClear(int tile) {
@@ -511,14 +494,7 @@ public class TileConstants {
   public static boolean isResidentialZoneAny(int tile) {
     assert (tile & LOMASK) == tile;
 
-    TileSpec ts = Tiles.get(tile);
-    if (ts != null) {
-      if (ts.getOwner() != null) {
-        ts = ts.getOwner();
-      }
-      return ts.getBooleanAttribute("residential-zone");
-    }
-    return false;
+    return TileProperties.is(tile, TileProperties.RESIDENTIAL_ZONE);
   }
 
   /** Tile represents a part of any sort of building. */
@@ -531,8 +507,7 @@ public class TileConstants {
   public static boolean isZoneCenter(int tile) {
     assert (tile & LOMASK) == tile;
 
-    TileSpec spec = Tiles.get(tile);
-    return spec != null && spec.isZone();
+    return TileProperties.is(tile, TileProperties.ZONE_CENTER);
   }
 
   /** Converts a road tile value with traffic to the equivalent road tile without traffic. */
@@ -554,8 +529,7 @@ public class TileConstants {
   public static int residentialZonePop(int tile) {
     assert (tile & LOMASK) == tile;
 
-    TileSpec ts = Tiles.get(tile);
-    return ts.getPopulation();
+    return TileProperties.getPopulation(tile);
   }
 
   /**
@@ -566,8 +540,7 @@ public class TileConstants {
   public static int commercialZonePop(int tile) {
     assert (tile & LOMASK) == tile;
 
-    TileSpec ts = Tiles.get(tile);
-    return ts.getPopulation() / 8;
+    return TileProperties.getPopulation(tile) / 8;
   }
 
   /**
@@ -578,7 +551,6 @@ public class TileConstants {
   public static int industrialZonePop(int tile) {
     assert (tile & LOMASK) == tile;
 
-    TileSpec ts = Tiles.get(tile);
-    return ts.getPopulation() / 8;
+    return TileProperties.getPopulation(tile) / 8;
   }
 }
@@ -0,0 +1,597 @@
+// This file is part of MicropolisJ.
+// Copyright (C) 2013 Jason Long
+// Portions Copyright (C) 1989-2007 Electronic Arts Inc.
+//
+// MicropolisJ is free software; you can redistribute it and/or modify
+// it under the terms of the GNU GPLv3, with additional terms.
+// See the README file, included in this distribution, for details.
+
+package micropolisj.engine;
+
+import static micropolisj.engine.TileConstants.LOMASK;
+import static micropolisj.engine.TileConstants.hasTileBehavior;
+import static micropolisj.engine.TileConstants.isAnimated;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntConsumer;
+
+/**
+ * Raw tile values of a city map, stored in square chunks of {@link #CHUNK_SIZE} by {@link
+ * #CHUNK_SIZE} tiles.
+ *
+ * <p>A chunk whose tiles all hold the same value (open water, bare dirt) is represented by that one
+ * value and has no backing array. The array is allocated the first time a different value is
+ * written into the chunk, and released again by {@link #compact()} once the chunk has become
+ * uniform. Within an allocated chunk, tiles are stored row by row, so a horizontal run of tiles is
+ * a contiguous slice of the chunk array.
+ *
+ * <p>For each chunk the grid also tracks how many of its tiles have a tile behavior (see {@link
+ * TileConstants#hasTileBehavior}), so that whole-map scans can skip chunks with nothing to do, and
+ * whether it was modified since the last {@link #compact()}. In addition, it keeps one bit per tile
+ * telling whether the tile has a behavior, arranged column by column, so that the map scan can
+ * visit exactly the tiles with a behavior in the order it always did (see {@link
+ * #nextBehaviorTile}), and the same bits arranged chunk by chunk, row by row within each chunk, for
+ * scans in {@link TraversalOrder#BLOCKED} order (see {@link #nextBehaviorTileInChunk}). Likewise it
+ * keeps one bit per animated tile, arranged row by row, with a second level of bits telling which
+ * words of the first level are non-zero, so that animating the map costs time in proportion to the
+ * number of animated tiles (see {@link #nextAnimatedTile}). Writes that add or remove a zone center
+ * are passed on to the map's {@link ZoneRegistry}, and writes that change the kind of a tile to the
+ * map's {@link TileIndex}. Writes that change the conductivity of a tile are passed on to the
+ * {@link PowerGrid}. Those updates can also be deferred while several threads write disjoint parts
+ * of the map (see {@link #deferChanges}). Finally, the grid counts the writes that matter to the
+ * overlay scans computed ahead of their step (see {@link #getOverlayVersion}).
+ *
+ * <p>The stored values include the PWRBIT; callers wanting the tile number alone should mask with
+ * {@link TileConstants#LOMASK}. Reads are public so that renderers can copy whole rows or
+ * rectangles at a time. Writes are reserved for the engine, which is responsible for notifying map
+ * listeners.
+ */
+public final class TileGrid {
+  static final int CHUNK_SHIFT = 4;
+  static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+  static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+  /** The number of longs holding one bit per tile of a chunk. */
+  private static final int CHUNK_WORDS = CHUNK_SIZE * CHUNK_SIZE >> 6;
+
+  /**
+   * For each tile number, the class of tile numbers with the same inputs to the overlay phases
+   * computed ahead (see {@link OverlayPhase#getMapInputs}).
+   */
+  private static final char[] OVERLAY_CLASSES = overlayClasses();
+
+  private final int width;
+  private final int height;
+  private final int chunksX;
+  private final int chunksY;
+
+  /** Backing arrays of the chunks; null for a uniform chunk. */
+  private final char[][] chunks;
+
+  /** The value of each uniform chunk. */
+  private final char[] uniform;
+
+  private final short[] behaviorCount;
+  private final long[] dirty;
+
+  /** The number of writes that changed a tile of each chunk. */
+  private final int[] writeCounts;
+
+  private int overlayVersion;
+
+  /** Bits of the tiles that have a behavior; each column takes {@link #columnWords} longs. */
+  private final long[] behaviorBits;
+
+  private final int columnWords;
+
+  /**
+   * The same bits as {@link #behaviorBits}; each chunk takes {@link #CHUNK_WORDS} longs, indexed by
+   * the index of the tile within the chunk.
+   */
+  private final long[] behaviorChunkBits;
+
+  /** Bits of the animated tiles, indexed by {@code y * width + x}. */
+  private final long[] animatedBits;
+
+  /** One bit per word of {@link #animatedBits}, set if that word is non-zero. */
+  private final long[] animatedWords;
+
+  private final ZoneRegistry zones;
+  private final TileIndex index;
+  private final PowerGrid power;
+
+  /**
+   * Changes not yet applied to what the grid keeps for the whole map, while deferring them; one log
+   * per block of rows, each holding two ints per change: its position, and its old and new value.
+   */
+  private int[][] changeLogs;
+
+  /** The number of ints used in each log, or null while changes are applied right away. */
+  private int[] changeLogSizes;
+
+  private int changeLogShift;
+
+  /**
+   * Whether the changes of each log changed the overlay inputs or allocated a chunk, while
+   * deferring; the overlay version is bumped once for all of them on commit.
+   */
+  private boolean[] changeLogOverlays;
+
+  TileGrid(int width, int height) {
+    if (width <= 0 || height <= 0) {
+      throw new IllegalArgumentException("Invalid map size: " + width + "x" + height);
+    }
+    this.width = width;
+    this.height = height;
+    this.chunksX = (width + CHUNK_MASK) >> CHUNK_SHIFT;
+    this.chunksY = (height + CHUNK_MASK) >> CHUNK_SHIFT;
+    this.chunks = new char[chunksX * chunksY][];
+    this.uniform = new char[chunksX * chunksY];
+    this.behaviorCount = new short[chunksX * chunksY];
+    this.dirty = new long[(chunksX * chunksY + 63) >> 6];
+    this.writeCounts = new int[chunksX * chunksY];
+    this.columnWords = (height + 63) >> 6;
+    this.behaviorBits = new long[width * columnWords];
+    this.behaviorChunkBits = new long[chunksX * chunksY * CHUNK_WORDS];
+    this.animatedBits = new long[(width * height + 63) >> 6];
+    this.animatedWords = new long[(animatedBits.length + 63) >> 6];
+    this.zones = new ZoneRegistry(width, height);
+    this.index = new TileIndex(width, height);
+    this.power = new PowerGrid(this);
+  }
+
+  public int getWidth() {
+    return width;
+  }
+
+  public int getHeight() {
+    return height;
+  }
+
+  /** Returns the raw value (tile number and status bits) stored at the given location. */
+  public char get(int x, int y) {
+    int ci = (y >> CHUNK_SHIFT) * chunksX + (x >> CHUNK_SHIFT);
+    char[] c = chunks[ci];
+    return c == null ? uniform[ci] : c[(y & CHUNK_MASK) << CHUNK_SHIFT | x & CHUNK_MASK];
+  }
+
+  /**
+   * Copies a horizontal run of raw values into the given buffer.
+   *
+   * @param y the row to copy from
+   * @param x the column of the first value to copy
+   * @param dest the buffer receiving the values
+   * @param destPos the first index of the buffer to write to
+   * @param length the number of values to copy
+   */
+  public void copyRow(int y, int x, char[] dest, int destPos, int length) {
+    checkRect(x, y, length, 1);
+    int rowBase = (y >> CHUNK_SHIFT) * chunksX;
+    int rowOffset = (y & CHUNK_MASK) << CHUNK_SHIFT;
+    while (length > 0) {
+      int ci = rowBase + (x >> CHUNK_SHIFT);
+      int n = Math.min(length, CHUNK_SIZE - (x & CHUNK_MASK));
+      char[] c = chunks[ci];
+      if (c == null) {
+        Arrays.fill(dest, destPos, destPos + n, uniform[ci]);
+      } else {
+        System.arraycopy(c, rowOffset | x & CHUNK_MASK, dest, destPos, n);
+      }
+      x += n;
+      destPos += n;
+      length -= n;
+    }
+  }
+
+  /**
+   * Copies a rectangle of raw values into the given buffer, row by row. The buffer receives {@code
+   * w * h} values, and the value at (x+i, y+j) is written to {@code dest[j * w + i]}.
+   */
+  public void copyRect(int x, int y, int w, int h, char[] dest) {
+    checkRect(x, y, w, h);
+    for (int j = 0; j < h; j++) {
+      copyRow(y + j, x, dest, j * w, w);
+    }
+  }
+
+  /** Checks whether all tiles of the given chunk hold the same value. */
+  boolean isUniform(int cx, int cy) {
+    return chunks[cy * chunksX + cx] == null;
+  }
+
+  /** Returns the value shared by all tiles of a uniform chunk. */
+  char getUniformValue(int cx, int cy) {
+    return uniform[cy * chunksX + cx];
+  }
+
+  /** Checks whether any tile of the given chunk has a tile behavior. */
+  boolean hasBehavior(int cx, int cy) {
+    return behaviorCount[cy * chunksX + cx] != 0;
+  }
+
+  /**
+   * Finds the first tile with a behavior in the given column, starting at the given row. Tiles
+   * written while a scan is walking down the column are taken into account, as if the scan read
+   * each tile.
+   *
+   * @return the row of the tile found, or -1 if there is none
+   */
+  int nextBehaviorTile(int x, int y) {
+    if (y >= height) {
+      return -1;
+    }
+    int base = x * columnWords;
+    int w = y >> 6;
+    long bits = behaviorBits[base + w] & -1L << y;
+    while (bits == 0) {
+      if (++w == columnWords) {
+        return -1;
+      }
+      bits = behaviorBits[base + w];
+    }
+    return w << 6 | Long.numberOfTrailingZeros(bits);
+  }
+
+  /**
+   * Returns the mask selecting the given columns of a chunk, from {@code from} up to but excluding
+   * {@code to}, in each word of bits of {@link #nextBehaviorTileInChunk}.
+   */
+  static long chunkColumns(int from, int to) {
+    long row = (1L << to) - (1L << from);
+    long mask = 0;
+    for (int shift = 0; shift < 64; shift += CHUNK_SIZE) {
+      mask |= row << shift;
+    }
+    return mask;
+  }
+
+  /**
+   * Finds the first tile with a behavior in the given chunk, at or after the given index within the
+   * chunk, in row order. Indices are given as {@code (y & CHUNK_MASK) << CHUNK_SHIFT | x &
+   * CHUNK_MASK}. Like {@link #nextBehaviorTile}, it takes tiles written during a scan into account.
+   *
+   * @param columns the columns to look at, as returned by {@link #chunkColumns}
+   * @return the index of the tile found, or -1 if there is none
+   */
+  int nextBehaviorTileInChunk(int cx, int cy, int i, long columns) {
+    int w = i >> 6;
+    if (w >= CHUNK_WORDS) {
+      return -1;
+    }
+    int base = (cy * chunksX + cx) * CHUNK_WORDS;
+    long bits = behaviorChunkBits[base + w] & columns & -1L << i;
+    while (bits == 0) {
+      if (++w == CHUNK_WORDS) {
+        return -1;
+      }
+      bits = behaviorChunkBits[base + w] & columns;
+    }
+    return w << 6 | Long.numberOfTrailingZeros(bits);
+  }
+
+  /**
+   * Finds the first animated tile at or after the given position, in row order. Positions are given
+   * as {@code y * width + x}. Tiles written while a caller walks the map this way are taken into
+   * account, as if it read each tile.
+   *
+   * @return the position of the tile found, or -1 if there is none
+   */
+  int nextAnimatedTile(int pos) {
+    if (pos >= width * height) {
+      return -1;
+    }
+    int w = pos >> 6;
+    long bits = animatedBits[w] & -1L << pos;
+    if (bits != 0) {
+      return w << 6 | Long.numberOfTrailingZeros(bits);
+    }
+
+    if (++w == animatedBits.length) {
+      return -1;
+    }
+    int s = w >> 6;
+    long words = animatedWords[s] & -1L << w;
+    while (words == 0) {
+      if (++s == animatedWords.length) {
+        return -1;
+      }
+      words = animatedWords[s];
+    }
+    w = s << 6 | Long.numberOfTrailingZeros(words);
+    return w << 6 | Long.numberOfTrailingZeros(animatedBits[w]);
+  }
+
+  /** Returns the registry of the zone centers on this map. */
+  ZoneRegistry getZones() {
+    return zones;
+  }
+
+  /** Returns the index of the tiles of the kinds disasters and spawns look for. */
+  TileIndex getIndex() {
+    return index;
+  }
+
+  /** Returns the power map of the city on this map. */
+  PowerGrid getPowerGrid() {
+    return power;
+  }
+
+  /** Checks whether the given chunk was modified since the last {@link #compact()}. */
+  boolean isDirty(int cx, int cy) {
+    int ci = cy * chunksX + cx;
+    return (dirty[ci >> 6] & 1L << ci) != 0;
+  }
+
+  /**
+   * Returns the number of writes that changed a tile of the given chunk so far. Unlike the dirty
+   * flag, the count is never reset, so data derived from the tiles of a chunk can remember the
+   * count it was computed at, and tell later whether the chunk changed since.
+   */
+  int getWriteCount(int cx, int cy) {
+    return writeCounts[cy * chunksX + cx];
+  }
+
+  /**
+   * Returns the number of writes so far that changed the inputs of the overlay phases computed
+   * ahead of their step, or might have been seen half done by another thread: a phase computed from
+   * the map while the version stayed the same has the same results as if computed at the end.
+   * Writes that only animate tiles or change the power bits do not count. While changes are {@link
+   * #deferChanges deferred}, the version stays the same until they are committed.
+   */
+  int getOverlayVersion() {
+    return overlayVersion;
+  }
+
+  private static char[] overlayClasses() {
+    Map<List<Integer>, Integer> classes = new HashMap<>();
+    char[] result = new char[LOMASK + 1];
+    for (int tile = 0; tile <= LOMASK; tile++) {
+      List<Integer> inputs = OverlayPhase.getMapInputs(tile);
+      result[tile] = (char) (int) classes.computeIfAbsent(inputs, k -> classes.size());
+    }
+    return result;
+  }
+
+  /** Returns the number of chunks currently backed by an array of their own. */
+  int countAllocatedChunks() {
+    int count = 0;
+    for (char[] c : chunks) {
+      if (c != null) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  void set(int x, int y, char value) {
+    int ci = (y >> CHUNK_SHIFT) * chunksX + (x >> CHUNK_SHIFT);
+    char[] c = chunks[ci];
+    int i = (y & CHUNK_MASK) << CHUNK_SHIFT | x & CHUNK_MASK;
+    char old;
+    if (c == null) {
+      old = uniform[ci];
+      if (old == value) {
+        return;
+      }
+      c = new char[CHUNK_SIZE * CHUNK_SIZE];
+      Arrays.fill(c, old);
+      chunks[ci] = c;
+      overlayChanged(y);
+    } else {
+      old = c[i];
+      if (old == value) {
+        return;
+      }
+    }
+    c[i] = value;
+    boolean hasBehavior = hasTileBehavior(value);
+    if (hasTileBehavior(old) != hasBehavior) {
+      behaviorCount[ci] += (short) (hasBehavior ? 1 : -1);
+      behaviorBits[x * columnWords + (y >> 6)] ^= 1L << y;
+      behaviorChunkBits[ci * CHUNK_WORDS + (i >> 6)] ^= 1L << i;
+    }
+    writeCounts[ci]++;
+    if (OVERLAY_CLASSES[old & LOMASK] != OVERLAY_CLASSES[value & LOMASK]) {
+      overlayChanged(y);
+    }
+    if (changeLogSizes != null) {
+      logChange(x, y, old, value);
+    } else {
+      changed(x, y, old, value);
+    }
+  }
+
+  /**
+   * Counts a write to the given row that the overlay phases may see; while deferring, only the log
+   * of the row is marked, since other threads write other logs at the same time.
+   */
+  private void overlayChanged(int y) {
+    if (changeLogSizes != null) {
+      changeLogOverlays[y >> changeLogShift] = true;
+    } else {
+      overlayVersion++;
+    }
+  }
+
+  /** Updates what the grid keeps for the whole map for a tile that changed. */
+  private void changed(int x, int y, char old, char value) {
+    if (isAnimated(old & LOMASK) != isAnimated(value & LOMASK)) {
+      flipAnimated(y * width + x);
+    }
+    zones.tileChanged(x, y, old, value);
+    index.tileChanged(x, y, old, value);
+    power.tileChanged(x, y, old, value);
+    int ci = (y >> CHUNK_SHIFT) * chunksX + (x >> CHUNK_SHIFT);
+    dirty[ci >> 6] |= 1L << ci;
+  }
+
+  private void logChange(int x, int y, char old, char value) {
+    int log = y >> changeLogShift;
+    int size = changeLogSizes[log];
+    if (size == changeLogs[log].length) {
+      changeLogs[log] = Arrays.copyOf(changeLogs[log], Math.max(2 * size, 64));
+    }
+    changeLogs[log][size] = y * width + x;
+    changeLogs[log][size + 1] = old << 16 | value;
+    changeLogSizes[log] = size + 2;
+  }
+
+  /**
+   * Defers the updates of what the grid keeps for the whole map (the animated tiles, the dirty
+   * marks, the overlay version, the zone registry, tile index and power grid) until {@link
+   * #commitChanges}, so that several threads can write the map at once. Each thread must keep to
+   * its own part of the map, writing no tile of a chunk, a column word of behavior bits, or a block
+   * of {@code rowsPerLog} rows that another thread reads or writes at the same time.
+   *
+   * @param rowsPerLog the number of rows whose changes are logged together; a power of two, and a
+   *     multiple of 64
+   */
+  void deferChanges(int rowsPerLog) {
+    assert Integer.bitCount(rowsPerLog) == 1 && rowsPerLog >= 64;
+    int logs = (height + rowsPerLog - 1) / rowsPerLog;
+    if (changeLogs == null || changeLogs.length != logs) {
+      changeLogs = new int[logs][0];
+    }
+    changeLogSizes = new int[logs];
+    changeLogOverlays = new boolean[logs];
+    changeLogShift = Integer.numberOfTrailingZeros(rowsPerLog);
+  }
+
+  boolean isDeferringChanges() {
+    return changeLogSizes != null;
+  }
+
+  /**
+   * Applies the changes deferred since {@link #deferChanges}, block by block from the top of the
+   * map, and each block in the order the changes were made, then goes back to applying changes
+   * right away.
+   *
+   * @param listener told the position, as {@code y * width + x}, of each change applied
+   */
+  void commitChanges(IntConsumer listener) {
+    int[] sizes = changeLogSizes;
+    changeLogSizes = null;
+    for (boolean overlays : changeLogOverlays) {
+      if (overlays) {
+        overlayVersion++;
+        break;
+      }
+    }
+    for (int log = 0; log < sizes.length; log++) {
+      int[] entries = changeLogs[log];
+      for (int e = 0; e < sizes[log]; e += 2) {
+        int pos = entries[e];
+        changed(pos % width, pos / width, (char) (entries[e + 1] >>> 16), (char) entries[e + 1]);
+        listener.accept(pos);
+      }
+    }
+  }
+
+  void fill(char value) {
+    Arrays.fill(chunks, null);
+    Arrays.fill(uniform, value);
+    for (int cy = 0; cy < chunksY; cy++) {
+      for (int cx = 0; cx < chunksX; cx++) {
+        behaviorCount[cy * chunksX + cx] =
+            (short) (hasTileBehavior(value) ? tilesInChunk(cx, cy) : 0);
+      }
+    }
+    Arrays.fill(behaviorBits, 0L);
+    if (hasTileBehavior(value)) {
+      for (int x = 0; x < width; x++) {
+        for (int y = 0; y < height; y++) {
+          behaviorBits[x * columnWords + (y >> 6)] |= 1L << y;
+        }
+      }
+    }
+    Arrays.fill(behaviorChunkBits, 0L);
+    if (hasTileBehavior(value)) {
+      for (int y = 0; y < height; y++) {
+        for (int x = 0; x < width; x++) {
+          int ci = (y >> CHUNK_SHIFT) * chunksX + (x >> CHUNK_SHIFT);
+          int i = (y & CHUNK_MASK) << CHUNK_SHIFT | x & CHUNK_MASK;
+          behaviorChunkBits[ci * CHUNK_WORDS + (i >> 6)] |= 1L << i;
+        }
+      }
+    }
+    Arrays.fill(animatedBits, 0L);
+    Arrays.fill(animatedWords, 0L);
+    if (isAnimated(value & LOMASK)) {
+      for (int pos = 0; pos < width * height; pos++) {
+        flipAnimated(pos);
+      }
+    }
+    zones.filled(value);
+    index.filled(value);
+    power.filled();
+    Arrays.fill(dirty, -1L);
+    int lastBits = chunks.length & 63;
+    if (lastBits != 0) {
+      dirty[dirty.length - 1] = (1L << lastBits) - 1;
+    }
+    for (int ci = 0; ci < writeCounts.length; ci++) {
+      writeCounts[ci]++;
+    }
+    overlayVersion++;
+  }
+
+  /**
+   * Releases the backing arrays of modified chunks that have become uniform, and clears all dirty
+   * marks.
+   */
+  void compact() {
+    for (int w = 0; w < dirty.length; w++) {
+      long bits = dirty[w];
+      while (bits != 0) {
+        int ci = w << 6 | Long.numberOfTrailingZeros(bits);
+        bits &= bits - 1;
+        char[] c = chunks[ci];
+        if (c != null && isUniform(c, ci % chunksX, ci / chunksX)) {
+          uniform[ci] = c[0];
+          chunks[ci] = null;
+          overlayVersion++;
+        }
+      }
+      dirty[w] = 0;
+    }
+  }
+
+  private void flipAnimated(int pos) {
+    int w = pos >> 6;
+    animatedBits[w] ^= 1L << pos;
+    if (animatedBits[w] != 0) {
+      animatedWords[w >> 6] |= 1L << w;
+    } else {
+      animatedWords[w >> 6] &= ~(1L << w);
+    }
+  }
+
+  private boolean isUniform(char[] c, int cx, int cy) {
+    int w = Math.min(CHUNK_SIZE, width - (cx << CHUNK_SHIFT));
+    int h = Math.min(CHUNK_SIZE, height - (cy << CHUNK_SHIFT));
+    char first = c[0];
+    for (int j = 0; j < h; j++) {
+      for (int i = 0; i < w; i++) {
+        if (c[j << CHUNK_SHIFT | i] != first) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  private int tilesInChunk(int cx, int cy) {
+    return Math.min(CHUNK_SIZE, width - (cx << CHUNK_SHIFT))
+        * Math.min(CHUNK_SIZE, height - (cy << CHUNK_SHIFT));
+  }
+
+  private void checkRect(int x, int y, int w, int h) {
+    if (x < 0 || y < 0 || w < 0 || h < 0 || x + w > width || y + h > height) {
+      throw new IndexOutOfBoundsException(
+          String.format("%dx%d at %d,%d is outside of the %dx%d map", w, h, x, y, width, height));
+    }
+  }
+}
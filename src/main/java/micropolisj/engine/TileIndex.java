@@ -0,0 +1,183 @@
+// This file is part of MicropolisJ.
+// Copyright (C) 2013 Jason Long
+// Portions Copyright (C) 1989-2007 Electronic Arts Inc.
+//
+// MicropolisJ is free software; you can redistribute it and/or modify
+// it under the terms of the GNU GPLv3, with additional terms.
+// See the README file, included in this distribution, for details.
+
+package micropolisj.engine;
+
+import static micropolisj.engine.TileConstants.CHANNEL;
+import static micropolisj.engine.TileConstants.LASTZONE;
+import static micropolisj.engine.TileConstants.LOMASK;
+import static micropolisj.engine.TileConstants.RIVER;
+import static micropolisj.engine.TileGrid.CHUNK_MASK;
+import static micropolisj.engine.TileGrid.CHUNK_SHIFT;
+import static micropolisj.engine.TileGrid.CHUNK_SIZE;
+
+import java.util.Arrays;
+import java.util.random.RandomGenerator;
+
+/**
+ * Keeps the positions of the tiles of a few kinds that disasters and spawns look for, so that they
+ * can count those tiles and pick one at random in constant time instead of searching the map.
+ *
+ * <p>Positions are packed as {@code y * width + x}. Each kind keeps its positions in a dense array,
+ * in no particular order; to remove a position in constant time, the index also remembers where
+ * each position is stored. Those slots are kept per chunk of the map, and only for chunks holding
+ * indexed tiles.
+ *
+ * <p>The index is maintained by {@link TileGrid}, which reports every write that changes the kind
+ * of a tile.
+ */
+final class TileIndex {
+
+  /** The kinds of tiles indexed. A tile is of at most one kind. */
+  enum Kind {
+    /** Open water. */
+    RIVER,
+    /** Deep water, where ships travel. */
+    CHANNEL,
+    /** Shore tiles, from which floods spread. */
+    RIVER_EDGE,
+    /** Parts of buildings that can be set on fire, but not their zone centers. */
+    FLAMMABLE
+  }
+
+  private static final Kind[] KINDS = Kind.values();
+
+  /** The kind of each tile number, or -1 for tiles that are not indexed. */
+  private static final byte[] kindOf = new byte[LOMASK + 1];
+
+  static {
+    for (int tile = 0; tile <= LOMASK; tile++) {
+      Kind kind = classify(tile);
+      kindOf[tile] = (byte) (kind != null ? kind.ordinal() : -1);
+    }
+  }
+
+  private final int width;
+  private final int height;
+  private final int chunksX;
+  private final int[][] positions = new int[KINDS.length][16];
+  private final int[] counts = new int[KINDS.length];
+
+  /** Where each indexed position is stored in {@link #positions}, per chunk. */
+  private final int[][] slots;
+
+  private final short[] chunkCounts;
+
+  TileIndex(int width, int height) {
+    this.width = width;
+    this.height = height;
+    this.chunksX = (width + CHUNK_MASK) >> CHUNK_SHIFT;
+    int chunksY = (height + CHUNK_MASK) >> CHUNK_SHIFT;
+    this.slots = new int[chunksX * chunksY][];
+    this.chunkCounts = new short[chunksX * chunksY];
+  }
+
+  private static Kind classify(int tile) {
+    if (tile == RIVER) {
+      return Kind.RIVER;
+    } else if (tile == CHANNEL) {
+      return Kind.CHANNEL;
+    } else if (TileConstants.isRiverEdge(tile)) {
+      return Kind.RIVER_EDGE;
+    } else if (!TileConstants.isZoneCenter(tile)
+        && TileConstants.isCombustible(tile)
+        && tile > 21
+        && tile < LASTZONE) {
+      return Kind.FLAMMABLE;
+    } else {
+      return null;
+    }
+  }
+
+  /** Returns the kind of the given tile, or null if tiles of its number are not indexed. */
+  static Kind getKind(int tile) {
+    int k = kindOf[tile & LOMASK];
+    return k >= 0 ? KINDS[k] : null;
+  }
+
+  /** Returns the number of tiles of the given kind on the map. */
+  int count(Kind kind) {
+    return counts[kind.ordinal()];
+  }
+
+  /**
+   * Picks a tile of the given kind, each with the same probability.
+   *
+   * @return the position of the tile, as {@code y * width + x}, or -1 if there is none
+   */
+  int sample(Kind kind, RandomGenerator random) {
+    int count = counts[kind.ordinal()];
+    return count != 0 ? positions[kind.ordinal()][random.nextInt(count)] : -1;
+  }
+
+  /** Updates the index for a tile that changed from one raw value to another. */
+  void tileChanged(int x, int y, char oldValue, char newValue) {
+    int oldKind = kindOf[oldValue & LOMASK];
+    int newKind = kindOf[newValue & LOMASK];
+    if (oldKind == newKind) {
+      return;
+    }
+    if (oldKind >= 0) {
+      remove(x, y, oldKind);
+    }
+    if (newKind >= 0) {
+      add(x, y, newKind);
+    }
+  }
+
+  /** Updates the index for a map whose tiles were all set to the given raw value. */
+  void filled(char value) {
+    Arrays.fill(counts, 0);
+    Arrays.fill(slots, null);
+    Arrays.fill(chunkCounts, (short) 0);
+    int kind = kindOf[value & LOMASK];
+    if (kind < 0) {
+      return;
+    }
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        add(x, y, kind);
+      }
+    }
+  }
+
+  private void add(int x, int y, int kind) {
+    int ci = (y >> CHUNK_SHIFT) * chunksX + (x >> CHUNK_SHIFT);
+    if (slots[ci] == null) {
+      slots[ci] = new int[CHUNK_SIZE * CHUNK_SIZE];
+    }
+    chunkCounts[ci]++;
+
+    int[] p = positions[kind];
+    int slot = counts[kind]++;
+    if (slot == p.length) {
+      p = positions[kind] = Arrays.copyOf(p, p.length * 2);
+    }
+    p[slot] = y * width + x;
+    slots[ci][(y & CHUNK_MASK) << CHUNK_SHIFT | x & CHUNK_MASK] = slot;
+  }
+
+  private void remove(int x, int y, int kind) {
+    int ci = (y >> CHUNK_SHIFT) * chunksX + (x >> CHUNK_SHIFT);
+    int slot = slots[ci][(y & CHUNK_MASK) << CHUNK_SHIFT | x & CHUNK_MASK];
+    if (--chunkCounts[ci] == 0) {
+      slots[ci] = null;
+    }
+
+    // move the last position into the freed slot
+    int[] p = positions[kind];
+    int last = p[--counts[kind]];
+    p[slot] = last;
+    int lx = last % width;
+    int ly = last / width;
+    int[] lastSlots = slots[(ly >> CHUNK_SHIFT) * chunksX + (lx >> CHUNK_SHIFT)];
+    if (lastSlots != null) {
+      lastSlots[(ly & CHUNK_MASK) << CHUNK_SHIFT | lx & CHUNK_MASK] = slot;
+    }
+  }
+}
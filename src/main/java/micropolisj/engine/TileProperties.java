@@ -0,0 +1,156 @@
+// This file is part of MicropolisJ.
+// Copyright (C) 2013 Jason Long
+// Portions Copyright (C) 1989-2007 Electronic Arts Inc.
+//
+// MicropolisJ is free software; you can redistribute it and/or modify
+// it under the terms of the GNU GPLv3, with additional terms.
+// See the README file, included in this distribution, for details.
+
+package micropolisj.engine;
+
+import static micropolisj.engine.TileConstants.LOMASK;
+
+/**
+ * The tile specifications compiled into tables indexed by tile number, so that the simulation can
+ * query a tile attribute with a single array load instead of going through {@link TileSpec} objects
+ * and their string attributes.
+ *
+ * <p>The flags and small numeric attributes of a tile are packed into one long: the flags in the
+ * low 16 bits, then the pollution value, the population, and the (signed) description number in the
+ * top 16 bits. Tiles are looked up by their value masked with {@link TileConstants#LOMASK}. Tile
+ * numbers without a specification have no flags, no pollution or population, and description number
+ * -1.
+ */
+final class TileProperties {
+  static final int CONDUCTS = 1;
+  static final int BURNS = 1 << 1;
+  static final int BULLDOZABLE = 1 << 2;
+  static final int OVERWATER = 1 << 3;
+  static final int ZONE_CENTER = 1 << 4;
+  static final int ANIMATED = 1 << 5;
+  static final int RESIDENTIAL_ZONE = 1 << 6;
+  static final int COMMERCIAL_ZONE = 1 << 7;
+  static final int INDUSTRIAL_ZONE = 1 << 8;
+  static final int HAS_BEHAVIOR = 1 << 9;
+
+  /** Value of the tile tables for "no such tile". */
+  static final short NONE = -1;
+
+  private static final int POLLUTION_SHIFT = 16;
+  private static final int POPULATION_SHIFT = 32;
+  private static final int DESCRIPTION_SHIFT = 48;
+
+  private static final long[] properties = new long[LOMASK + 1];
+  private static final short[] animNext = new short[LOMASK + 1];
+  private static final short[] onPower = new short[LOMASK + 1];
+  private static final short[] onShutdown = new short[LOMASK + 1];
+  private static final short[] owner = new short[LOMASK + 1];
+  private static final byte[] ownerOffsetX = new byte[LOMASK + 1];
+  private static final byte[] ownerOffsetY = new byte[LOMASK + 1];
+  private static final CityDimension[] buildingSize = new CityDimension[LOMASK + 1];
+
+  static {
+    for (int tile = 0; tile <= LOMASK; tile++) {
+      compile(tile, Tiles.get(tile));
+    }
+  }
+
+  private TileProperties() {}
+
+  private static void compile(int tile, TileSpec spec) {
+    animNext[tile] = NONE;
+    onPower[tile] = NONE;
+    onShutdown[tile] = NONE;
+    owner[tile] = NONE;
+    if (spec == null) {
+      properties[tile] = (long) -1 << DESCRIPTION_SHIFT;
+      return;
+    }
+
+    // zone type attributes are defined on the building's main tile only
+    TileSpec building = spec.getOwner() != null ? spec.getOwner() : spec;
+    int flags = 0;
+    flags |= spec.isCanConduct() ? CONDUCTS : 0;
+    flags |= spec.isCanBurn() ? BURNS : 0;
+    flags |= spec.isCanBulldoze() ? BULLDOZABLE : 0;
+    flags |= spec.isOverWater() ? OVERWATER : 0;
+    flags |= spec.isZone() ? ZONE_CENTER : 0;
+    flags |= spec.getAnimNext() != null ? ANIMATED : 0;
+    flags |= building.getBooleanAttribute("residential-zone") ? RESIDENTIAL_ZONE : 0;
+    flags |= building.getBooleanAttribute("commercial-zone") ? COMMERCIAL_ZONE : 0;
+    flags |= building.getBooleanAttribute("industrial-zone") ? INDUSTRIAL_ZONE : 0;
+    flags |= spec.getAttribute("behavior") != null ? HAS_BEHAVIOR : 0;
+
+    properties[tile] =
+        flags
+            | (long) (spec.getPollutionValue() & 0xffff) << POLLUTION_SHIFT
+            | (long) (spec.getPopulation() & 0xffff) << POPULATION_SHIFT
+            | (long) spec.getDescriptionNumber() << DESCRIPTION_SHIFT;
+
+    if (spec.getAnimNext() != null) {
+      animNext[tile] = (short) spec.getAnimNext().getTileNumber();
+    }
+    if (spec.getOnPower() != null) {
+      onPower[tile] = (short) spec.getOnPower().getTileNumber();
+    }
+    if (spec.getOnShutdown() != null) {
+      onShutdown[tile] = (short) spec.getOnShutdown().getTileNumber();
+    }
+    if (spec.getOwner() != null) {
+      owner[tile] = (short) spec.getOwner().getTileNumber();
+      ownerOffsetX[tile] = (byte) spec.getOwnerOffsetX();
+      ownerOffsetY[tile] = (byte) spec.getOwnerOffsetY();
+    }
+    buildingSize[tile] = spec.getBuildingSize();
+  }
+
+  /** Checks whether the tile has any of the given flags. */
+  static boolean is(int tile, int flag) {
+    return (properties[tile & LOMASK] & flag) != 0;
+  }
+
+  static int getPollution(int tile) {
+    return (int) (properties[tile & LOMASK] >>> POLLUTION_SHIFT) & 0xffff;
+  }
+
+  static int getPopulation(int tile) {
+    return (int) (properties[tile & LOMASK] >>> POPULATION_SHIFT) & 0xffff;
+  }
+
+  static int getDescriptionNumber(int tile) {
+    return (int) (properties[tile & LOMASK] >> DESCRIPTION_SHIFT);
+  }
+
+  /** Returns the tile the given tile animates to, or {@link #NONE}. */
+  static int getAnimNext(int tile) {
+    return animNext[tile & LOMASK];
+  }
+
+  /** Returns the tile the given tile switches to when its zone gets power, or {@link #NONE}. */
+  static int getOnPower(int tile) {
+    return onPower[tile & LOMASK];
+  }
+
+  /** Returns the tile the given tile switches to when its zone loses power, or {@link #NONE}. */
+  static int getOnShutdown(int tile) {
+    return onShutdown[tile & LOMASK];
+  }
+
+  /** Returns the main tile of the building the given tile is part of, or {@link #NONE}. */
+  static int getOwner(int tile) {
+    return owner[tile & LOMASK];
+  }
+
+  static int getOwnerOffsetX(int tile) {
+    return ownerOffsetX[tile & LOMASK];
+  }
+
+  static int getOwnerOffsetY(int tile) {
+    return ownerOffsetY[tile & LOMASK];
+  }
+
+  /** Returns the size of the building whose main tile is the given tile, or null. */
+  static CityDimension getBuildingSize(int tile) {
+    return buildingSize[tile & LOMASK];
+  }
+}
@@ -9,6 +9,7 @@
 package micropolisj.engine;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -62,6 +63,38 @@ public class TileSpec {
     return ts;
   }
 
+  /**
+   * Parses all tiles defined in the given tiles.rc recipe. References between the tiles are not
+   * resolved yet.
+   *
+   * @return the tiles, indexed by tile number; tiles past the first missing one are left null
+   */
+  static TileSpec[] parseAll(Properties tilesRc) {
+    String[] tileNames = generateTileNames(tilesRc);
+    TileSpec[] tiles = new TileSpec[tileNames.length];
+
+    for (int i = 0; i < tileNames.length; i++) {
+      String tileName = tileNames[i];
+      String rawSpec = tilesRc.getProperty(tileName);
+      if (rawSpec == null) {
+        break;
+      }
+
+      tiles[i] = parse(i, tileName, rawSpec, tilesRc);
+    }
+    return tiles;
+  }
+
+  /** Creates a tile from attributes and images that were parsed before, e.g. at build time. */
+  static TileSpec create(
+      int tileNumber, String tileName, Map<String, String> attributes, List<String> images) {
+    TileSpec ts = new TileSpec(tileNumber, tileName);
+    ts.attributes.putAll(attributes);
+    ts.images.addAll(images);
+    ts.initFlags();
+    return ts;
+  }
+
   public static String[] generateTileNames(Map recipe) {
     int ntiles = recipe.size();
     String[] tileNames = new String[ntiles];
@@ -91,6 +124,14 @@ public class TileSpec {
     return attributes.get(key);
   }
 
+  Map<String, String> getAttributes() {
+    return Collections.unmodifiableMap(attributes);
+  }
+
+  String getName() {
+    return name;
+  }
+
   public boolean getBooleanAttribute(String key) {
     String v = getAttribute(key);
     return "true".equals(v);
@@ -201,6 +242,10 @@ public class TileSpec {
       }
     }
 
+    initFlags();
+  }
+
+  private void initFlags() {
     canBulldoze = getBooleanAttribute("bulldozable");
     canBurn = !getBooleanAttribute("noburn");
     canConduct = getBooleanAttribute("conducts");
@@ -9,17 +9,13 @@
 package micropolisj.engine;
 
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.nio.charset.Charset;
-import java.nio.charset.StandardCharsets;
+import java.io.InputStream;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.Properties;
 
 /** Provides global methods for loading tile specifications. */
 class Tiles {
   static final Map<String, TileSpec> tilesByName = new HashMap<>();
-  private static final Charset UTF8 = StandardCharsets.UTF_8;
   private static TileSpec[] tiles;
 
   static {
@@ -31,23 +27,21 @@ class Tiles {
   }
 
   private static void readTiles() throws IOException {
-    Properties tilesRc = new Properties();
-    tilesRc.load(
-        new InputStreamReader(Tiles.class.getResourceAsStream("/graphics/tiles.rc"), UTF8));
+    byte[] source;
+    try (InputStream in = Tiles.class.getResourceAsStream(TilesCompiler.SOURCE)) {
+      source = in.readAllBytes();
+    }
 
-    String[] tileNames = TileSpec.generateTileNames(tilesRc);
-    tiles = new TileSpec[tileNames.length];
+    // prefer the tiles compiled at build time over parsing the text format
+    tiles = readCompiledTiles(TilesCompiler.checksum(source));
+    if (tiles == null) {
+      tiles = TilesCompiler.parse(source);
+    }
 
-    for (int i = 0; i < tileNames.length; i++) {
-      String tileName = tileNames[i];
-      String rawSpec = tilesRc.getProperty(tileName);
-      if (rawSpec == null) {
-        break;
+    for (TileSpec ts : tiles) {
+      if (ts != null) {
+        tilesByName.put(ts.getName(), ts);
       }
-
-      TileSpec ts = TileSpec.parse(i, tileName, rawSpec, tilesRc);
-      tilesByName.put(tileName, ts);
-      tiles[i] = ts;
     }
 
     for (TileSpec tile : tiles) {
@@ -70,6 +64,15 @@ class Tiles {
     }
   }
 
+  /** Reads the compiled tiles, or returns null if they are missing or out of date. */
+  private static TileSpec[] readCompiledTiles(long checksum) {
+    try (InputStream in = Tiles.class.getResourceAsStream(TilesCompiler.COMPILED)) {
+      return in != null ? TilesCompiler.read(in, checksum) : null;
+    } catch (IOException e) {
+      return null;
+    }
+  }
+
   /**
    * Access a tile specification by index number.
    *
@@ -0,0 +1,136 @@
+// This file is part of MicropolisJ.
+// Copyright (C) 2013 Jason Long
+// Portions Copyright (C) 1989-2007 Electronic Arts Inc.
+//
+// MicropolisJ is free software; you can redistribute it and/or modify
+// it under the terms of the GNU GPLv3, with additional terms.
+// See the README file, included in this distribution, for details.
+
+package micropolisj.engine;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Properties;
+import java.util.zip.CRC32;
+
+/**
+ * Compiles the tile specifications of tiles.rc into a binary file at build time, so that the game
+ * does not have to parse the text format on every launch.
+ *
+ * <p>The compiled file holds the attributes and images of every tile, i.e. what the text parser
+ * produces before references between tiles are resolved. It also records a checksum of the tiles.rc
+ * it was compiled from; {@link Tiles} only uses it if that checksum matches, and otherwise falls
+ * back to parsing tiles.rc.
+ *
+ * <p>Run during the build with the paths of tiles.rc and of the file to write as arguments.
+ */
+public final class TilesCompiler {
+  static final String SOURCE = "/graphics/tiles.rc";
+  static final String COMPILED = "/graphics/tiles.bin";
+
+  private static final int MAGIC = 0x4d54494c; // "MTIL"
+  private static final int VERSION = 1;
+
+  private TilesCompiler() {}
+
+  public static void main(String[] args) throws IOException {
+    if (args.length != 2) {
+      System.err.println("Usage: TilesCompiler <tiles.rc> <tiles.bin>");
+      System.exit(1);
+    }
+
+    byte[] source = Files.readAllBytes(Path.of(args[0]));
+    TileSpec[] tiles = parse(source);
+    try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(Path.of(args[1])))) {
+      write(tiles, checksum(source), out);
+    }
+  }
+
+  /** Parses tiles.rc, given as raw bytes. */
+  static TileSpec[] parse(byte[] source) throws IOException {
+    Properties tilesRc = new Properties();
+    tilesRc.load(new InputStreamReader(new ByteArrayInputStream(source), StandardCharsets.UTF_8));
+    return TileSpec.parseAll(tilesRc);
+  }
+
+  static long checksum(byte[] source) {
+    CRC32 crc = new CRC32();
+    crc.update(source);
+    return crc.getValue();
+  }
+
+  static void write(TileSpec[] tiles, long checksum, OutputStream outStream) throws IOException {
+    DataOutputStream out = new DataOutputStream(outStream);
+    out.writeInt(MAGIC);
+    out.writeShort(VERSION);
+    out.writeLong(checksum);
+    out.writeInt(tiles.length);
+    for (TileSpec ts : tiles) {
+      out.writeBoolean(ts != null);
+      if (ts == null) {
+        continue;
+      }
+      out.writeUTF(ts.getName());
+      Map<String, String> attributes = ts.getAttributes();
+      out.writeShort(attributes.size());
+      for (Entry<String, String> attr : attributes.entrySet()) {
+        out.writeUTF(attr.getKey());
+        out.writeUTF(attr.getValue());
+      }
+      String[] images = ts.getImages();
+      out.writeShort(images.length);
+      for (String image : images) {
+        out.writeUTF(image);
+      }
+    }
+    out.flush();
+  }
+
+  /**
+   * Reads tiles compiled by {@link #write}.
+   *
+   * @return the tiles, or null if the data was compiled from a different tiles.rc or by an
+   *     incompatible version of this class
+   */
+  static TileSpec[] read(InputStream inStream, long checksum) throws IOException {
+    DataInputStream in = new DataInputStream(new BufferedInputStream(inStream));
+    if (in.readInt() != MAGIC || in.readShort() != VERSION || in.readLong() != checksum) {
+      return null;
+    }
+
+    TileSpec[] tiles = new TileSpec[in.readInt()];
+    for (int i = 0; i < tiles.length; i++) {
+      if (!in.readBoolean()) {
+        continue;
+      }
+      String name = in.readUTF();
+      int attributeCount = in.readShort();
+      Map<String, String> attributes = new HashMap<>();
+      for (int j = 0; j < attributeCount; j++) {
+        attributes.put(in.readUTF(), in.readUTF());
+      }
+      int imageCount = in.readShort();
+      List<String> images = new ArrayList<>(imageCount);
+      for (int j = 0; j < imageCount; j++) {
+        images.add(in.readUTF());
+      }
+      tiles[i] = TileSpec.create(i, name, attributes, images);
+    }
+    return tiles;
+  }
+}
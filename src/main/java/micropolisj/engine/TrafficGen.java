@@ -27,14 +27,16 @@ public class TrafficGen {
   private static final int[] DX = {0, 1, 0, -1};
   private static final int[] DY = {-1, 0, 1, 0};
   private final Micropolis city;
+  private final ScanStrip strip;
   private final Stack<CityLocation> positions = new Stack<>();
   private int mapX;
   private int mapY;
   private ZoneType sourceZone;
   private int lastdir;
 
-  public TrafficGen(Micropolis city) {
-    this.city = city;
+  TrafficGen(ScanStrip strip) {
+    this.city = strip.getCity();
+    this.strip = strip;
   }
 
   int makeTraffic() {
@@ -64,7 +66,7 @@ public class TrafficGen {
       // check for road/rail
       int tile = city.getTile(mapX, mapY);
       if (tile >= ROADBASE && tile < POWERBASE) {
-        city.addTraffic(mapX, mapY);
+        strip.addTraffic(mapX, mapY);
       }
     }
   }
@@ -124,7 +126,7 @@ public class TrafficGen {
 
   private boolean tryGo(int z) {
     // random starting direction
-    int rdir = city.getRandom().nextInt(4);
+    int rdir = strip.getRandom().nextInt(4);
 
     for (int d = rdir; d < rdir + 4; d++) {
       int realdir = d % 4;
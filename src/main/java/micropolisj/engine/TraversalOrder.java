@@ -0,0 +1,26 @@
+// This file is part of MicropolisJ.
+// Copyright (C) 2013 Jason Long
+// Portions Copyright (C) 1989-2007 Electronic Arts Inc.
+//
+// MicropolisJ is free software; you can redistribute it and/or modify
+// it under the terms of the GNU GPLv3, with additional terms.
+// See the README file, included in this distribution, for details.
+
+package micropolisj.engine;
+
+/**
+ * Lists the orders in which the map scan can visit the tiles of the map. Since tile behaviors draw
+ * random numbers, the order affects how a city develops; only {@link #CLASSIC} replays a saved city
+ * exactly like earlier versions of the game did.
+ */
+public enum TraversalOrder {
+  /** Column by column, from the top of each column to its bottom. */
+  CLASSIC,
+
+  /**
+   * Block by block, where the blocks are the chunks of the {@link TileGrid}, visited row by row,
+   * and the tiles of each block are visited row by row too. Tiles that are looked at one after
+   * another then lie close to each other in memory, which is faster on large maps.
+   */
+  BLOCKED
+}
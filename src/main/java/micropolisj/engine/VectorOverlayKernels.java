@@ -0,0 +1,179 @@
+// This file is part of MicropolisJ.
+// Copyright (C) 2013 Jason Long
+// Portions Copyright (C) 1989-2007 Electronic Arts Inc.
+//
+// MicropolisJ is free software; you can redistribute it and/or modify
+// it under the terms of the GNU GPLv3, with additional terms.
+// See the README file, included in this distribution, for details.
+
+package micropolisj.engine;
+
+import static jdk.incubator.vector.VectorOperators.ASHR;
+import static jdk.incubator.vector.VectorOperators.EQ;
+import static jdk.incubator.vector.VectorOperators.GT;
+import static jdk.incubator.vector.VectorOperators.LSHR;
+import static jdk.incubator.vector.VectorOperators.LT;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorShuffle;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * The overlay kernels computed with the Vector API, as many cells at a time as the hardware
+ * supports. Only loaded by {@link OverlayKernels#create} when the {@code jdk.incubator.vector}
+ * module is present.
+ *
+ * <p>The smoothing filters read the row above, the row below and the row itself shifted by one cell
+ * to either side, and combine them in one pass. The first and last column, and the columns left
+ * over after the last full vector, use the plain kernels. Divisions are rounded towards zero by
+ * shifts, like the integer divisions of the plain kernels, so the results are identical.
+ */
+final class VectorOverlayKernels extends OverlayKernels {
+  private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+
+  private static final int SMOOTH = 0;
+  private static final int SMOOTH_FIRE_POLICE = 1;
+  private static final int SMOOTH_TERRAIN = 2;
+
+  /** Moves each lane to the lane of the cell of the police station effect map covering it. */
+  private static final VectorShuffle<Integer> POLICE_LANES =
+      VectorShuffle.fromOp(SPECIES, i -> i / 4);
+
+  @Override
+  void smoothRow(int[] up, int[] row, int[] down, int[] out) {
+    filter(up, row, down, out, SMOOTH);
+  }
+
+  @Override
+  void smoothFirePoliceRow(int[] up, int[] row, int[] down, int[] out) {
+    filter(up, row, down, out, SMOOTH_FIRE_POLICE);
+  }
+
+  @Override
+  void smoothTerrainRow(int[] up, int[] row, int[] down, int[] out) {
+    filter(up, row, down, out, SMOOTH_TERRAIN);
+  }
+
+  private static void filter(int[] up, int[] row, int[] down, int[] out, int kernel) {
+    int w = out.length;
+
+    // vectors cover the columns from 1 on, leaving the last column to the plain kernel
+    int end = 1 + SPECIES.loopBound(Math.max(w - 2, 0));
+    for (int x = 1; x < end; x += SPECIES.length()) {
+      IntVector sum =
+          IntVector.fromArray(SPECIES, row, x - 1).add(IntVector.fromArray(SPECIES, row, x + 1));
+      if (up != null) {
+        sum = sum.add(IntVector.fromArray(SPECIES, up, x));
+      }
+      if (down != null) {
+        sum = sum.add(IntVector.fromArray(SPECIES, down, x));
+      }
+      IntVector value = IntVector.fromArray(SPECIES, row, x);
+      IntVector result;
+      switch (kernel) {
+        case SMOOTH:
+          result = quarter(sum.add(value)).min(255);
+          break;
+        case SMOOTH_FIRE_POLICE:
+          result = half(quarter(sum).add(value));
+          break;
+        default:
+          result = quarter(sum).add(half(value));
+          break;
+      }
+      result.intoArray(out, x);
+    }
+
+    if (w > 0) {
+      out[0] = filterCell(row, up, down, 0, kernel);
+    }
+    for (int x = Math.max(end, 1); x < w; x++) {
+      out[x] = filterCell(row, up, down, x, kernel);
+    }
+  }
+
+  private static int filterCell(int[] row, int[] up, int[] down, int x, int kernel) {
+    int sum = 0;
+    if (x > 0) sum += row[x - 1];
+    if (x + 1 < row.length) sum += row[x + 1];
+    if (up != null) sum += up[x];
+    if (down != null) sum += down[x];
+    switch (kernel) {
+      case SMOOTH:
+        return smoothCell(sum, row[x]);
+      case SMOOTH_FIRE_POLICE:
+        return smoothFirePoliceCell(sum, row[x]);
+      default:
+        return smoothTerrainCell(sum, row[x]);
+    }
+  }
+
+  /** Divides by 4, rounding towards zero like {@code /}. */
+  private static IntVector quarter(IntVector v) {
+    return v.add(v.lanewise(ASHR, 31).lanewise(LSHR, 30)).lanewise(ASHR, 2);
+  }
+
+  /** Divides by 2, rounding towards zero like {@code /}. */
+  private static IntVector half(IntVector v) {
+    return v.add(v.lanewise(LSHR, 31)).lanewise(ASHR, 1);
+  }
+
+  @Override
+  void decayTraffic(int[][] grid) {
+    for (int[] row : grid) {
+      int end = SPECIES.loopBound(row.length);
+      for (int x = 0; x < end; x += SPECIES.length()) {
+        IntVector z = IntVector.fromArray(SPECIES, row, x);
+        z.sub(24)
+            .blend(z.sub(34), z.compare(GT, 200))
+            .blend(0, z.compare(LT, 25))
+            .intoArray(row, x);
+      }
+      for (int x = end; x < row.length; x++) {
+        row[x] = decayTraffic(row[x]);
+      }
+    }
+  }
+
+  @Override
+  void decayRateOfGrowth(int[][] grid) {
+    for (int[] row : grid) {
+      int end = SPECIES.loopBound(row.length);
+      for (int x = 0; x < end; x += SPECIES.length()) {
+        IntVector z = IntVector.fromArray(SPECIES, row, x);
+        z.blend(z.sub(1).min(200), z.compare(GT, 0))
+            .blend(z.add(1).max(-200), z.compare(LT, 0))
+            .intoArray(row, x);
+      }
+      for (int x = end; x < row.length; x++) {
+        row[x] = decayRateOfGrowth(row[x]);
+      }
+    }
+  }
+
+  @Override
+  void crime(int[] landValue, int[] popDensity, int[] police, int[] out) {
+    // the vectors start at multiples of the vector length, a power of two, so lane i of the
+    // vector at x is covered by police cell x / 4 + i / 4; those cells are loaded into the low
+    // lanes, then spread out, rather than gathered, which some JIT compilers miscompile
+    int end = SPECIES.loopBound(out.length);
+    for (int x = 0; x < end; x += SPECIES.length()) {
+      IntVector val = IntVector.fromArray(SPECIES, landValue, x);
+      IntVector pol =
+          IntVector.fromArray(SPECIES, police, x / 4, SPECIES.indexInRange(x / 4, police.length))
+              .rearrange(POLICE_LANES);
+      IntVector.broadcast(SPECIES, 128)
+          .sub(val)
+          .add(IntVector.fromArray(SPECIES, popDensity, x))
+          .min(300)
+          .sub(pol)
+          .min(250)
+          .max(0)
+          .blend(0, val.compare(EQ, 0))
+          .intoArray(out, x);
+    }
+    for (int x = end; x < out.length; x++) {
+      out[x] = crime(landValue[x], popDensity[x], police[x / 4]);
+    }
+  }
+}
@@ -0,0 +1,181 @@
+// This file is part of MicropolisJ.
+// Copyright (C) 2013 Jason Long
+// Portions Copyright (C) 1989-2007 Electronic Arts Inc.
+//
+// MicropolisJ is free software; you can redistribute it and/or modify
+// it under the terms of the GNU GPLv3, with additional terms.
+// See the README file, included in this distribution, for details.
+
+package micropolisj.engine;
+
+import static micropolisj.engine.TileConstants.LOMASK;
+import static micropolisj.engine.TileConstants.NUCLEAR;
+import static micropolisj.engine.TileConstants.POWERPLANT;
+import static micropolisj.engine.TileConstants.PWRBIT;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.TreeMap;
+
+/**
+ * Keeps a record of every zone center on a map, so that the simulation can visit the zones of the
+ * city without scanning the whole map for them.
+ *
+ * <p>The registry is maintained by {@link TileGrid}, which reports every write that puts a zone
+ * center on a tile or removes one from it. This covers zones built by the map scanner or the tools,
+ * zones destroyed by the bulldozer, fire or disasters, and loading a city.
+ */
+final class ZoneRegistry {
+
+  /**
+   * Record of one zone center. Everything but the location is derived from the current value of the
+   * center tile, so a record never gets out of date while it is registered.
+   */
+  static final class Zone {
+    private final int x;
+    private final int y;
+    private char value;
+
+    private Zone(int x, int y, char value) {
+      this.x = x;
+      this.y = y;
+      this.value = value;
+    }
+
+    int getX() {
+      return x;
+    }
+
+    int getY() {
+      return y;
+    }
+
+    /** Returns the tile number of the zone center, without status bits. */
+    char getTile() {
+      return (char) (value & LOMASK);
+    }
+
+    /**
+     * Returns the type of the zone, or null for a zone that is neither residential, commercial nor
+     * industrial (e.g. a power plant or a stadium).
+     */
+    ZoneType getType() {
+      if (TileProperties.is(value, TileProperties.RESIDENTIAL_ZONE)) {
+        return ZoneType.RESIDENTIAL;
+      } else if (TileProperties.is(value, TileProperties.COMMERCIAL_ZONE)) {
+        return ZoneType.COMMERCIAL;
+      } else if (TileProperties.is(value, TileProperties.INDUSTRIAL_ZONE)) {
+        return ZoneType.INDUSTRIAL;
+      } else {
+        return null;
+      }
+    }
+
+    /** Returns the size of the building making up the zone. */
+    CityDimension getSize() {
+      return TileProperties.getBuildingSize(value);
+    }
+
+    boolean isPowered() {
+      return (value & PWRBIT) != 0;
+    }
+
+    /**
+     * Returns the population of the zone as given by its center tile. An empty residential zone
+     * counts as zero; the houses built on it are separate tiles.
+     */
+    int getPopulation() {
+      return TileProperties.getPopulation(value);
+    }
+
+    boolean isPowerPlant() {
+      int tile = value & LOMASK;
+      return tile == POWERPLANT || tile == NUCLEAR;
+    }
+  }
+
+  private final int width;
+  private final int height;
+
+  /** The zones, keyed by location column by column, the order in which the map is scanned. */
+  private final TreeMap<Integer, Zone> zones = new TreeMap<>();
+
+  /** The power plants, keyed by location row by row. */
+  private final TreeMap<Integer, Zone> powerPlants = new TreeMap<>();
+
+  ZoneRegistry(int width, int height) {
+    this.width = width;
+    this.height = height;
+  }
+
+  /** Returns the number of zones on the map. */
+  int size() {
+    return zones.size();
+  }
+
+  /** Returns the zone centered at the given location, or null. */
+  Zone get(int x, int y) {
+    return zones.get(x * height + y);
+  }
+
+  /** Returns all zones, column by column from the west, and north to south within a column. */
+  Collection<Zone> getZones() {
+    return Collections.unmodifiableCollection(zones.values());
+  }
+
+  /**
+   * Returns the zones from the given location on, in the order of {@link #getZones}, whether or not
+   * there is a zone at that location.
+   */
+  Collection<Zone> getZonesFrom(int x, int y) {
+    return Collections.unmodifiableCollection(zones.tailMap(x * height + y, true).values());
+  }
+
+  /**
+   * Returns the coal and nuclear power plants, row by row from the north, and west to east within a
+   * row.
+   */
+  Collection<Zone> getPowerPlants() {
+    return Collections.unmodifiableCollection(powerPlants.values());
+  }
+
+  /** Updates the registry for a tile that changed from one raw value to another. */
+  void tileChanged(int x, int y, char oldValue, char newValue) {
+    boolean wasZone = TileProperties.is(oldValue, TileProperties.ZONE_CENTER);
+    boolean isZone = TileProperties.is(newValue, TileProperties.ZONE_CENTER);
+    if (!wasZone && !isZone) {
+      return;
+    }
+
+    Zone zone;
+    if (wasZone && isZone) {
+      zone = zones.get(x * height + y);
+      zone.value = newValue;
+    } else if (isZone) {
+      zone = new Zone(x, y, newValue);
+      zones.put(x * height + y, zone);
+    } else {
+      zone = zones.remove(x * height + y);
+    }
+
+    if (isZone && zone.isPowerPlant()) {
+      powerPlants.put(y * width + x, zone);
+    } else {
+      powerPlants.remove(y * width + x);
+    }
+  }
+
+  /** Updates the registry for a map whose tiles were all set to the given raw value. */
+  void filled(char value) {
+    zones.clear();
+    powerPlants.clear();
+    if (!TileProperties.is(value, TileProperties.ZONE_CENTER)) {
+      return;
+    }
+    for (int x = 0; x < width; x++) {
+      for (int y = 0; y < height; y++) {
+        tileChanged(x, y, (char) 0, value);
+      }
+    }
+  }
+}
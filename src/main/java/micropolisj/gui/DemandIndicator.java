@@ -38,6 +38,12 @@ public class DemandIndicator extends JComponent implements CityListener {
   private static final int BAR_WIDTH = 6;
   private Micropolis engine;
 
+  // the valves of the engine as of its last change of demand, since the engine may be simulated
+  // on another thread while the indicator is painted
+  private int resValve;
+  private int comValve;
+  private int indValve;
+
   private static BufferedImage loadImage() {
     URL iconUrl = MicropolisDrawingArea.class.getResource("/demandg.png");
     Image refImage = new ImageIcon(iconUrl).getImage();
@@ -60,6 +66,7 @@ public class DemandIndicator extends JComponent implements CityListener {
 
     if (engine != null) { // new engine
       engine.addListener(this);
+      copyValves();
     }
     repaint();
   }
@@ -86,7 +93,6 @@ public class DemandIndicator extends JComponent implements CityListener {
 
     if (engine == null) return;
 
-    int resValve = engine.getResValve();
     int ry0 = resValve <= 0 ? LOWER_EDGE : UPPER_EDGE;
     int ry1 = ry0 - resValve / 100;
 
@@ -97,11 +103,9 @@ public class DemandIndicator extends JComponent implements CityListener {
       ry1 = ry0 - MAX_LENGTH;
     }
 
-    int comValve = engine.getComValve();
     int cy0 = comValve <= 0 ? LOWER_EDGE : UPPER_EDGE;
     int cy1 = cy0 - comValve / 100;
 
-    int indValve = engine.getIndValve();
     int iy0 = indValve <= 0 ? LOWER_EDGE : UPPER_EDGE;
     int iy1 = iy0 - indValve / 100;
 
@@ -132,9 +136,16 @@ public class DemandIndicator extends JComponent implements CityListener {
 
   @Override
   public void demandChanged() {
+    copyValves();
     repaint();
   }
 
+  private void copyValves() {
+    resValve = engine.getResValve();
+    comValve = engine.getComValve();
+    indValve = engine.getIndValve();
+  }
+
   @Override
   public void cityMessage(MicropolisMessage message, CityLocation loc) {}
 
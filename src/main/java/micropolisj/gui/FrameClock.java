@@ -0,0 +1,79 @@
+// This file is part of MicropolisJ.
+// Copyright (C) 2013 Jason Long
+// Portions Copyright (C) 1989-2007 Electronic Arts Inc.
+//
+// MicropolisJ is free software; you can redistribute it and/or modify
+// it under the terms of the GNU GPLv3, with additional terms.
+// See the README file, included in this distribution, for details.
+
+package micropolisj.gui;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+import javax.swing.SwingUtilities;
+
+/**
+ * Runs a task on the event dispatch thread at a fixed rate, such as refreshing the screen, however
+ * fast the simulation goes.
+ *
+ * <p>Ticks are timed with {@link System#nanoTime} on a fixed timestep, so a late tick does not push
+ * back the ones after it. A tick is dropped if the task of the one before has not run yet, and the
+ * clock does not try to catch up after falling behind, so a busy event dispatch thread is never
+ * flooded.
+ */
+final class FrameClock {
+  private final long period;
+  private final Runnable task;
+  private final AtomicBoolean pending = new AtomicBoolean();
+  private volatile Thread thread;
+
+  FrameClock(int framesPerSecond, Runnable task) {
+    this.period = TimeUnit.SECONDS.toNanos(1) / framesPerSecond;
+    this.task = task;
+  }
+
+  void start() {
+    assert thread == null;
+    Thread t = new Thread(this::run, "Frame clock");
+    t.setDaemon(true);
+    thread = t;
+    t.start();
+  }
+
+  /** Stops the clock; the task does not run anymore once this returns, on the dispatch thread. */
+  void stop() {
+    Thread t = thread;
+    thread = null;
+    if (t != null) {
+      LockSupport.unpark(t);
+    }
+  }
+
+  private void run() {
+    Thread self = Thread.currentThread();
+    long next = System.nanoTime();
+    while (thread == self) {
+      next += period;
+      long wait = next - System.nanoTime();
+      if (wait < -period) {
+        // fell behind; start over from now
+        next -= wait;
+      }
+      while (wait > 0 && thread == self) {
+        LockSupport.parkNanos(wait);
+        wait = next - System.nanoTime();
+      }
+      if (pending.compareAndSet(false, true)) {
+        SwingUtilities.invokeLater(this::tick);
+      }
+    }
+  }
+
+  private void tick() {
+    pending.set(false);
+    if (thread != null) {
+      task.run();
+    }
+  }
+}
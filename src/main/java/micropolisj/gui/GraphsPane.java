@@ -52,12 +52,18 @@ public class GraphsPane extends JPanel implements CityListener {
   private final Map<GraphData, JToggleButton> dataBtns = new EnumMap<>(GraphData.class);
   private Micropolis engine;
 
+  // a copy of the history of the engine, taken when its census changes, since the engine may be
+  // simulated on another thread while the graphs are painted
+  private final int[][] historyValues = new int[GraphData.values().length][240];
+  private int historyTime;
+
   public GraphsPane(Micropolis engine) {
     super(new BorderLayout());
 
     assert engine != null;
     this.engine = engine;
     engine.addListener(this);
+    copyHistory();
 
     JButton dismissBtn = new JButton(strings.getString("dismiss_graph"));
     dismissBtn.addActionListener(evt -> onDismissClicked());
@@ -123,6 +129,7 @@ public class GraphsPane extends JPanel implements CityListener {
     engine = newEngine;
     if (engine != null) { // new engine
       engine.addListener(this);
+      copyHistory();
       graphArea.repaint();
     }
   }
@@ -145,9 +152,37 @@ public class GraphsPane extends JPanel implements CityListener {
 
   @Override
   public void censusChanged() {
+    copyHistory();
     graphArea.repaint();
   }
 
+  private void copyHistory() {
+    for (GraphData gd : GraphData.values()) {
+      int[] values = getEngineHistory(gd);
+      System.arraycopy(values, 0, historyValues[gd.ordinal()], 0, values.length);
+    }
+    historyTime = engine.getHistory().getCityTime();
+  }
+
+  private int[] getEngineHistory(GraphData graph) {
+    switch (graph) {
+      case RESPOP:
+        return engine.getHistory().getRes();
+      case COMPOP:
+        return engine.getHistory().getCom();
+      case INDPOP:
+        return engine.getHistory().getInd();
+      case MONEY:
+        return engine.getHistory().getMoney();
+      case CRIME:
+        return engine.getHistory().getCrime();
+      case POLLUTION:
+        return engine.getHistory().getPollution();
+      default:
+        throw new Error("unexpected");
+    }
+  }
+
   private JToggleButton makeDataBtn(GraphData graph) {
     String icon1name = strings.getString("graph_button." + graph.name());
     String icon2name = strings.getString("graph_button." + graph.name() + ".selected");
@@ -234,7 +269,7 @@ public class GraphsPane extends JPanel implements CityListener {
       boolean isOneTwenty = onetwentyYearsBtn.isSelected();
       int unitPeriod = isOneTwenty ? 12 * Micropolis.CENSUSRATE : Micropolis.CENSUSRATE;
       int hashPeriod = isOneTwenty ? 10 * unitPeriod : 12 * unitPeriod;
-      int startTime = (engine.getHistory().getCityTime() / unitPeriod - 119) * unitPeriod;
+      int startTime = (historyTime / unitPeriod - 119) * unitPeriod;
 
       double xInterval = (rightEdge - leftEdge) / 120.0;
       for (int i = 0; i < 120; i++) {
@@ -321,22 +356,7 @@ public class GraphsPane extends JPanel implements CityListener {
 
     private int getHistoryValue(GraphData graph, int pos) {
       assert pos >= 0 && pos < 240;
-      switch (graph) {
-        case RESPOP:
-          return engine.getHistory().getRes()[pos];
-        case COMPOP:
-          return engine.getHistory().getCom()[pos];
-        case INDPOP:
-          return engine.getHistory().getInd()[pos];
-        case MONEY:
-          return engine.getHistory().getMoney()[pos];
-        case CRIME:
-          return engine.getHistory().getCrime()[pos];
-        case POLLUTION:
-          return engine.getHistory().getPollution()[pos];
-        default:
-          throw new Error("unexpected");
-      }
+      return historyValues[graph.ordinal()][pos];
     }
   }
 }
@@ -66,14 +66,17 @@ import javax.swing.JToolBar;
 import javax.swing.KeyStroke;
 import javax.swing.ScrollPaneConstants;
 import javax.swing.SwingConstants;
+import javax.swing.SwingUtilities;
 import javax.swing.Timer;
 import javax.swing.WindowConstants;
 import javax.swing.filechooser.FileNameExtensionFilter;
+import micropolisj.engine.CityFrame;
 import micropolisj.engine.CityListener;
 import micropolisj.engine.CityLocation;
 import micropolisj.engine.CityRect;
 import micropolisj.engine.Disaster;
 import micropolisj.engine.EarthquakeListener;
+import micropolisj.engine.FrameBuffer;
 import micropolisj.engine.GameLevel;
 import micropolisj.engine.MapState;
 import micropolisj.engine.Micropolis;
@@ -81,6 +84,7 @@ import micropolisj.engine.MicropolisMessage;
 import micropolisj.engine.MicropolisTool;
 import micropolisj.engine.Sound;
 import micropolisj.engine.Speed;
+import micropolisj.engine.ToolPreview;
 import micropolisj.engine.ToolResult;
 import micropolisj.engine.ToolStroke;
 import micropolisj.engine.ZoneStatus;
@@ -92,6 +96,12 @@ public class MainWindow extends JFrame implements CityListener, EarthquakeListen
   private static final String PRODUCT_NAME = strings.getString("PRODUCT");
   private static final String SOUNDS_PREF = "enable_sounds";
 
+  /** How many times per second the latest frame published by the simulation is shown. */
+  private static final int FRAME_RATE = 30;
+
+  /** How often, in nanoseconds, the rate of the simulation shown is updated. */
+  private static final long SIM_RATE_INTERVAL = 1_000_000_000L;
+
   static {
     appIcon = new ImageIcon(MainWindow.class.getResource("/micropolism.png"));
   }
@@ -111,6 +121,7 @@ public class MainWindow extends JFrame implements CityListener, EarthquakeListen
   private JLabel dateLbl;
   private JLabel fundsLbl;
   private JLabel popLbl;
+  private JLabel simRateLbl;
   private JLabel currentToolLbl;
   private JLabel currentToolCostLbl;
   private Map<MicropolisTool, JToggleButton> toolButtons;
@@ -131,7 +142,14 @@ public class MainWindow extends JFrame implements CityListener, EarthquakeListen
   // where the tool was last applied during the current drag
   private int lastX;
   private int lastY;
-  private Timer simTimer;
+  private final SimulationThread simulation;
+  private FrameBuffer frames;
+  private final FrameClock frameClock;
+  private int shownFrameVersion;
+  private int shownCityTime;
+  private int framesSinceMinimap;
+  private long simRateStart;
+  private int simRateCityTime;
   private Timer shakeTimer;
   private EarthquakeStepper currentEarthquake;
 
@@ -143,11 +161,13 @@ public class MainWindow extends JFrame implements CityListener, EarthquakeListen
     setIconImage(appIcon.getImage());
 
     this.engine = engine;
+    simulation = new SimulationThread(this::showAutoBudget, this::showErrorMessage);
+    frameClock = new FrameClock(FRAME_RATE, this::showLatestFrame);
 
     JPanel mainArea = new JPanel(new BorderLayout());
     add(mainArea, BorderLayout.CENTER);
 
-    drawingArea = new MicropolisDrawingArea(engine);
+    drawingArea = new MicropolisDrawingArea();
     drawingAreaScroll = new JScrollPane(drawingArea);
     mainArea.add(drawingAreaScroll);
 
@@ -231,7 +251,7 @@ public class MainWindow extends JFrame implements CityListener, EarthquakeListen
     mapLegendLbl = new JLabel();
     mapMenu.add(mapLegendLbl);
 
-    mapView = new OverlayMapView(engine);
+    mapView = new OverlayMapView();
     mapView.connectView(drawingArea, drawingAreaScroll);
     mapViewContainer.add(mapView, BorderLayout.CENTER);
 
@@ -253,7 +273,7 @@ public class MainWindow extends JFrame implements CityListener, EarthquakeListen
 
     constraints.gridy = 3;
     constraints.weighty = 0.0;
-    notificationPane = new NotificationPane(engine);
+    notificationPane = new NotificationPane();
     leftPane.add(notificationPane, constraints);
 
     pack();
@@ -284,11 +304,12 @@ public class MainWindow extends JFrame implements CityListener, EarthquakeListen
     doSounds = prefs.getBoolean(SOUNDS_PREF, true);
 
     // start things up
-    mapView.setEngine(engine);
     engine.addListener(this);
     engine.addEarthquakeListener(this);
+    useFrameBuffer();
     reloadFunds();
     reloadOptions();
+    frameClock.start();
     startTimer();
     makeClean();
   }
@@ -323,9 +344,17 @@ public class MainWindow extends JFrame implements CityListener, EarthquakeListen
   }
 
   public void setEngine(Micropolis newEngine) {
+    // the simulation must let go of the old engine first
+    boolean timerEnabled = isTimerActive();
+    if (timerEnabled) {
+      stopTimer();
+    }
+    stopEarthquake();
+
     if (engine != null) { // old engine
       engine.removeListener(this);
       engine.removeEarthquakeListener(this);
+      frames.close();
     }
 
     engine = newEngine;
@@ -335,14 +364,7 @@ public class MainWindow extends JFrame implements CityListener, EarthquakeListen
       engine.addEarthquakeListener(this);
     }
 
-    boolean timerEnabled = isTimerActive();
-    if (timerEnabled) {
-      stopTimer();
-    }
-    stopEarthquake();
-
-    drawingArea.setEngine(engine);
-    mapView.setEngine(engine); // must change mapView after drawingArea
+    useFrameBuffer();
     evaluationPane.setEngine(engine);
     demandInd.setEngine(engine);
     graphsPane.setEngine(engine);
@@ -437,6 +459,12 @@ public class MainWindow extends JFrame implements CityListener, EarthquakeListen
     popLbl = new JLabel();
     pane.add(popLbl, c1);
 
+    c0.gridy = c1.gridy = 3;
+
+    pane.add(new JLabel(strings.getString("main.sim_rate_label")), c0);
+    simRateLbl = new JLabel();
+    pane.add(simRateLbl, c1);
+
     return pane;
   }
 
@@ -562,6 +590,12 @@ public class MainWindow extends JFrame implements CityListener, EarthquakeListen
     menuBar.add(priorityMenu);
 
     priorityMenuItems = new EnumMap<>(Speed.class);
+    menuItem = new JRadioButtonMenuItem(strings.getString("menu.speed.MAX"));
+    setupKeys(menuItem, "menu.speed.MAX");
+    menuItem.addActionListener(wrapActionListener(ev -> onPriorityClicked(Speed.MAX)));
+    priorityMenu.add(menuItem);
+    priorityMenuItems.put(Speed.MAX, menuItem);
+
     menuItem = new JRadioButtonMenuItem(strings.getString("menu.speed.SUPER_FAST"));
     setupKeys(menuItem, "menu.speed.SUPER_FAST");
     menuItem.addActionListener(wrapActionListener(ev -> onPriorityClicked(Speed.SUPER_FAST)));
@@ -625,24 +659,27 @@ public class MainWindow extends JFrame implements CityListener, EarthquakeListen
 
   private void onAutoBudgetClicked() {
     dirty1 = true;
-    engine.toggleAutoBudget();
+    Micropolis engine = this.engine;
+    simulation.submit(engine::toggleAutoBudget);
   }
 
   private void onAutoBulldozeClicked() {
     dirty1 = true;
-    engine.toggleAutoBulldoze();
+    Micropolis engine = this.engine;
+    simulation.submit(engine::toggleAutoBulldoze);
   }
 
   private void onDisastersClicked() {
     dirty1 = true;
-    engine.toggleDisasters();
+    Micropolis engine = this.engine;
+    simulation.submit(engine::toggleDisasters);
   }
 
   private void onSoundClicked() {
     doSounds = !doSounds;
     Preferences prefs = Preferences.userNodeForPackage(MainWindow.class);
     prefs.putBoolean(SOUNDS_PREF, doSounds);
-    reloadOptions();
+    soundsMenuItem.setSelected(doSounds);
   }
 
   void makeClean() {
@@ -665,6 +702,11 @@ public class MainWindow extends JFrame implements CityListener, EarthquakeListen
       return onSaveCityAsClicked();
     }
 
+    // the simulation is stopped, so that the city is saved as it was at a single moment
+    boolean timerEnabled = isTimerActive();
+    if (timerEnabled) {
+      stopTimer();
+    }
     try {
       engine.save(currentFile);
       makeClean();
@@ -674,6 +716,10 @@ public class MainWindow extends JFrame implements CityListener, EarthquakeListen
       JOptionPane.showMessageDialog(
           this, e, strings.getString("main.error_caption"), JOptionPane.ERROR_MESSAGE);
       return false;
+    } finally {
+      if (timerEnabled) {
+        startTimer();
+      }
     }
   }
 
@@ -925,17 +971,70 @@ public class MainWindow extends JFrame implements CityListener, EarthquakeListen
     doZoom(dir, new Point(rect.x + rect.width / 2, rect.y + rect.height / 2));
   }
 
-  private void updateDateLabel() {
-    dateLbl.setText(formatGameDate(engine.getCityTime()));
+  /**
+   * Gives the simulation a new buffer to publish frames of the engine to, and shows the engine as
+   * it is now. Only while the simulation is stopped.
+   */
+  private void useFrameBuffer() {
+    frames = new FrameBuffer(engine);
+    engine.calculateCenterMass();
+    simulation.setEngine(engine, frames);
+    frames.publish();
+    shownFrameVersion = 0;
+    shownCityTime = engine.getCityTime();
+    simRateStart = System.nanoTime();
+    simRateCityTime = shownCityTime;
+    simRateLbl.setText(formatSimRate(0));
+    showLatestFrame();
+  }
+
+  /** Shows the latest frame published, if it was not shown yet. */
+  private void showLatestFrame() {
+    CityFrame frame = frames.acquire();
+    updateSimRate(frame);
+    if (frame.getVersion() == shownFrameVersion) return;
+    shownFrameVersion = frame.getVersion();
+
+    drawingArea.setFrame(frame);
+    // below full detail, the minimap is refreshed less often
+    framesSinceMinimap++;
+    boolean refreshMinimap = framesSinceMinimap >= frame.getDetailLevel().refreshInterval;
+    if (refreshMinimap) {
+      framesSinceMinimap = 0;
+    }
+    mapView.setFrame(frame, refreshMinimap);
+    notificationPane.setFrame(frame);
+    if (frame.getCityTime() != shownCityTime) {
+      shownCityTime = frame.getCityTime();
+      dirty2 = true;
+    }
+    updateDateLabel(frame);
+  }
+
+  /** Shows how many months the simulation went through per second, lately. */
+  private void updateSimRate(CityFrame frame) {
+    long now = System.nanoTime();
+    if (now - simRateStart < SIM_RATE_INTERVAL) return;
+
+    // there are four ticks of city time in a month
+    double months = (frame.getCityTime() - simRateCityTime) / 4.0;
+    simRateLbl.setText(formatSimRate(months * SIM_RATE_INTERVAL / (now - simRateStart)));
+    simRateStart = now;
+    simRateCityTime = frame.getCityTime();
+  }
+
+  static String formatSimRate(double monthsPerSecond) {
+    return MessageFormat.format(strings.getString("sim_rate"), monthsPerSecond);
+  }
+
+  private void updateDateLabel(CityFrame frame) {
+    dateLbl.setText(formatGameDate(frame.getCityTime()));
 
     NumberFormat nf = NumberFormat.getInstance();
-    popLbl.setText(nf.format(engine.getCityPopulation()));
+    popLbl.setText(nf.format(frame.getCityPopulation()));
   }
 
   private void startTimer() {
-    Micropolis engine = this.engine;
-    int count = engine.getSimSpeed().simStepsPerUpdate;
-
     assert !isTimerActive();
 
     if (engine.getSimSpeed() == Speed.PAUSED) return;
@@ -957,22 +1056,7 @@ public class MainWindow extends JFrame implements CityListener, EarthquakeListen
       return;
     }
 
-    ActionListener taskPerformer =
-        evt -> {
-          for (int i = 0; i < count; i++) {
-            engine.animate();
-            if (!engine.isAutoBudget() && engine.isBudgetTime()) {
-              showAutoBudget();
-              return;
-            }
-          }
-          updateDateLabel();
-          dirty2 = true;
-        };
-    taskPerformer = wrapActionListener(taskPerformer);
-
-    simTimer = new Timer(engine.getSimSpeed().animationDelay, taskPerformer);
-    simTimer.start();
+    simulation.start();
   }
 
   private ActionListener wrapActionListener(ActionListener actionListener) {
@@ -1049,10 +1133,7 @@ public class MainWindow extends JFrame implements CityListener, EarthquakeListen
   private void stopTimer() {
     assert isTimerActive();
 
-    if (simTimer != null) {
-      simTimer.stop();
-      simTimer = null;
-    }
+    simulation.stop();
     if (shakeTimer != null) {
       shakeTimer.stop();
       shakeTimer = null;
@@ -1060,11 +1141,12 @@ public class MainWindow extends JFrame implements CityListener, EarthquakeListen
   }
 
   private boolean isTimerActive() {
-    return simTimer != null || shakeTimer != null;
+    return simulation.isStarted() || shakeTimer != null;
   }
 
   private void onDifficultyClicked(int newDifficulty) {
-    engine.setGameLevel(newDifficulty);
+    Micropolis engine = this.engine;
+    simulation.submit(() -> engine.setGameLevel(newDifficulty));
   }
 
   private void onPriorityClicked(Speed newSpeed) {
@@ -1078,6 +1160,11 @@ public class MainWindow extends JFrame implements CityListener, EarthquakeListen
 
   private void onInvokeDisasterClicked(Disaster disaster) {
     dirty1 = true;
+    Micropolis engine = this.engine;
+    simulation.submit(() -> invokeDisaster(engine, disaster));
+  }
+
+  private void invokeDisaster(Micropolis engine, Disaster disaster) {
     switch (disaster) {
       case FIRE:
         engine.makeFire();
@@ -1090,7 +1177,8 @@ public class MainWindow extends JFrame implements CityListener, EarthquakeListen
         break;
       case MELTDOWN:
         if (!engine.makeMeltdown()) {
-          messagesPane.appendCityMessage(MicropolisMessage.NO_NUCLEAR_PLANTS);
+          SwingUtilities.invokeLater(
+              () -> messagesPane.appendCityMessage(MicropolisMessage.NO_NUCLEAR_PLANTS));
         }
         break;
       case TORNADO:
@@ -1113,7 +1201,7 @@ public class MainWindow extends JFrame implements CityListener, EarthquakeListen
     messagesPane.appendCityMessage(message);
 
     if (message.isUseNotificationPane() && loc != null) {
-      notificationPane.showMessage(engine, message, loc.getX(), loc.getY());
+      notificationPane.showMessage(message, loc.getX(), loc.getY());
     }
   }
 
@@ -1306,18 +1394,46 @@ public class MainWindow extends JFrame implements CityListener, EarthquakeListen
     }
 
     private void doQueryTool(int xpos, int ypos) {
-      if (!engine.testBounds(xpos, ypos)) return;
+      Micropolis engine = MainWindow.this.engine;
+      simulation.submit(
+          () -> {
+            if (!engine.testBounds(xpos, ypos)) return;
 
-      ZoneStatus z = engine.queryZoneStatus(xpos, ypos);
-      notificationPane.showZoneStatus(engine, xpos, ypos, z);
+            ZoneStatus z = engine.queryZoneStatus(xpos, ypos);
+            SwingUtilities.invokeLater(() -> notificationPane.showZoneStatus(xpos, ypos, z));
+          });
     }
 
+    /**
+     * Shows where the current stroke goes right away, and what it would build once the simulation
+     * worked it out. The preview is worked out on a stroke of its own, since the current stroke
+     * keeps changing on this thread.
+     */
     private void previewTool() {
       assert toolStroke != null;
       assert currentTool != null;
 
       drawingArea.setToolCursor(toolStroke.getBounds(), currentTool);
-      drawingArea.setToolPreview(toolStroke.getPreview());
+
+      ToolStroke stroke = toolStroke;
+      Micropolis engine = MainWindow.this.engine;
+      MicropolisTool tool = currentTool;
+      int xpos = stroke.getXpos();
+      int ypos = stroke.getYpos();
+      int xdest = stroke.getXdest();
+      int ydest = stroke.getYdest();
+      simulation.submit(
+          () -> {
+            ToolStroke copy = tool.beginStroke(engine, xpos, ypos);
+            copy.dragTo(xdest, ydest);
+            ToolPreview preview = copy.getPreview();
+            SwingUtilities.invokeLater(
+                () -> {
+                  if (toolStroke == stroke) {
+                    drawingArea.setToolPreview(preview);
+                  }
+                });
+          });
     }
 
     private void onToolDown(MouseEvent ev) {
@@ -1389,10 +1505,10 @@ public class MainWindow extends JFrame implements CityListener, EarthquakeListen
       drawingArea.setToolCursor(null);
     }
 
-    private void showToolResult(CityLocation loc, ToolResult result) {
+    private void showToolResult(MicropolisTool tool, CityLocation loc, ToolResult result) {
       switch (result) {
         case SUCCESS:
-          citySound(currentTool == MicropolisTool.BULLDOZER ? Sound.BULLDOZE : Sound.BUILD, loc);
+          citySound(tool == MicropolisTool.BULLDOZER ? Sound.BULLDOZE : Sound.BUILD, loc);
           dirty1 = true;
           break;
 
@@ -1426,9 +1542,14 @@ public class MainWindow extends JFrame implements CityListener, EarthquakeListen
       if (toolStroke != null) {
         drawingArea.setToolPreview(null);
 
-        CityLocation loc = toolStroke.getLocation();
-        ToolResult tr = toolStroke.apply();
-        showToolResult(loc, tr);
+        ToolStroke stroke = toolStroke;
+        MicropolisTool tool = currentTool;
+        CityLocation loc = stroke.getLocation();
+        simulation.submit(
+            () -> {
+              ToolResult tr = stroke.apply();
+              SwingUtilities.invokeLater(() -> showToolResult(tool, loc, tr));
+            });
         toolStroke = null;
       }
 
@@ -1500,6 +1621,8 @@ public class MainWindow extends JFrame implements CityListener, EarthquakeListen
       if (isTimerActive()) {
         stopTimer();
       }
+      frameClock.stop();
+      frames.close();
     }
   }
 }
@@ -10,6 +10,8 @@ package micropolisj.gui;
 
 import static micropolisj.engine.TileConstants.CLEAR;
 import static micropolisj.engine.TileConstants.LIGHTNINGBOLT;
+import static micropolisj.engine.TileConstants.LOMASK;
+import static micropolisj.engine.TileConstants.PWRBIT;
 import static micropolisj.engine.TileConstants.isZoneCenter;
 import static micropolisj.gui.ColorParser.parseColor;
 
@@ -23,8 +25,10 @@ import java.awt.event.ActionListener;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseMotionAdapter;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.List;
 import java.util.ResourceBundle;
 import javax.swing.JComponent;
 import javax.swing.JScrollPane;
@@ -33,21 +37,23 @@ import javax.swing.SwingConstants;
 import javax.swing.Timer;
 import javax.swing.event.AncestorEvent;
 import javax.swing.event.AncestorListener;
+import micropolisj.engine.CityFrame;
 import micropolisj.engine.CityLocation;
 import micropolisj.engine.CityRect;
-import micropolisj.engine.MapListener;
-import micropolisj.engine.Micropolis;
 import micropolisj.engine.MicropolisTool;
-import micropolisj.engine.Sprite;
 import micropolisj.engine.ToolPreview;
 
-public class MicropolisDrawingArea extends JComponent implements Scrollable, MapListener {
+/**
+ * The main view of the city map. It draws the latest {@link CityFrame} it was given, and repaints
+ * whatever changed when given the next one.
+ */
+public class MicropolisDrawingArea extends JComponent implements Scrollable {
   static final int SHAKE_STEPS = 40;
   private static final Dimension PREFERRED_VIEWPORT_SIZE = new Dimension(640, 640);
   private static final ResourceBundle strings = MainWindow.strings;
   private static final int DEFAULT_TILE_SIZE = 16;
   private final Collection<Point> unpoweredZones = new HashSet<>();
-  private Micropolis m;
+  private CityFrame frame = new CityFrame();
   private boolean blink;
   private Timer blinkTimer;
   private ToolCursor toolCursor;
@@ -60,10 +66,18 @@ public class MicropolisDrawingArea extends JComponent implements Scrollable, Map
   private int dragY;
   private boolean dragging;
 
-  public MicropolisDrawingArea(Micropolis engine) {
-    m = engine;
+  /**
+   * The map of the frame drawn, the version of each of its chunks of tiles, and the bounds of its
+   * sprites. Kept here since a frame replaced may be reused by the simulation right away.
+   */
+  private long mapId;
+
+  private int[] chunkVersions = new int[0];
+
+  private final List<Rectangle> spriteBounds = new ArrayList<>();
+
+  public MicropolisDrawingArea() {
     selectTileSize(DEFAULT_TILE_SIZE);
-    m.addMapListener(this);
 
     addAncestorListener(
         new AncestorListener() {
@@ -166,29 +180,54 @@ public class MicropolisDrawingArea extends JComponent implements Scrollable, Map
 
   @Override
   public Dimension getPreferredSize() {
-    assert m != null;
-
-    return new Dimension(tileWidth * m.getWidth(), tileHeight * m.getHeight());
+    return new Dimension(tileWidth * frame.getWidth(), tileHeight * frame.getHeight());
   }
 
-  public void setEngine(Micropolis newEngine) {
-    assert newEngine != null;
-
-    if (m != null) { // old engine
-      m.removeMapListener(this);
+  /**
+   * Draws the given frame from now on, which must stay unchanged until the next call, and repaints
+   * what changed since the frame drawn before.
+   */
+  public void setFrame(CityFrame newFrame) {
+    frame = newFrame;
+    int chunkSize = CityFrame.getChunkSize();
+    int chunksX = (frame.getWidth() + chunkSize - 1) / chunkSize;
+    int chunksY = (frame.getHeight() + chunkSize - 1) / chunkSize;
+    boolean all = frame.getMapId() != mapId || chunkVersions.length != chunksX * chunksY;
+    if (all) {
+      mapId = frame.getMapId();
+      chunkVersions = new int[chunksX * chunksY];
+      // size may have changed
+      revalidate();
+      repaint();
+    }
+    for (int cy = 0; cy < chunksY; cy++) {
+      for (int cx = 0; cx < chunksX; cx++) {
+        int version = frame.getChunkVersion(cx, cy);
+        if (chunkVersions[cy * chunksX + cx] != version) {
+          chunkVersions[cy * chunksX + cx] = version;
+          if (!all) {
+            repaint(
+                cx * chunkSize * tileWidth,
+                cy * chunkSize * tileHeight,
+                chunkSize * tileWidth,
+                chunkSize * tileHeight);
+          }
+        }
+      }
     }
-    m = newEngine;
-    // new engine
-    m.addMapListener(this);
 
-    // size may have changed
-    invalidate();
-    repaint();
+    for (Rectangle r : spriteBounds) {
+      repaint(r);
+    }
+    spriteBounds.clear();
+    for (CityFrame.SpriteState sprite : frame.getSprites()) {
+      Rectangle r = getSpriteBounds(sprite);
+      spriteBounds.add(r);
+      repaint(r);
+    }
   }
 
-  private void drawSprite(Graphics gr, Sprite sprite) {
-    assert sprite.isVisible();
-
+  private void drawSprite(Graphics gr, CityFrame.SpriteState sprite) {
     Point p =
         new Point(
             (sprite.getX() + sprite.getOffx()) * tileWidth / 16,
@@ -207,8 +246,8 @@ public class MicropolisDrawingArea extends JComponent implements Scrollable, Map
 
   @Override
   public void paintComponent(Graphics g) {
-    int width = m.getWidth();
-    int height = m.getHeight();
+    int width = frame.getWidth();
+    int height = frame.getHeight();
 
     Rectangle clipRect = g.getClipBounds();
     int minX = Math.max(0, clipRect.x / tileWidth);
@@ -216,11 +255,14 @@ public class MicropolisDrawingArea extends JComponent implements Scrollable, Map
     int maxX = Math.min(width, 1 + (clipRect.x + clipRect.width - 1) / tileWidth);
     int maxY = Math.min(height, 1 + (clipRect.y + clipRect.height - 1) / tileHeight);
 
-    for (int y = minY; y < maxY; y++) {
+    char[] row = new char[Math.max(0, maxX - minX)];
+    for (int y = minY; y < maxY && row.length != 0; y++) {
+      frame.copyRow(y, minX, row, 0, row.length);
       for (int x = maxX - 1; x >= minX; x--) {
-        int cell = m.getTile(x, y);
+        char raw = row[x - minX];
+        int cell = raw & LOMASK;
         boolean blinkUnpoweredZones = true;
-        if (blinkUnpoweredZones && isZoneCenter(cell) && !m.isTilePowered(x, y)) {
+        if (blinkUnpoweredZones && isZoneCenter(cell) && (raw & PWRBIT) == 0) {
           unpoweredZones.add(new Point(x, y));
           if (blink) cell = LIGHTNINGBOLT;
         }
@@ -240,10 +282,8 @@ public class MicropolisDrawingArea extends JComponent implements Scrollable, Map
       }
     }
 
-    for (Sprite sprite : m.allSprites()) {
-      if (sprite.isVisible()) {
-        drawSprite(g, sprite);
-      }
+    for (CityFrame.SpriteState sprite : frame.getSprites()) {
+      drawSprite(g, sprite);
     }
 
     if (toolCursor != null) {
@@ -367,10 +407,10 @@ public class MicropolisDrawingArea extends JComponent implements Scrollable, Map
     return orientation == SwingConstants.VERTICAL ? tileHeight * 3 : tileWidth * 3;
   }
 
-  private Rectangle getSpriteBounds(Sprite sprite, int x, int y) {
+  private Rectangle getSpriteBounds(CityFrame.SpriteState sprite) {
     return new Rectangle(
-        (x + sprite.getOffx()) * tileWidth / 16,
-        (y + sprite.getOffy()) * tileHeight / 16,
+        (sprite.getX() + sprite.getOffx()) * tileWidth / 16,
+        (sprite.getY() + sprite.getOffy()) * tileHeight / 16,
         sprite.getWidth() * tileWidth / 16,
         sprite.getHeight() * tileHeight / 16);
   }
@@ -379,25 +419,6 @@ public class MicropolisDrawingArea extends JComponent implements Scrollable, Map
     return new Rectangle(xpos * tileWidth, ypos * tileHeight, tileWidth, tileHeight);
   }
 
-  @Override
-  public void mapOverlayDataChanged() {}
-
-  @Override
-  public void spriteMoved(Sprite sprite) {
-    repaint(getSpriteBounds(sprite, sprite.getLastX(), sprite.getLastY()));
-    repaint(getSpriteBounds(sprite, sprite.getX(), sprite.getY()));
-  }
-
-  @Override
-  public void tileChanged(int xpos, int ypos) {
-    repaint(getTileBounds(xpos, ypos));
-  }
-
-  @Override
-  public void wholeMapChanged() {
-    repaint();
-  }
-
   void shake(int i) {
     shakeStep = i;
     repaint();
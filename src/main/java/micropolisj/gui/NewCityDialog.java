@@ -11,6 +11,7 @@ package micropolisj.gui;
 import static micropolisj.gui.MainWindow.EXTENSION;
 
 import java.awt.BorderLayout;
+import java.awt.Dimension;
 import java.awt.event.KeyEvent;
 import java.io.File;
 import java.util.HashMap;
@@ -21,26 +22,40 @@ import javax.swing.BorderFactory;
 import javax.swing.Box;
 import javax.swing.BoxLayout;
 import javax.swing.JButton;
+import javax.swing.JComboBox;
 import javax.swing.JComponent;
 import javax.swing.JDialog;
 import javax.swing.JFileChooser;
+import javax.swing.JLabel;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
 import javax.swing.JRadioButton;
+import javax.swing.JScrollPane;
 import javax.swing.KeyStroke;
 import javax.swing.WindowConstants;
 import javax.swing.filechooser.FileNameExtensionFilter;
+import micropolisj.engine.CityFrame;
 import micropolisj.engine.GameLevel;
 import micropolisj.engine.MapGenerator;
 import micropolisj.engine.Micropolis;
 
 public class NewCityDialog extends JDialog {
   private static final ResourceBundle strings = MainWindow.strings;
+
+  /** Map sizes offered for new cities; the first one is the classic size. */
+  private static final Dimension[] MAP_SIZES = {
+    new Dimension(120, 100),
+    new Dimension(256, 256),
+    new Dimension(512, 512),
+    new Dimension(1024, 1024),
+  };
+
   private final JButton previousMapBtn;
   private final Stack<Micropolis> previousMaps = new Stack<>();
   private final Stack<Micropolis> nextMaps = new Stack<>();
   private final OverlayMapView mapPane;
   private final Map<Integer, JRadioButton> levelBtns = new HashMap<>();
+  private final JComboBox<String> mapSizeBox;
   private Micropolis engine;
 
   public NewCityDialog(MainWindow owner, boolean showCancelOption) {
@@ -54,12 +69,20 @@ public class NewCityDialog extends JDialog {
     p1.setBorder(BorderFactory.createEmptyBorder(10, 20, 10, 20));
     getContentPane().add(p1, BorderLayout.CENTER);
 
-    engine = new Micropolis();
-    new MapGenerator(engine).generateNewCity();
+    mapSizeBox = new JComboBox<>();
+    for (Dimension size : MAP_SIZES) {
+      mapSizeBox.addItem(size.width + " x " + size.height);
+    }
 
-    mapPane = new OverlayMapView(engine);
-    mapPane.setBorder(BorderFactory.createLoweredBevelBorder());
-    p1.add(mapPane, BorderLayout.LINE_START);
+    engine = generateMap();
+
+    mapPane = new OverlayMapView();
+    showMap();
+    JScrollPane mapScroll = new JScrollPane(mapPane);
+    mapScroll.setBorder(BorderFactory.createLoweredBevelBorder());
+    // keep the dialog at the size of a classic map; larger maps can be scrolled
+    mapScroll.setPreferredSize(mapPane.getPreferredSize());
+    p1.add(mapScroll, BorderLayout.LINE_START);
 
     JPanel p2 = new JPanel(new BorderLayout());
     p1.add(p2, BorderLayout.CENTER);
@@ -80,6 +103,12 @@ public class NewCityDialog extends JDialog {
     levelBox.add(Box.createVerticalGlue());
     setGameLevel(GameLevel.MIN_LEVEL);
 
+    JPanel sizePane = new JPanel();
+    sizePane.add(new JLabel(strings.getString("welcome.map_size")));
+    sizePane.add(mapSizeBox);
+    mapSizeBox.addActionListener(evt -> onMapSizeChanged());
+    p2.add(sizePane, BorderLayout.PAGE_END);
+
     JPanel buttonPane = new JPanel();
     getContentPane().add(buttonPane, BorderLayout.PAGE_END);
 
@@ -131,25 +160,63 @@ public class NewCityDialog extends JDialog {
 
     nextMaps.push(engine);
     engine = previousMaps.pop();
-    mapPane.setEngine(engine);
+    showMap();
+    showMapSize();
 
     previousMapBtn.setEnabled(!previousMaps.isEmpty());
   }
 
   private void onNextMapClicked() {
     if (nextMaps.isEmpty()) {
-      Micropolis m = new Micropolis();
-      new MapGenerator(m).generateNewCity();
-      nextMaps.add(m);
+      nextMaps.add(generateMap());
     }
 
     previousMaps.push(engine);
     engine = nextMaps.pop();
-    mapPane.setEngine(engine);
+    showMap();
+    showMapSize();
 
     previousMapBtn.setEnabled(true);
   }
 
+  private void onMapSizeChanged() {
+    if (engine.getWidth() == getSelectedMapSize().width
+        && engine.getHeight() == getSelectedMapSize().height) {
+      return;
+    }
+
+    // maps generated for the old size are of no use anymore
+    nextMaps.clear();
+    nextMaps.add(generateMap());
+    onNextMapClicked();
+  }
+
+  private Micropolis generateMap() {
+    Dimension size = getSelectedMapSize();
+    Micropolis m = new Micropolis(size.width, size.height);
+    new MapGenerator(m).generateNewCity();
+    return m;
+  }
+
+  /** Shows the map of the city on offer. */
+  private void showMap() {
+    engine.calculateCenterMass();
+    mapPane.setFrame(CityFrame.of(engine));
+  }
+
+  /** Selects the size of the displayed map, which may differ after going back to a map. */
+  private void showMapSize() {
+    for (int i = 0; i < MAP_SIZES.length; i++) {
+      if (MAP_SIZES[i].width == engine.getWidth() && MAP_SIZES[i].height == engine.getHeight()) {
+        mapSizeBox.setSelectedIndex(i);
+      }
+    }
+  }
+
+  private Dimension getSelectedMapSize() {
+    return MAP_SIZES[Math.max(0, mapSizeBox.getSelectedIndex())];
+  }
+
   private void onLoadCityClicked() {
     try {
       JFileChooser fc = new JFileChooser();
@@ -26,7 +26,7 @@ import javax.swing.JLabel;
 import javax.swing.JPanel;
 import javax.swing.JViewport;
 import javax.swing.SwingConstants;
-import micropolisj.engine.Micropolis;
+import micropolisj.engine.CityFrame;
 import micropolisj.engine.MicropolisMessage;
 import micropolisj.engine.ZoneStatus;
 
@@ -43,7 +43,7 @@ public class NotificationPane extends JPanel {
   private final JPanel mainPane;
   private JComponent infoPane;
 
-  public NotificationPane(Micropolis engine) {
+  public NotificationPane() {
     super(new BorderLayout());
     setVisible(false);
 
@@ -73,7 +73,7 @@ public class NotificationPane extends JPanel {
     mapViewport.setMinimumSize(VIEWPORT_SIZE);
     viewportContainer.add(mapViewport, BorderLayout.CENTER);
 
-    mapView = new MicropolisDrawingArea(engine);
+    mapView = new MicropolisDrawingArea();
     mapViewport.setView(mapView);
   }
 
@@ -81,18 +81,22 @@ public class NotificationPane extends JPanel {
     setVisible(false);
   }
 
-  private void setPicture(Micropolis engine, int xpos, int ypos) {
+  /** Draws the given frame of the city from now on; see {@link MicropolisDrawingArea#setFrame}. */
+  public void setFrame(CityFrame frame) {
+    mapView.setFrame(frame);
+  }
+
+  private void setPicture(int xpos, int ypos) {
     Dimension sz = VIEWPORT_SIZE;
 
-    mapView.setEngine(engine);
     Rectangle r = mapView.getTileBounds(xpos, ypos);
 
     mapViewport.setViewPosition(
         new Point(r.x + r.width / 2 - sz.width / 2, r.y + r.height / 2 - sz.height / 2));
   }
 
-  public void showMessage(Micropolis engine, MicropolisMessage msg, int xpos, int ypos) {
-    setPicture(engine, xpos, ypos);
+  public void showMessage(MicropolisMessage msg, int xpos, int ypos) {
+    setPicture(xpos, ypos);
 
     if (infoPane != null) {
       mainPane.remove(infoPane);
@@ -112,7 +116,7 @@ public class NotificationPane extends JPanel {
     setVisible(true);
   }
 
-  public void showZoneStatus(Micropolis engine, int xpos, int ypos, ZoneStatus zone) {
+  public void showZoneStatus(int xpos, int ypos, ZoneStatus zone) {
     headerLbl.setText(strings.getString("notification.query_hdr"));
     headerLbl.setBackground(QUERY_COLOR);
 
@@ -124,7 +128,7 @@ public class NotificationPane extends JPanel {
     String pollutionStr = s_strings.getString("status." + zone.getPollution());
     String growthRateStr = s_strings.getString("status." + zone.getGrowthRate());
 
-    setPicture(engine, xpos, ypos);
+    setPicture(xpos, ypos);
 
     if (infoPane != null) {
       mainPane.remove(infoPane);
@@ -39,12 +39,14 @@ import javax.swing.Scrollable;
 import javax.swing.SwingConstants;
 import javax.swing.event.ChangeEvent;
 import javax.swing.event.ChangeListener;
-import micropolisj.engine.MapListener;
+import micropolisj.engine.CityFrame;
 import micropolisj.engine.MapState;
-import micropolisj.engine.Micropolis;
-import micropolisj.engine.Sprite;
 
-public class OverlayMapView extends JComponent implements Scrollable, MapListener {
+/**
+ * The small view of the whole city map, with its overlays. Like {@link MicropolisDrawingArea}, it
+ * draws the latest {@link CityFrame} it was given.
+ */
+public class OverlayMapView extends JComponent implements Scrollable {
   private static final int TILE_WIDTH = 3;
   private static final int TILE_HEIGHT = 3;
   private static final Color VAL_LOW = new Color(0xbfbfbf);
@@ -60,12 +62,19 @@ public class OverlayMapView extends JComponent implements Scrollable, MapListene
   private static final int CONDUCTIVE = 0xbfbfbf; // lightgray
   private final TileImages tileImages;
   private final ArrayList<ConnectedView> views = new ArrayList<>();
-  private Micropolis engine;
+  private CityFrame frame = new CityFrame();
   private MapState mapState = MapState.ALL;
 
-  public OverlayMapView(Micropolis engine) {
-    assert engine != null;
+  /**
+   * The map of the frame drawn, and the versions of its overlays and of each of its chunks of
+   * tiles. Kept here since a frame replaced may be reused by the simulation right away.
+   */
+  private long mapId;
 
+  private int overlayVersion;
+  private int[] chunkVersions = new int[0];
+
+  public OverlayMapView() {
     MouseAdapter mouse =
         new MouseAdapter() {
           @Override
@@ -91,8 +100,6 @@ public class OverlayMapView extends JComponent implements Scrollable, MapListene
     addMouseListener(mouse);
     addMouseMotionListener(mouse);
 
-    setEngine(engine);
-
     tileImages = TileImages.getInstance(TILE_WIDTH);
   }
 
@@ -122,12 +129,13 @@ public class OverlayMapView extends JComponent implements Scrollable, MapListene
   private static int checkPower(BufferedImage img, int x, int y, int rawTile) {
     int pix;
 
-    if ((rawTile & LOMASK) <= 63) {
-      return rawTile & LOMASK;
-    } else if (isZoneCenter(rawTile)) {
+    int tile = rawTile & LOMASK;
+    if (tile <= 63) {
+      return tile;
+    } else if (isZoneCenter(tile)) {
       // zone
       pix = (rawTile & PWRBIT) != 0 ? POWERED : UNPOWERED;
-    } else if (isConductive(rawTile)) {
+    } else if (isConductive(tile)) {
       pix = CONDUCTIVE;
     } else {
       return DIRT;
@@ -142,20 +150,59 @@ public class OverlayMapView extends JComponent implements Scrollable, MapListene
     // since it was performed here
   }
 
-  public void setEngine(Micropolis newEngine) {
-    assert newEngine != null;
-
-    if (engine != null) { // old engine
-      engine.removeMapListener(this);
+  /**
+   * Draws the given frame from now on, which must stay unchanged until the next call, and repaints
+   * what changed since the frame drawn before. A frame of another map is centered on its city.
+   */
+  public void setFrame(CityFrame newFrame) {
+    setFrame(newFrame, true);
+  }
+
+  /**
+   * Draws the given frame from now on, like {@link #setFrame(CityFrame)}, but leaves what changed
+   * to be repainted later unless asked to repaint it now.
+   */
+  public void setFrame(CityFrame newFrame, boolean repaintChanges) {
+    frame = newFrame;
+    int chunkSize = CityFrame.getChunkSize();
+    int chunksX = (frame.getWidth() + chunkSize - 1) / chunkSize;
+    int chunksY = (frame.getHeight() + chunkSize - 1) / chunkSize;
+    if (frame.getMapId() != mapId || chunkVersions.length != chunksX * chunksY) {
+      mapId = frame.getMapId();
+      overlayVersion = frame.getOverlayVersion();
+      chunkVersions = new int[chunksX * chunksY];
+      for (int cy = 0; cy < chunksY; cy++) {
+        for (int cx = 0; cx < chunksX; cx++) {
+          chunkVersions[cy * chunksX + cx] = frame.getChunkVersion(cx, cy);
+        }
+      }
+      revalidate(); // map size may have changed
+      repaint();
+      dragViewToCityCenter();
+      return;
+    }
+    if (!repaintChanges) {
+      return;
+    }
+    if (frame.getOverlayVersion() != overlayVersion) {
+      overlayVersion = frame.getOverlayVersion();
+      repaint();
     }
-    engine = newEngine;
-    // new engine
-    engine.addMapListener(this);
 
-    invalidate(); // map size may have changed
-    repaint();
-    engine.calculateCenterMass();
-    dragViewToCityCenter();
+    Insets insets = getInsets();
+    for (int cy = 0; cy < chunksY; cy++) {
+      for (int cx = 0; cx < chunksX; cx++) {
+        int version = frame.getChunkVersion(cx, cy);
+        if (chunkVersions[cy * chunksX + cx] != version) {
+          chunkVersions[cy * chunksX + cx] = version;
+          repaint(
+              insets.left + cx * chunkSize * TILE_WIDTH,
+              insets.top + cy * chunkSize * TILE_HEIGHT,
+              chunkSize * TILE_WIDTH,
+              chunkSize * TILE_HEIGHT);
+        }
+      }
+    }
   }
 
   public MapState getMapState() {
@@ -172,12 +219,12 @@ public class OverlayMapView extends JComponent implements Scrollable, MapListene
   @Override
   public Dimension getPreferredSize() {
     return new Dimension(
-        getInsets().left + getInsets().right + TILE_WIDTH * engine.getWidth(),
-        getInsets().top + getInsets().bottom + TILE_HEIGHT * engine.getHeight());
+        getInsets().left + getInsets().right + TILE_WIDTH * frame.getWidth(),
+        getInsets().top + getInsets().bottom + TILE_HEIGHT * frame.getHeight());
   }
 
   private void drawPollutionMap(Graphics gr) {
-    int[][] a = engine.getPollutionMem();
+    int[][] a = frame.getPollutionMem();
 
     for (int y = 0; y < a.length; y++) {
       for (int x = 0; x < a[y].length; x++) {
@@ -187,7 +234,7 @@ public class OverlayMapView extends JComponent implements Scrollable, MapListene
   }
 
   private void drawCrimeMap(Graphics gr) {
-    int[][] a = engine.getCrimeMem();
+    int[][] a = frame.getCrimeMem();
 
     for (int y = 0; y < a.length; y++) {
       for (int x = 0; x < a[y].length; x++) {
@@ -197,7 +244,7 @@ public class OverlayMapView extends JComponent implements Scrollable, MapListene
   }
 
   private void drawPopDensity(Graphics gr) {
-    int[][] a = engine.getPopDensity();
+    int[][] a = frame.getPopDensity();
 
     for (int y = 0; y < a.length; y++) {
       for (int x = 0; x < a[y].length; x++) {
@@ -207,7 +254,7 @@ public class OverlayMapView extends JComponent implements Scrollable, MapListene
   }
 
   private void drawRateOfGrowth(Graphics gr) {
-    int[][] a = engine.getRateOGMem();
+    int[][] a = frame.getRateOGMem();
 
     for (int y = 0; y < a.length; y++) {
       for (int x = 0; x < a[y].length; x++) {
@@ -217,7 +264,7 @@ public class OverlayMapView extends JComponent implements Scrollable, MapListene
   }
 
   private void drawFireRadius(Graphics gr) {
-    int[][] a = engine.getFireRate();
+    int[][] a = frame.getFireRate();
 
     for (int y = 0; y < a.length; y++) {
       for (int x = 0; x < a[y].length; x++) {
@@ -227,7 +274,7 @@ public class OverlayMapView extends JComponent implements Scrollable, MapListene
   }
 
   private void drawPoliceRadius(Graphics gr) {
-    int[][] a = engine.getPoliceMapEffect();
+    int[][] a = frame.getPoliceMapEffect();
 
     for (int y = 0; y < a.length; y++) {
       for (int x = 0; x < a[y].length; x++) {
@@ -236,8 +283,9 @@ public class OverlayMapView extends JComponent implements Scrollable, MapListene
     }
   }
 
-  private int checkLandValueOverlay(BufferedImage img, int xpos, int ypos, int tile) {
-    int v = engine.getLandValue(xpos, ypos);
+  private int checkLandValueOverlay(
+      BufferedImage img, int imgX, int imgY, int xpos, int ypos, int tile) {
+    int v = frame.getLandValue(xpos, ypos);
     Color c = getCI(v);
     if (c == null) {
       return tile;
@@ -246,14 +294,15 @@ public class OverlayMapView extends JComponent implements Scrollable, MapListene
     int pix = c.getRGB();
     for (int yy = 0; yy < TILE_HEIGHT; yy++) {
       for (int xx = 0; xx < TILE_WIDTH; xx++) {
-        img.setRGB(xpos * TILE_WIDTH + xx, ypos * TILE_HEIGHT + yy, pix);
+        img.setRGB(imgX * TILE_WIDTH + xx, imgY * TILE_HEIGHT + yy, pix);
       }
     }
     return CLEAR;
   }
 
-  private int checkTrafficOverlay(BufferedImage img, int xpos, int ypos, int tile) {
-    int d = engine.getTrafficDensity(xpos, ypos);
+  private int checkTrafficOverlay(
+      BufferedImage img, int imgX, int imgY, int xpos, int ypos, int tile) {
+    int d = frame.getTrafficDensity(xpos, ypos);
     Color c = getCI(d);
     if (c == null) {
       return tile;
@@ -262,7 +311,7 @@ public class OverlayMapView extends JComponent implements Scrollable, MapListene
     int pix = c.getRGB();
     for (int yy = 0; yy < TILE_HEIGHT; yy++) {
       for (int xx = 0; xx < TILE_WIDTH; xx++) {
-        img.setRGB(xpos * TILE_WIDTH + xx, ypos * TILE_HEIGHT + yy, pix);
+        img.setRGB(imgX * TILE_WIDTH + xx, imgY * TILE_HEIGHT + yy, pix);
       }
     }
     return CLEAR;
@@ -270,11 +319,8 @@ public class OverlayMapView extends JComponent implements Scrollable, MapListene
 
   @Override
   public void paintComponent(Graphics g) {
-    int width = engine.getWidth();
-    int height = engine.getHeight();
-
-    BufferedImage img =
-        new BufferedImage(width * TILE_WIDTH, height * TILE_HEIGHT, BufferedImage.TYPE_INT_RGB);
+    int width = frame.getWidth();
+    int height = frame.getHeight();
 
     Insets insets = getInsets();
     Rectangle clipRect = g.getClipBounds();
@@ -283,9 +329,64 @@ public class OverlayMapView extends JComponent implements Scrollable, MapListene
     int maxX = Math.min(width, 1 + (clipRect.x - insets.left + clipRect.width - 1) / TILE_WIDTH);
     int maxY = Math.min(height, 1 + (clipRect.y - insets.top + clipRect.height - 1) / TILE_HEIGHT);
 
+    if (minX < maxX && minY < maxY) {
+      // only the tiles inside the clip are drawn, so the image need not cover the whole map
+      BufferedImage img =
+          new BufferedImage(
+              (maxX - minX) * TILE_WIDTH, (maxY - minY) * TILE_HEIGHT, BufferedImage.TYPE_INT_RGB);
+      paintTiles(img, minX, minY, maxX, maxY);
+      g.drawImage(img, insets.left + minX * TILE_WIDTH, insets.top + minY * TILE_HEIGHT, null);
+    }
+
+    g = g.create();
+    g.translate(insets.left, insets.top);
+
+    switch (mapState) {
+      case POLICE_OVERLAY:
+        drawPoliceRadius(g);
+        break;
+      case FIRE_OVERLAY:
+        drawFireRadius(g);
+        break;
+      case CRIME_OVERLAY:
+        drawCrimeMap(g);
+        break;
+      case POLLUTE_OVERLAY:
+        drawPollutionMap(g);
+        break;
+      case GROWTHRATE_OVERLAY:
+        drawRateOfGrowth(g);
+        break;
+      case POPDEN_OVERLAY:
+        drawPopDensity(g);
+        break;
+      default:
+    }
+
+    for (ConnectedView cv : views) {
+      Rectangle rect = getViewRect(cv);
+      g.setColor(Color.WHITE);
+      g.drawRect(rect.x - 2, rect.y - 2, rect.width + 2, rect.height + 2);
+
+      g.setColor(Color.BLACK);
+      g.drawRect(rect.x, rect.y, rect.width + 2, rect.height + 2);
+
+      g.setColor(Color.YELLOW);
+      g.drawRect(rect.x - 1, rect.y - 1, rect.width + 2, rect.height + 2);
+    }
+  }
+
+  /**
+   * Draws the tiles of the given area of the map into an image whose top left corner is the tile at
+   * (minX, minY).
+   */
+  private void paintTiles(BufferedImage img, int minX, int minY, int maxX, int maxY) {
+    char[] row = new char[maxX - minX];
     for (int y = minY; y < maxY; y++) {
+      frame.copyRow(y, minX, row, 0, row.length);
       for (int x = minX; x < maxX; x++) {
-        int tile = engine.getTile(x, y);
+        char raw = row[x - minX];
+        int tile = raw & LOMASK;
         switch (mapState) {
           case RESIDENTIAL:
             if (isZoneAny(tile) && !isResidentialZoneAny(tile)) {
@@ -303,7 +404,7 @@ public class OverlayMapView extends JComponent implements Scrollable, MapListene
             }
             break;
           case POWER_OVERLAY:
-            tile = checkPower(img, x, y, engine.getTile(x, y));
+            tile = checkPower(img, x - minX, y - minY, raw);
             break;
           case TRANSPORT:
           case TRAFFIC_OVERLAY:
@@ -311,12 +412,12 @@ public class OverlayMapView extends JComponent implements Scrollable, MapListene
               tile = DIRT;
             }
             if (mapState == MapState.TRAFFIC_OVERLAY) {
-              tile = checkTrafficOverlay(img, x, y, tile);
+              tile = checkTrafficOverlay(img, x - minX, y - minY, x, y, tile);
             }
             break;
 
           case LANDVALUE_OVERLAY:
-            tile = checkLandValueOverlay(img, x, y, tile);
+            tile = checkLandValueOverlay(img, x - minX, y - minY, x, y, tile);
             break;
 
           default:
@@ -326,49 +427,10 @@ public class OverlayMapView extends JComponent implements Scrollable, MapListene
         // in the checkPower function
 
         if (tile != -1) {
-          paintTile(img, x, y, tile);
+          paintTile(img, x - minX, y - minY, tile);
         }
       }
     }
-
-    g.drawImage(img, insets.left, insets.top, null);
-
-    g = g.create();
-    g.translate(insets.left, insets.top);
-
-    switch (mapState) {
-      case POLICE_OVERLAY:
-        drawPoliceRadius(g);
-        break;
-      case FIRE_OVERLAY:
-        drawFireRadius(g);
-        break;
-      case CRIME_OVERLAY:
-        drawCrimeMap(g);
-        break;
-      case POLLUTE_OVERLAY:
-        drawPollutionMap(g);
-        break;
-      case GROWTHRATE_OVERLAY:
-        drawRateOfGrowth(g);
-        break;
-      case POPDEN_OVERLAY:
-        drawPopDensity(g);
-        break;
-      default:
-    }
-
-    for (ConnectedView cv : views) {
-      Rectangle rect = getViewRect(cv);
-      g.setColor(Color.WHITE);
-      g.drawRect(rect.x - 2, rect.y - 2, rect.width + 2, rect.height + 2);
-
-      g.setColor(Color.BLACK);
-      g.drawRect(rect.x, rect.y, rect.width + 2, rect.height + 2);
-
-      g.setColor(Color.YELLOW);
-      g.drawRect(rect.x - 1, rect.y - 1, rect.width + 2, rect.height + 2);
-    }
   }
 
   private void paintTile(BufferedImage img, int x, int y, int tile) {
@@ -433,31 +495,10 @@ public class OverlayMapView extends JComponent implements Scrollable, MapListene
     return orientation == SwingConstants.VERTICAL ? TILE_HEIGHT : TILE_WIDTH;
   }
 
-  @Override
-  public void mapOverlayDataChanged() {
-    repaint();
-  }
-
-  @Override
-  public void spriteMoved(Sprite sprite) {}
-
-  @Override
-  public void tileChanged(int xpos, int ypos) {
-    Rectangle r = new Rectangle(xpos * TILE_WIDTH, ypos * TILE_HEIGHT, TILE_WIDTH, TILE_HEIGHT);
-    repaint(r);
-  }
-
-  @Override
-  public void wholeMapChanged() {
-    repaint();
-    engine.calculateCenterMass();
-    dragViewToCityCenter();
-  }
-
   private void dragViewToCityCenter() {
     dragViewTo(
         new Point(
-            TILE_WIDTH * engine.getCenterMassX() + 1, TILE_HEIGHT * engine.getCenterMassY() + 1));
+            TILE_WIDTH * frame.getCenterMassX() + 1, TILE_HEIGHT * frame.getCenterMassY() + 1));
   }
 
   public void connectView(MicropolisDrawingArea view, JScrollPane scrollPane) {
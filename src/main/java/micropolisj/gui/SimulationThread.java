@@ -0,0 +1,269 @@
+// This file is part of MicropolisJ.
+// Copyright (C) 2013 Jason Long
+// Portions Copyright (C) 1989-2007 Electronic Arts Inc.
+//
+// MicropolisJ is free software; you can redistribute it and/or modify
+// it under the terms of the GNU GPLv3, with additional terms.
+// See the README file, included in this distribution, for details.
+
+package micropolisj.gui;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import javax.swing.SwingUtilities;
+import micropolisj.engine.DetailGovernor;
+import micropolisj.engine.FrameBuffer;
+import micropolisj.engine.Micropolis;
+import micropolisj.engine.Speed;
+
+/**
+ * Runs the simulation of a city on a thread of its own, so that heavy steps of the simulation
+ * neither freeze the user interface nor are slowed down by painting.
+ *
+ * <p>At any time, the city belongs either to the simulation thread or to the event dispatch thread,
+ * never to both:
+ *
+ * <ul>
+ *   <li>While started, the thread animates the city at the speed it is set to, and runs the
+ *       commands {@link #submit submitted} by the user interface, such as applying a tool, in the
+ *       order they were submitted. After each round it publishes a frame of the city to the {@link
+ *       FrameBuffer}, which the map views draw from. A {@link DetailGovernor} sheds cosmetic work
+ *       when the rounds cannot keep up with the speed.
+ *   <li>While stopped, the thread leaves the city alone, so the event dispatch thread can use it
+ *       directly, e.g. to save it or show the budget. Commands then run right away.
+ * </ul>
+ *
+ * The city and earthquake listeners of the city are called on the event dispatch thread, after the
+ * round that fired the events, and the thread waits for them before it goes on; the user interface
+ * can thus read the city from its listeners as if the simulation were stopped. Painting, on the
+ * other hand, may happen at any time, so components paint from frames, or from copies of what they
+ * show taken by their listeners, and never read the city itself.
+ */
+final class SimulationThread {
+  /**
+   * How long one round may animate the city before it publishes a frame and runs the commands
+   * waiting; this bounds the steps taken at {@link Speed#MAX}.
+   */
+  private static final long ROUND_NANOS = TimeUnit.MILLISECONDS.toNanos(30);
+
+  private final Thread thread;
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition changed = lock.newCondition();
+
+  /** Runs when it is time for the player to set the budget. */
+  private final Runnable budgetTime;
+
+  /** Told on the event dispatch thread what the simulation failed with. */
+  private final Consumer<Throwable> errorHandler;
+
+  // guarded by the lock
+  private final Queue<Runnable> commands = new ArrayDeque<>();
+  private Micropolis engine;
+  private FrameBuffer frames;
+  private DetailGovernor governor;
+  private boolean started;
+  private boolean busy;
+  private boolean delivering;
+
+  /** Listener calls fired by the thread during the current round. */
+  private final List<Runnable> events = new ArrayList<>();
+
+  SimulationThread(Runnable budgetTime, Consumer<Throwable> errorHandler) {
+    this.budgetTime = budgetTime;
+    this.errorHandler = errorHandler;
+    thread = new Thread(this::run, "Simulation");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  /** Sets the city to simulate, and the buffer to publish its frames to. Only while stopped. */
+  void setEngine(Micropolis newEngine, FrameBuffer newFrames) {
+    lock.lock();
+    try {
+      assert !started;
+      if (engine != null) {
+        engine.setListenerExecutor(Runnable::run);
+      }
+      engine = newEngine;
+      frames = newFrames;
+      governor = new DetailGovernor(engine);
+      engine.setListenerExecutor(this::fire);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  boolean isStarted() {
+    lock.lock();
+    try {
+      return started;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /** Hands the city to the simulation thread. */
+  void start() {
+    lock.lock();
+    try {
+      started = true;
+      changed.signalAll();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Takes the city back from the simulation thread, waiting for the current round to finish, and
+   * runs the commands still waiting.
+   */
+  void stop() {
+    List<Runnable> waiting;
+    lock.lock();
+    try {
+      started = false;
+      while (busy) {
+        changed.awaitUninterruptibly();
+      }
+      waiting = new ArrayList<>(commands);
+      commands.clear();
+    } finally {
+      lock.unlock();
+    }
+    if (!waiting.isEmpty()) {
+      waiting.forEach(Runnable::run);
+      frames.publish();
+    }
+  }
+
+  /**
+   * Runs a command using the city: on the simulation thread, after the commands submitted before,
+   * if started; right away otherwise. Results are to be passed back with {@link
+   * SwingUtilities#invokeLater}.
+   */
+  void submit(Runnable command) {
+    lock.lock();
+    try {
+      if (started) {
+        commands.add(command);
+        changed.signalAll();
+        return;
+      }
+    } finally {
+      lock.unlock();
+    }
+    command.run();
+    frames.publish();
+  }
+
+  private void fire(Runnable event) {
+    if (Thread.currentThread() == thread) {
+      events.add(event);
+    } else {
+      event.run();
+    }
+  }
+
+  private void run() {
+    long nextTick = System.nanoTime();
+    while (true) {
+      List<Runnable> batch;
+      Micropolis engine;
+      FrameBuffer frames;
+      DetailGovernor governor;
+      lock.lock();
+      try {
+        while (true) {
+          if (started && !delivering) {
+            if (!commands.isEmpty()) {
+              break;
+            }
+            if (this.engine.getSimSpeed() != Speed.PAUSED) {
+              long wait = nextTick - System.nanoTime();
+              if (wait <= 0) {
+                break;
+              }
+              changed.awaitNanos(wait);
+              continue;
+            }
+          }
+          changed.awaitUninterruptibly();
+          nextTick = Math.max(nextTick, System.nanoTime());
+        }
+        batch = new ArrayList<>(commands);
+        commands.clear();
+        engine = this.engine;
+        frames = this.frames;
+        governor = this.governor;
+        busy = true;
+      } catch (InterruptedException e) {
+        return;
+      } finally {
+        lock.unlock();
+      }
+
+      try {
+        for (Runnable command : batch) {
+          command.run();
+        }
+        Speed speed = engine.getSimSpeed();
+        long now = System.nanoTime();
+        if (speed != Speed.PAUSED && now - nextTick >= 0) {
+          nextTick = Math.max(nextTick + TimeUnit.MILLISECONDS.toNanos(speed.animationDelay), now);
+          long roundEnd = now + ROUND_NANOS;
+          int steps = 0;
+          while (steps < speed.simStepsPerUpdate) {
+            engine.animate();
+            steps++;
+            if (!engine.isAutoBudget() && engine.isBudgetTime()) {
+              events.add(budgetTime);
+              break;
+            }
+            if (System.nanoTime() - roundEnd >= 0) {
+              break;
+            }
+          }
+          governor.stepsTaken(speed, steps, System.nanoTime() - now);
+        }
+        frames.publish();
+      } catch (Throwable e) {
+        events.add(() -> errorHandler.accept(e));
+      }
+
+      lock.lock();
+      try {
+        busy = false;
+        if (!events.isEmpty()) {
+          List<Runnable> delivered = new ArrayList<>(events);
+          events.clear();
+          delivering = true;
+          SwingUtilities.invokeLater(() -> deliver(delivered));
+        }
+        changed.signalAll();
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+
+  /** Calls the listeners on the event dispatch thread, then lets the simulation go on. */
+  private void deliver(List<Runnable> delivered) {
+    try {
+      delivered.forEach(Runnable::run);
+    } finally {
+      lock.lock();
+      try {
+        delivering = false;
+        changed.signalAll();
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+}
@@ -0,0 +1,90 @@
+package micropolisj.batch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import micropolisj.engine.Micropolis;
+import org.junit.jupiter.api.Test;
+
+public class BatchRunnerTest {
+
+  @Test
+  public void writesOneRowPerCityAndMonth() throws Exception {
+    BatchRunner runner = new BatchRunner();
+    runner.setSeeds(5, 3);
+    runner.setYears(1);
+    runner.setThreads(2);
+    StringWriter out = new StringWriter();
+
+    BatchResult result = runner.run(out);
+
+    List<String> lines = Arrays.asList(out.toString().split("\n"));
+    assertThat(lines.get(0)).isEqualTo(CensusWriter.HEADER);
+    assertThat(lines).hasSize(1 + 3 * 12);
+    assertThat(lines.subList(1, lines.size()))
+        .extracting(line -> line.substring(0, line.indexOf(',')))
+        .containsOnly("5", "6", "7");
+    assertThat(result.getCities()).isEqualTo(3);
+    assertThat(result.getCityYears()).isEqualTo(3.0);
+    assertThat(result.getCityYearsPerSecond()).isPositive();
+  }
+
+  @Test
+  public void citiesOnlyDependOnTheirSeed() throws Exception {
+    BatchRunner pooled = new BatchRunner();
+    pooled.setSeeds(1, 4);
+    pooled.setYears(1);
+    pooled.setThreads(3);
+    BatchRunner virtual = new BatchRunner();
+    virtual.setSeeds(1, 4);
+    virtual.setYears(1);
+    virtual.setThreads(0);
+    StringWriter pooledOut = new StringWriter();
+    StringWriter virtualOut = new StringWriter();
+
+    pooled.run(pooledOut);
+    virtual.run(virtualOut);
+
+    assertThat(sortedRows(virtualOut)).isEqualTo(sortedRows(pooledOut));
+  }
+
+  @Test
+  public void generatedCitiesGrowFromTheirStarterTown() throws Exception {
+    BatchRunner runner = new BatchRunner();
+    runner.setDisasters(false);
+    Micropolis city = runner.createCity(1);
+
+    city.advance(12);
+
+    assertThat(city.getCityPopulation()).isPositive();
+    assertThat(city.getCityTax()).isEqualTo(Policy.DEFAULT.getTaxRate());
+  }
+
+  @Test
+  public void policyIsAppliedToEveryCity() throws Exception {
+    BatchRunner runner = new BatchRunner();
+    runner.setPolicy(new Policy(12, 0.5, 0.25, 0.0));
+    Micropolis city = runner.createCity(1);
+
+    assertThat(city.getCityTax()).isEqualTo(12);
+    assertThat(city.getRoadPercent()).isEqualTo(0.5);
+    assertThat(city.getPolicePercent()).isEqualTo(0.25);
+    assertThat(city.getFirePercent()).isEqualTo(0.0);
+  }
+
+  @Test
+  public void policyRejectsImpossibleBudgets() {
+    assertThatThrownBy(() -> new Policy(21, 1.0, 1.0, 1.0))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> new Policy(7, 1.5, 1.0, 1.0))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  private static List<String> sortedRows(StringWriter out) {
+    return Arrays.stream(out.toString().split("\n")).sorted().collect(Collectors.toList());
+  }
+}
@@ -0,0 +1,145 @@
+package micropolisj.engine;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+public class AdvanceTest {
+
+  @Test
+  public void advanceRunsTheGivenNumberOfMonths() {
+    Micropolis city = TestCities.build(120, 100, 3);
+    int start = city.getCityTime();
+
+    AdvanceSummary summary = city.advance(6);
+
+    assertThat(city.getCityTime()).isEqualTo(start + 24);
+    assertThat(summary.getStartTime()).isEqualTo(start);
+    assertThat(summary.getEndTime()).isEqualTo(start + 24);
+    assertThat(summary.getMonths()).isEqualTo(6);
+    assertThat(summary.getSteps()).isBetween(23 * 16, 24 * 16);
+  }
+
+  @Test
+  public void advanceUntilStopsAsSoonAsTheConditionHolds() {
+    Micropolis city = TestCities.build(120, 100, 3);
+    int start = city.getCityTime();
+
+    city.advanceUntil(c -> c.getCityTime() >= start + 5);
+
+    assertThat(city.getCityTime()).isEqualTo(start + 5);
+  }
+
+  @Test
+  public void citiesWithTheSameSeedAdvanceTheSameWay() {
+    Micropolis first = TestCities.build(120, 100, 3);
+    Micropolis second = TestCities.build(120, 100, 3);
+
+    first.advance(6);
+    second.advance(6);
+
+    assertThat(tiles(second)).isEqualTo(tiles(first));
+    assertThat(second.getCityPopulation()).isEqualTo(first.getCityPopulation());
+    assertThat(second.getBudget().getTotalFunds()).isEqualTo(first.getBudget().getTotalFunds());
+  }
+
+  @Test
+  public void listenersHearOnceOfEachChangeAfterwards() {
+    Micropolis city = TestCities.build(120, 100, 3);
+    EventCounter counter = new EventCounter();
+    city.addListener(counter);
+    city.addMapListener(counter);
+
+    AdvanceSummary summary = city.advance(12);
+
+    assertThat(summary.isTilesChanged()).isTrue();
+    assertThat(counter.tileChanges).isZero();
+    assertThat(counter.wholeMapChanges).isEqualTo(1);
+    assertThat(counter.overlayChanges).isEqualTo(1);
+    assertThat(counter.censusChanges).isEqualTo(1);
+    assertThat(counter.messages).isZero();
+  }
+
+  @Test
+  public void censusNumbersAreCompleteRightAfterTheCensus() {
+    Micropolis city = TestCities.build(120, 100, 3);
+    city.advance(6);
+    int month = city.getCityTime();
+
+    city.advanceUntil(Micropolis::isCensusTaken);
+
+    assertThat(city.getCityTime()).isEqualTo(month);
+    assertThat(city.getResPop()).isPositive();
+    assertThat(city.getComPop() + city.getIndPop()).isPositive();
+  }
+
+  @Test
+  public void spritesStillMove() {
+    Micropolis city = TestCities.build(120, 100, 3);
+    city.makeTornado();
+    Sprite tornado = city.getSprite(SpriteKind.TOR);
+    int x = tornado.getX();
+    int y = tornado.getY();
+
+    city.advance(1);
+
+    assertThat(tornado.getX() != x || tornado.getY() != y).isTrue();
+  }
+
+  private static char[] tiles(Micropolis city) {
+    char[] tiles = new char[city.getWidth() * city.getHeight()];
+    city.getMap().copyRect(0, 0, city.getWidth(), city.getHeight(), tiles);
+    return tiles;
+  }
+
+  private static final class EventCounter implements CityListener, MapListener {
+    private int censusChanges;
+    private int messages;
+    private int overlayChanges;
+    private int tileChanges;
+    private int wholeMapChanges;
+
+    @Override
+    public void cityMessage(MicropolisMessage message, CityLocation loc) {
+      messages++;
+    }
+
+    @Override
+    public void citySound(Sound sound, CityLocation loc) {}
+
+    @Override
+    public void censusChanged() {
+      censusChanges++;
+    }
+
+    @Override
+    public void demandChanged() {}
+
+    @Override
+    public void evaluationChanged() {}
+
+    @Override
+    public void fundsChanged() {}
+
+    @Override
+    public void optionsChanged() {}
+
+    @Override
+    public void mapOverlayDataChanged() {
+      overlayChanges++;
+    }
+
+    @Override
+    public void spriteMoved(Sprite sprite) {}
+
+    @Override
+    public void tileChanged(int xpos, int ypos) {
+      tileChanges++;
+    }
+
+    @Override
+    public void wholeMapChanged() {
+      wholeMapChanges++;
+    }
+  }
+}
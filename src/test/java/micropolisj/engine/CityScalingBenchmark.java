@@ -0,0 +1,47 @@
+package micropolisj.engine;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures how many years of a developed city can be simulated per minute, for maps from the
+ * classic size up to 1024x1024. The city covers the whole map with neighborhoods (see {@link
+ * TestCities}), so its size grows with the map area.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MINUTES)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+public class CityScalingBenchmark {
+
+  @Param({"120x100", "256x256", "512x512", "1024x1024"})
+  public String size;
+
+  private Micropolis city;
+
+  @Setup
+  public void setUp() {
+    String[] parts = size.split("x");
+    city = TestCities.build(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]), 42);
+  }
+
+  @Benchmark
+  public int simulateYear() {
+    for (int i = 0; i < TestCities.ANIMATIONS_PER_YEAR; i++) {
+      city.animate();
+    }
+    return city.getCityPopulation();
+  }
+}
@@ -0,0 +1,134 @@
+package micropolisj.engine;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+public class DetailGovernorTest {
+
+  private static final long NORMAL_STEP = TimeUnit.MILLISECONDS.toNanos(125);
+
+  @Test
+  public void governorStartsAtFullDetail() {
+    Micropolis city = new Micropolis(120, 100, 1);
+    city.setDetailLevel(DetailLevel.LOW);
+
+    new DetailGovernor(city);
+
+    assertThat(city.getDetailLevel()).isEqualTo(DetailLevel.FULL);
+  }
+
+  @Test
+  public void slowStepsShedOneLevelAtATime() {
+    Micropolis city = new Micropolis(120, 100, 1);
+    DetailGovernor governor = new DetailGovernor(city);
+
+    for (int i = 0; i < DetailGovernor.SHED_ROUNDS - 1; i++) {
+      governor.stepsTaken(Speed.NORMAL, 1, NORMAL_STEP);
+    }
+    assertThat(city.getDetailLevel()).isEqualTo(DetailLevel.FULL);
+
+    governor.stepsTaken(Speed.NORMAL, 1, NORMAL_STEP);
+    assertThat(city.getDetailLevel()).isEqualTo(DetailLevel.REDUCED);
+  }
+
+  @Test
+  public void moderateLoadKeepsTheLevel() {
+    Micropolis city = new Micropolis(120, 100, 1);
+    DetailGovernor governor = new DetailGovernor(city);
+
+    for (int i = 0; i < 10 * DetailGovernor.RESTORE_ROUNDS; i++) {
+      governor.stepsTaken(Speed.NORMAL, 1, NORMAL_STEP / 2);
+    }
+
+    assertThat(city.getDetailLevel()).isEqualTo(DetailLevel.FULL);
+  }
+
+  @Test
+  public void maxSpeedShedsAllCosmeticWork() {
+    Micropolis city = new Micropolis(120, 100, 1);
+    DetailGovernor governor = new DetailGovernor(city);
+
+    for (int i = 0; i < 10 * DetailGovernor.SHED_ROUNDS; i++) {
+      governor.stepsTaken(Speed.MAX, 100, TimeUnit.MILLISECONDS.toNanos(30));
+    }
+
+    assertThat(city.getDetailLevel()).isEqualTo(DetailLevel.MINIMAL);
+  }
+
+  @Test
+  public void fastStepsRestoreDetail() {
+    Micropolis city = new Micropolis(120, 100, 1);
+    DetailGovernor governor = new DetailGovernor(city);
+    for (int i = 0; i < 2 * DetailGovernor.SHED_ROUNDS; i++) {
+      governor.stepsTaken(Speed.NORMAL, 1, NORMAL_STEP);
+    }
+    assertThat(city.getDetailLevel()).isEqualTo(DetailLevel.LOW);
+
+    for (int i = 0; i < DetailGovernor.RESTORE_ROUNDS; i++) {
+      governor.stepsTaken(Speed.NORMAL, 1, NORMAL_STEP / 10);
+    }
+
+    assertThat(city.getDetailLevel()).isEqualTo(DetailLevel.REDUCED);
+  }
+
+  @Test
+  public void overlayChangesAreCollectedBelowFullDetail() {
+    Micropolis full = TestCities.build(120, 100, 3);
+    Micropolis reduced = TestCities.build(120, 100, 3);
+    reduced.setDetailLevel(DetailLevel.REDUCED);
+    OverlayCounter fullCounter = new OverlayCounter();
+    OverlayCounter reducedCounter = new OverlayCounter();
+    full.addMapListener(fullCounter);
+    reduced.addMapListener(reducedCounter);
+
+    int animations = 64;
+    for (int i = 0; i < animations; i++) {
+      full.animate();
+      reduced.animate();
+    }
+
+    assertThat(reducedCounter.count).isPositive().isLessThanOrEqualTo(animations);
+    assertThat(reducedCounter.count).isLessThan(fullCounter.count);
+  }
+
+  @Test
+  public void restoringFullDetailReportsCollectedOverlayChanges() {
+    Micropolis city = TestCities.build(120, 100, 3);
+    city.setDetailLevel(DetailLevel.MINIMAL);
+    int interval = DetailLevel.MINIMAL.overlayNotificationInterval;
+    while (city.getAcycle() % interval != 0) {
+      city.animate();
+    }
+    OverlayCounter counter = new OverlayCounter();
+    city.addMapListener(counter);
+    // most of the phases of the simulation, without reaching the next report
+    for (int i = 0; i < interval - 1; i++) {
+      city.animate();
+    }
+    assertThat(counter.count).isZero();
+
+    city.setDetailLevel(DetailLevel.FULL);
+
+    assertThat(counter.count).isEqualTo(1);
+  }
+
+  private static final class OverlayCounter implements MapListener {
+    private int count;
+
+    @Override
+    public void mapOverlayDataChanged() {
+      count++;
+    }
+
+    @Override
+    public void spriteMoved(Sprite sprite) {}
+
+    @Override
+    public void tileChanged(int xpos, int ypos) {}
+
+    @Override
+    public void wholeMapChanged() {}
+  }
+}
@@ -0,0 +1,113 @@
+package micropolisj.engine;
+
+import static micropolisj.engine.TileConstants.DIRT;
+import static micropolisj.engine.TileConstants.RIVER;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+public class FrameBufferTest {
+
+  @Test
+  public void acquireBeforePublishReturnsAnEmptyFrame() {
+    FrameBuffer frames = new FrameBuffer(new Micropolis(120, 100, 1));
+
+    CityFrame frame = frames.acquire();
+
+    assertThat(frame.getVersion()).isZero();
+    assertThat(frame.getWidth()).isZero();
+  }
+
+  @Test
+  public void acquireReturnsTheLatestFramePublished() {
+    Micropolis city = new Micropolis(120, 100, 1);
+    FrameBuffer frames = new FrameBuffer(city);
+
+    frames.publish();
+    city.setTile(5, 6, RIVER);
+    frames.publish();
+    CityFrame frame = frames.acquire();
+
+    assertThat(frame.getVersion()).isEqualTo(2);
+    assertThat(frame.getWidth()).isEqualTo(120);
+    assertThat(frame.getHeight()).isEqualTo(100);
+    assertThat(frame.getTile(5, 6)).isEqualTo(RIVER);
+    assertThat(frames.acquire()).isSameAs(frame);
+  }
+
+  @Test
+  public void framesFollowTheTilesChanged() {
+    Micropolis city = TestCities.build(120, 100, 3);
+    FrameBuffer frames = new FrameBuffer(city);
+    for (int i = 0; i < 4; i++) {
+      frames.publish();
+      frames.acquire();
+    }
+
+    city.setTile(40, 50, DIRT);
+    city.setTile(41, 50, RIVER);
+    for (int i = 0; i < 4; i++) {
+      frames.publish();
+      assertSameTiles(frames.acquire(), city);
+      city.animate();
+    }
+  }
+
+  @Test
+  public void onlyChangedChunksGetNewVersions() {
+    Micropolis city = new Micropolis(120, 100, 1);
+    FrameBuffer frames = new FrameBuffer(city);
+    frames.publish();
+    CityFrame first = frames.acquire();
+    int unchanged = first.getChunkVersion(0, 0);
+    int changed = first.getChunkVersion(2, 3);
+
+    city.setTile(2 * CityFrame.getChunkSize(), 3 * CityFrame.getChunkSize(), RIVER);
+    frames.publish();
+    CityFrame second = frames.acquire();
+
+    assertThat(second.getChunkVersion(0, 0)).isEqualTo(unchanged);
+    assertThat(second.getChunkVersion(2, 3)).isNotEqualTo(changed);
+  }
+
+  @Test
+  public void replacingTheWholeMapStartsANewMap() {
+    Micropolis city = new Micropolis(120, 100, 1);
+    FrameBuffer frames = new FrameBuffer(city);
+    frames.publish();
+    long mapId = frames.acquire().getMapId();
+    int overlayVersion = frames.acquire().getOverlayVersion();
+
+    new MapGenerator(city).generateNewCity();
+    frames.publish();
+    CityFrame frame = frames.acquire();
+
+    assertThat(frame.getMapId()).isNotEqualTo(mapId);
+    assertThat(frame.getOverlayVersion()).isNotEqualTo(overlayVersion);
+    assertSameTiles(frame, city);
+  }
+
+  @Test
+  public void closedBufferNoLongerFollowsTheCity() {
+    Micropolis city = new Micropolis(120, 100, 1);
+    FrameBuffer frames = new FrameBuffer(city);
+    frames.publish();
+    long mapId = frames.acquire().getMapId();
+
+    frames.close();
+    new MapGenerator(city).generateNewCity();
+    frames.publish();
+
+    assertThat(frames.acquire().getMapId()).isEqualTo(mapId);
+  }
+
+  private static void assertSameTiles(CityFrame frame, Micropolis city) {
+    char[] expected = new char[city.getWidth() * city.getHeight()];
+    char[] actual = new char[expected.length];
+    city.getMap().copyRect(0, 0, city.getWidth(), city.getHeight(), expected);
+    for (int y = 0; y < frame.getHeight(); y++) {
+      frame.copyRow(y, 0, actual, y * frame.getWidth(), frame.getWidth());
+    }
+    assertThat(actual).isEqualTo(expected);
+  }
+}
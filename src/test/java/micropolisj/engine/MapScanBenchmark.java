@@ -0,0 +1,114 @@
+package micropolisj.engine;
+
+import static micropolisj.engine.TileConstants.LOMASK;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the map scan phase of the simulation on a developed city, in both traversal orders, and
+ * the two ways of finding the behavior of a tile: looking up the behavior name of its tile spec and
+ * then the behavior registered under that name, or loading it from a table indexed by tile number.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapScanBenchmark {
+
+  @Param({"120x100", "512x512"})
+  public String size;
+
+  /**
+   * How much of the map is developed: "dense" covers all of it with neighborhoods, "sparse" only a
+   * 120x100 corner, like a new city on a large map.
+   */
+  @Param({"dense", "sparse"})
+  public String layout;
+
+  @Param({"CLASSIC", "BLOCKED"})
+  public TraversalOrder order;
+
+  private Micropolis city;
+  private char[] tiles;
+  private Map<String, Object> behaviorsByName;
+  private Object[] behaviorsByTile;
+
+  @Setup
+  public void setUp() {
+    String[] parts = size.split("x");
+    int width = Integer.parseInt(parts[0]);
+    int height = Integer.parseInt(parts[1]);
+    city =
+        layout.equals("sparse")
+            ? TestCities.build(width, height, 120, 100, 42)
+            : TestCities.build(width, height, 42);
+    for (int i = 0; i < TestCities.ANIMATIONS_PER_YEAR; i++) {
+      city.animate();
+    }
+    city.setTraversalOrder(order);
+
+    tiles = new char[city.getWidth() * city.getHeight()];
+    city.getMap().copyRect(0, 0, city.getWidth(), city.getHeight(), tiles);
+    for (int i = 0; i < tiles.length; i++) {
+      tiles[i] &= LOMASK;
+    }
+
+    behaviorsByName = new HashMap<>();
+    behaviorsByTile = new Object[LOMASK + 1];
+    for (int tile = 0; tile <= LOMASK; tile++) {
+      String name = TileConstants.getTileBehavior(tile);
+      if (name != null) {
+        behaviorsByTile[tile] = behaviorsByName.computeIfAbsent(name, k -> new Object());
+      }
+    }
+  }
+
+  /** Restores the city's random state, so that every iteration scans the same way. */
+  @Setup(Level.Iteration)
+  public void resetRandom() {
+    city.setSeed(42);
+  }
+
+  @Benchmark
+  public Micropolis mapScan() {
+    city.mapScan(0, city.getWidth());
+    return city;
+  }
+
+  @Benchmark
+  public void lookupByName(Blackhole bh) {
+    for (char tile : tiles) {
+      String name = TileConstants.getTileBehavior(tile);
+      if (name != null) {
+        bh.consume(behaviorsByName.get(name));
+      }
+    }
+  }
+
+  @Benchmark
+  public void lookupByTile(Blackhole bh) {
+    for (char tile : tiles) {
+      Object b = behaviorsByTile[tile];
+      if (b != null) {
+        bh.consume(b);
+      }
+    }
+  }
+}
@@ -0,0 +1,122 @@
+package micropolisj.engine;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class MapSizeTest {
+
+  /** Offset of the map size in a save file: 0x0B40 for the misc values, then 18 shorts. */
+  private static final int MAP_SIZE_OFFSET = 0x0B40 + 2 * 18;
+
+  @TempDir Path dir;
+
+  @Test
+  public void createsMapOfGivenSize() {
+    Micropolis city = new Micropolis(256, 200);
+
+    assertThat(city.getWidth()).isEqualTo(256);
+    assertThat(city.getHeight()).isEqualTo(200);
+    assertThat(city.testBounds(255, 199)).isTrue();
+    assertThat(city.testBounds(256, 0)).isFalse();
+    assertThat(city.getPopDensity()).hasNumberOfRows(100);
+    assertThat(city.getPopDensity()[0]).hasSize(128);
+  }
+
+  @Test
+  public void rejectsUnsupportedSizes() {
+    assertThatThrownBy(() -> new Micropolis(Micropolis.MIN_SIZE - 1, 100))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> new Micropolis(100, Micropolis.MAX_SIZE + 1))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  public void savesClassicSizeInClassicFormat() throws IOException {
+    Micropolis city = generate(120, 100);
+    File file = dir.resolve("classic.cty").toFile();
+
+    city.save(file);
+
+    byte[] data = Files.readAllBytes(file.toPath());
+    assertThat(data).hasSize(27120);
+    for (int i = 0; i < 4; i++) {
+      assertThat(data[MAP_SIZE_OFFSET + i]).isZero();
+    }
+  }
+
+  @Test
+  public void restoresMapSizeOnLoad() throws IOException {
+    Micropolis city = generate(200, 150);
+    File file = dir.resolve("large.cty").toFile();
+    city.save(file);
+
+    Micropolis loaded = new Micropolis();
+    loaded.load(file);
+
+    assertThat(loaded.getWidth()).isEqualTo(200);
+    assertThat(loaded.getHeight()).isEqualTo(150);
+    assertSameTerrain(loaded, city);
+  }
+
+  @Test
+  public void loadsFileWithHeader() throws IOException {
+    Micropolis city = generate(200, 150);
+    File file = dir.resolve("large.cty").toFile();
+    city.save(file);
+    byte[] data = Files.readAllBytes(file.toPath());
+    byte[] withHeader = new byte[128 + data.length];
+    System.arraycopy(data, 0, withHeader, 128, data.length);
+    Files.write(file.toPath(), withHeader);
+
+    Micropolis loaded = new Micropolis();
+    loaded.load(file);
+
+    assertThat(loaded.getWidth()).isEqualTo(200);
+    assertSameTerrain(loaded, city);
+  }
+
+  @Test
+  public void rejectsFileWithUnsupportedSize() throws IOException {
+    File file = dir.resolve("broken.cty").toFile();
+    generate(120, 100).save(file);
+    byte[] data = Files.readAllBytes(file.toPath());
+    data[MAP_SIZE_OFFSET + 1] = 1;
+    data[MAP_SIZE_OFFSET + 3] = 1;
+    Files.write(file.toPath(), data);
+
+    assertThatThrownBy(() -> new Micropolis().load(file)).isInstanceOf(IOException.class);
+  }
+
+  @Test
+  public void simulatesMapOfOddSize() {
+    Micropolis city = generate(257, 129);
+    city.setTile(250, 120, TileConstants.FIRE);
+
+    for (int i = 0; i < 200; i++) {
+      city.animate();
+    }
+
+    assertThat(city.getWidth()).isEqualTo(257);
+  }
+
+  private static Micropolis generate(int width, int height) {
+    Micropolis city = new Micropolis(width, height);
+    new MapGenerator(city).generateNewCity();
+    return city;
+  }
+
+  private static void assertSameTerrain(Micropolis actual, Micropolis expected) {
+    for (int y = 0; y < expected.getHeight(); y++) {
+      for (int x = 0; x < expected.getWidth(); x++) {
+        assertThat(actual.getTile(x, y)).isEqualTo(expected.getTile(x, y));
+      }
+    }
+  }
+}
@@ -0,0 +1,45 @@
+package micropolisj.engine;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures how many years of developed cities of the classic size one JVM simulates per minute,
+ * with every thread simulating a city of its own. Cities share no state, so the throughput should
+ * grow with the number of threads, up to the number of cores; run with {@code -t 1} for a single
+ * city to compare with.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MINUTES)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Threads(4)
+@Fork(1)
+public class MultiCityBenchmark {
+
+  private Micropolis city;
+
+  @Setup
+  public void setUp() {
+    city = TestCities.build(120, 100, 42);
+  }
+
+  @Benchmark
+  public int simulateYear() {
+    for (int i = 0; i < TestCities.ANIMATIONS_PER_YEAR; i++) {
+      city.animate();
+    }
+    return city.getCityPopulation();
+  }
+}
@@ -0,0 +1,85 @@
+package micropolisj.engine;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the plain and the vectorized overlay kernels on the half resolution grids of a map of
+ * the given size, which is where most overlay work happens. The vectorized kernels need the JVM to
+ * run with {@code --add-modules jdk.incubator.vector}, as the benchmark profile does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OverlayKernelsBenchmark {
+
+  @Param({"120x100", "1024x1024"})
+  public String size;
+
+  @Param({"scalar", "vector"})
+  public String kernels;
+
+  private OverlayKernels impl;
+  private int[][] src;
+  private int[][] dst;
+  private int[][] traffic;
+  private int[][] police;
+
+  @Setup
+  public void setUp() {
+    impl = kernels.equals("vector") ? OverlayKernels.create() : new OverlayKernels();
+    if (kernels.equals("vector") && !(impl instanceof VectorOverlayKernels)) {
+      throw new IllegalStateException("Vector API not available");
+    }
+
+    String[] parts = size.split("x");
+    int width = (Integer.parseInt(parts[0]) + 1) / 2;
+    int height = (Integer.parseInt(parts[1]) + 1) / 2;
+    Random random = new Random(42);
+    src = new int[height][width];
+    dst = new int[height][width];
+    traffic = new int[height][width];
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        src[y][x] = random.nextInt(256);
+        traffic[y][x] = random.nextInt(256);
+      }
+    }
+    police = new int[(height + 3) / 4][(width + 3) / 4];
+  }
+
+  @Benchmark
+  public int[][] smooth() {
+    impl.smooth(src, dst);
+    return dst;
+  }
+
+  @Benchmark
+  public int[][] decayTraffic() {
+    // decays to zero within a few calls; the kernels take the same time either way
+    impl.decayTraffic(traffic);
+    return traffic;
+  }
+
+  @Benchmark
+  public int[][] crime() {
+    for (int y = 0; y < dst.length; y++) {
+      impl.crime(src[y], traffic[y], police[y / 4], dst[y]);
+    }
+    return dst;
+  }
+}
@@ -0,0 +1,168 @@
+package micropolisj.engine;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+public class OverlayKernelsTest {
+
+  private static final int[][] SIZES = {{1, 1}, {1, 7}, {7, 1}, {2, 2}, {15, 13}, {60, 50}};
+
+  private final OverlayKernels scalar = new OverlayKernels();
+
+  @Test
+  public void smoothMatchesPlainFilter() {
+    Random random = new Random(1);
+    for (int[] size : SIZES) {
+      int[][] src = randomGrid(random, size[0], size[1], 400);
+      int[][] dst = new int[size[1]][size[0]];
+
+      scalar.smooth(src, dst);
+
+      assertThat(dst).isDeepEqualTo(filter(src, 0));
+    }
+  }
+
+  @Test
+  public void smoothFirePoliceMatchesPlainFilter() {
+    Random random = new Random(2);
+    for (int[] size : SIZES) {
+      int[][] src = randomGrid(random, size[0], size[1], 2000);
+      int[][] dst = new int[size[1]][size[0]];
+
+      scalar.smoothFirePolice(src, dst);
+
+      assertThat(dst).isDeepEqualTo(filter(src, 1));
+    }
+  }
+
+  @Test
+  public void smoothTerrainMatchesPlainFilter() {
+    Random random = new Random(3);
+    for (int[] size : SIZES) {
+      int[][] src = randomGrid(random, size[0], size[1], 300);
+      int[][] dst = new int[size[1]][size[0]];
+
+      scalar.smoothTerrain(src, dst);
+
+      assertThat(dst).isDeepEqualTo(filter(src, 2));
+    }
+  }
+
+  @Test
+  public void vectorKernelsMatchScalarKernels() {
+    OverlayKernels vector = OverlayKernels.create();
+    assumeTrue(vector instanceof VectorOverlayKernels, "Vector API not available");
+
+    Random random = new Random(4);
+    // every width up to a few vectors, so that each length of the remainder is covered
+    for (int w = 1; w <= 70; w++) {
+      int h = 1 + random.nextInt(9);
+      int[][] src = randomGrid(random, w, h, -1000, 3000);
+
+      int[][] expected = new int[h][w];
+      int[][] actual = new int[h][w];
+      scalar.smooth(src, expected);
+      vector.smooth(src, actual);
+      assertThat(actual).as("smooth %dx%d", w, h).isDeepEqualTo(expected);
+
+      scalar.smoothFirePolice(src, expected);
+      vector.smoothFirePolice(src, actual);
+      assertThat(actual).as("smoothFirePolice %dx%d", w, h).isDeepEqualTo(expected);
+
+      scalar.smoothTerrain(src, expected);
+      vector.smoothTerrain(src, actual);
+      assertThat(actual).as("smoothTerrain %dx%d", w, h).isDeepEqualTo(expected);
+
+      expected = copy(src);
+      actual = copy(src);
+      scalar.decayTraffic(expected);
+      vector.decayTraffic(actual);
+      assertThat(actual).as("decayTraffic %dx%d", w, h).isDeepEqualTo(expected);
+
+      expected = copy(src);
+      actual = copy(src);
+      scalar.decayRateOfGrowth(expected);
+      vector.decayRateOfGrowth(actual);
+      assertThat(actual).as("decayRateOfGrowth %dx%d", w, h).isDeepEqualTo(expected);
+
+      int[] landValue = randomGrid(random, w, 1, 0, 251)[0];
+      int[] popDensity = randomGrid(random, w, 1, 0, 510)[0];
+      int[] police = randomGrid(random, (w + 3) / 4, 1, 0, 1000)[0];
+      int[] expectedCrime = new int[w];
+      int[] actualCrime = new int[w];
+      scalar.crime(landValue, popDensity, police, expectedCrime);
+      vector.crime(landValue, popDensity, police, actualCrime);
+      assertThat(actualCrime).as("crime %d", w).isEqualTo(expectedCrime);
+    }
+  }
+
+  @Test
+  public void scalarKernelsCanBeForced() {
+    String old = System.setProperty("micropolisj.vector", "false");
+    try {
+      assertThat(OverlayKernels.create().getClass()).isEqualTo(OverlayKernels.class);
+    } finally {
+      if (old == null) {
+        System.clearProperty("micropolisj.vector");
+      } else {
+        System.setProperty("micropolisj.vector", old);
+      }
+    }
+  }
+
+  private static int[][] randomGrid(Random random, int w, int h, int bound) {
+    int[][] grid = new int[h][w];
+    for (int y = 0; y < h; y++) {
+      for (int x = 0; x < w; x++) {
+        grid[y][x] = random.nextInt(4) == 0 ? 0 : random.nextInt(bound);
+      }
+    }
+    return grid;
+  }
+
+  private static int[][] randomGrid(Random random, int w, int h, int min, int max) {
+    int[][] grid = new int[h][w];
+    for (int y = 0; y < h; y++) {
+      for (int x = 0; x < w; x++) {
+        grid[y][x] = random.nextInt(4) == 0 ? 0 : min + random.nextInt(max - min);
+      }
+    }
+    return grid;
+  }
+
+  private static int[][] copy(int[][] grid) {
+    int[][] copy = new int[grid.length][];
+    for (int y = 0; y < grid.length; y++) {
+      copy[y] = grid[y].clone();
+    }
+    return copy;
+  }
+
+  /** The filters as the engine used to compute them, cell by cell. */
+  private static int[][] filter(int[][] src, int kind) {
+    int h = src.length;
+    int w = src[0].length;
+    int[][] dst = new int[h][w];
+    for (int y = 0; y < h; y++) {
+      for (int x = 0; x < w; x++) {
+        int edge = 0;
+        if (x > 0) edge += src[y][x - 1];
+        if (x + 1 < w) edge += src[y][x + 1];
+        if (y > 0) edge += src[y - 1][x];
+        if (y + 1 < h) edge += src[y + 1][x];
+        if (kind == 0) {
+          int z = (edge + src[y][x]) / 4;
+          dst[y][x] = z > 255 ? 255 : z;
+        } else if (kind == 1) {
+          dst[y][x] = (edge / 4 + src[y][x]) / 2;
+        } else {
+          dst[y][x] = edge / 4 + src[y][x] / 2;
+        }
+      }
+    }
+    return dst;
+  }
+}
@@ -0,0 +1,75 @@
+package micropolisj.engine;
+
+import static micropolisj.engine.TileConstants.DIRT;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.ForkJoinPool;
+import org.junit.jupiter.api.Test;
+
+public class OverlayPhaseTest {
+
+  @Test
+  public void computesIndependentPhasesWithTheFirst() {
+    assertThat(OverlayPhase.POLLUTION.canBeComputedWith(OverlayPhase.POWER)).isTrue();
+    assertThat(OverlayPhase.POPULATION_DENSITY.canBeComputedWith(OverlayPhase.POWER)).isTrue();
+    assertThat(OverlayPhase.FIRE.canBeComputedWith(OverlayPhase.POWER)).isTrue();
+
+    // the crime depends on the land value, and draws random numbers
+    assertThat(OverlayPhase.CRIME.canBeComputedWith(OverlayPhase.POWER)).isFalse();
+    assertThat(OverlayPhase.CRIME.canBeComputedWith(OverlayPhase.POLLUTION)).isFalse();
+    assertThat(OverlayPhase.POWER.canBeComputedWith(OverlayPhase.POWER)).isFalse();
+  }
+
+  @Test
+  public void overlayPoolDoesNotChangeTheCity() {
+    Micropolis expected = simulate(null, 0);
+    Micropolis actual = simulate(new ForkJoinPool(2), 0);
+
+    assertSameCity(actual, expected);
+  }
+
+  @Test
+  public void stepBudgetDoesNotChangeTheCity() {
+    Micropolis expected = simulate(null, 0);
+    Micropolis actual = simulate(null, 20_000);
+
+    assertSameCity(actual, expected);
+  }
+
+  private static void assertSameCity(Micropolis actual, Micropolis expected) {
+    int size = expected.getWidth();
+    char[] expectedTiles = new char[size * size];
+    char[] actualTiles = new char[size * size];
+    expected.getMap().copyRect(0, 0, size, size, expectedTiles);
+    actual.getMap().copyRect(0, 0, size, size, actualTiles);
+    assertThat(actualTiles).isEqualTo(expectedTiles);
+    assertThat(actual.getCityPopulation()).isEqualTo(expected.getCityPopulation());
+    assertThat(actual.getLandValueMem()).isDeepEqualTo(expected.getLandValueMem());
+    assertThat(actual.getPollutionMem()).isDeepEqualTo(expected.getPollutionMem());
+    assertThat(actual.getCrimeMem()).isDeepEqualTo(expected.getCrimeMem());
+    assertThat(actual.getPopDensity()).isDeepEqualTo(expected.getPopDensity());
+    assertThat(actual.getComRate()).isDeepEqualTo(expected.getComRate());
+    assertThat(actual.getFireRate()).isDeepEqualTo(expected.getFireRate());
+    assertThat(actual.getLocationOfMaxPollution()).isEqualTo(expected.getLocationOfMaxPollution());
+  }
+
+  private static Micropolis simulate(ForkJoinPool pool, long stepBudget) {
+    Micropolis city = TestCities.build(120, 120, 5);
+    city.setOverlayPool(pool);
+    city.setStepBudget(stepBudget);
+    try {
+      for (int i = 0; i < TestCities.ANIMATIONS_PER_YEAR / 2; i++) {
+        city.animate();
+        // bulldoze now and then, so that some of the phases computed ahead are computed again
+        if (i % 37 == 0) {
+          city.setTile(i % 120, i / 120 % 120, DIRT);
+        }
+      }
+    } finally {
+      if (pool != null) {
+        pool.shutdown();
+      }
+    }
+    return city;
+  }
+}
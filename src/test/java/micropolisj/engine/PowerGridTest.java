@@ -0,0 +1,91 @@
+package micropolisj.engine;
+
+import static micropolisj.engine.TileConstants.DIRT;
+import static micropolisj.engine.TileConstants.NUCLEAR;
+import static micropolisj.engine.TileConstants.POWERPLANT;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+public class PowerGridTest {
+
+  /** Number of tiles defined in tiles.rc. */
+  private static final int TILE_COUNT = 960;
+
+  private static final int WIDTH = 64;
+  private static final int HEIGHT = 48;
+
+  @Test
+  public void matchesFloodFillOnRandomMaps() {
+    for (long seed = 0; seed < 50; seed++) {
+      Random random = new Random(seed);
+      TileGrid scanned = new TileGrid(WIDTH, HEIGHT);
+      TileGrid filled = new TileGrid(WIDTH, HEIGHT);
+      for (int y = 0; y < HEIGHT; y++) {
+        for (int x = 0; x < WIDTH; x++) {
+          char tile = randomTile(random);
+          scanned.set(x, y, tile);
+          filled.set(x, y, tile);
+        }
+      }
+      int[] plants = new int[1 + random.nextInt(6)];
+      for (int p = 0; p < plants.length; p++) {
+        plants[p] = random.nextInt(WIDTH * HEIGHT);
+        char tile = random.nextBoolean() ? NUCLEAR : POWERPLANT;
+        scanned.set(plants[p] % WIDTH, plants[p] / WIDTH, tile);
+        filled.set(plants[p] % WIDTH, plants[p] / WIDTH, tile);
+      }
+
+      // several rounds of scans, some with brownouts, with changes to the map in between
+      for (int round = 0; round < 10; round++) {
+        int maxPower = random.nextBoolean() ? 100000 : random.nextInt(2000);
+        for (int plant : plants) {
+          scanned.getPowerGrid().addPlant(plant % WIDTH, plant / WIDTH);
+          filled.getPowerGrid().addPlant(plant % WIDTH, plant / WIDTH);
+        }
+
+        boolean scanResult = scanned.getPowerGrid().scan(maxPower);
+        boolean fillResult = filled.getPowerGrid().floodFill(maxPower);
+
+        assertThat(scanResult).as("seed %d round %d", seed, round).isEqualTo(fillResult);
+        for (int y = 0; y < HEIGHT; y++) {
+          for (int x = 0; x < WIDTH; x++) {
+            assertThat(scanned.getPowerGrid().hasPower(x, y))
+                .as("seed %d round %d at %d,%d", seed, round, x, y)
+                .isEqualTo(filled.getPowerGrid().hasPower(x, y));
+          }
+        }
+
+        int changes = random.nextInt(3) * random.nextInt(20);
+        for (int c = 0; c < changes; c++) {
+          int x = random.nextInt(WIDTH);
+          int y = random.nextInt(HEIGHT);
+          char tile = randomTile(random);
+          scanned.set(x, y, tile);
+          filled.set(x, y, tile);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void consumesPlants() {
+    TileGrid grid = new TileGrid(WIDTH, HEIGHT);
+    grid.set(10, 10, NUCLEAR);
+    grid.getPowerGrid().addPlant(10, 10);
+
+    grid.getPowerGrid().scan(2000);
+
+    assertThat(grid.getPowerGrid().getPlantCount()).isZero();
+    assertThat(grid.getPowerGrid().hasPower(10, 10)).isTrue();
+
+    grid.getPowerGrid().scan(2000);
+
+    assertThat(grid.getPowerGrid().hasPower(10, 10)).isFalse();
+  }
+
+  private static char randomTile(Random random) {
+    return random.nextInt(3) == 0 ? DIRT : (char) random.nextInt(TILE_COUNT);
+  }
+}
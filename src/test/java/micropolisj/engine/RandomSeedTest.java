@@ -0,0 +1,108 @@
+package micropolisj.engine;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.random.RandomGenerator;
+import java.util.random.RandomGenerator.SplittableGenerator;
+import java.util.random.RandomGeneratorFactory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class RandomSeedTest {
+
+  @TempDir Path dir;
+
+  @Test
+  public void citiesWithTheSameSeedEvolveTheSameWay() {
+    Micropolis first = simulate(TestCities.build(120, 100, 3));
+    Micropolis second = simulate(TestCities.build(120, 100, 3));
+
+    assertSameMap(second, first);
+    assertThat(second.getCityPopulation()).isEqualTo(first.getCityPopulation());
+    assertThat(second.getRandom().nextLong()).isEqualTo(first.getRandom().nextLong());
+  }
+
+  @Test
+  public void citiesDoNotShareRandomNumbers() {
+    Micropolis city = new Micropolis(120, 100, 3);
+    long expected = new Micropolis(120, 100, 3).getRandom().nextLong();
+
+    new Micropolis(120, 100, 3).getRandom().nextLong();
+
+    assertThat(city.getRandom().nextLong()).isEqualTo(expected);
+  }
+
+  @Test
+  public void setSeedRestartsTheRandomNumbers() {
+    Micropolis city = new Micropolis();
+    city.setSeed(11);
+    long expected = city.getRandom().nextLong();
+
+    city.setSeed(11);
+
+    assertThat(city.getSeed()).isEqualTo(11);
+    assertThat(city.getRandom().nextLong()).isEqualTo(expected);
+  }
+
+  @Test
+  public void seedIsSavedWithTheCity() throws IOException {
+    Micropolis city = simulate(TestCities.build(120, 100, 3));
+    Micropolis unsaved = simulate(TestCities.build(120, 100, 3));
+    File file = dir.resolve("city.cty").toFile();
+    city.save(file);
+
+    Micropolis loaded = new Micropolis();
+    loaded.load(file);
+
+    assertThat(loaded.getSeed()).isEqualTo(city.getSeed()).isEqualTo(3);
+    long expected = unsaved.getRandom().nextLong();
+    assertThat(loaded.getRandom().nextLong()).isEqualTo(expected);
+    assertThat(city.getRandom().nextLong()).isEqualTo(expected);
+
+    // saving does not change how the city goes on
+    simulate(city);
+    simulate(unsaved);
+    assertSameMap(city, unsaved);
+    assertThat(city.getCityPopulation()).isEqualTo(unsaved.getCityPopulation());
+    assertThat(city.getRandom().nextLong()).isEqualTo(unsaved.getRandom().nextLong());
+  }
+
+  @Test
+  public void randomNumbersAreThoseOfTheJdkAlgorithm() {
+    for (long seed : new long[] {0, 1, 3, -1, 0x6A09E667F3BCC909L, Long.MIN_VALUE}) {
+      CityRandom random = new CityRandom(seed);
+      SplittableGenerator expected =
+          RandomGeneratorFactory.<SplittableGenerator>of("L64X128MixRandom").create(seed);
+
+      for (int i = 0; i < 100; i++) {
+        assertThat(random.nextLong()).isEqualTo(expected.nextLong());
+        assertThat(random.nextInt(1000)).isEqualTo(expected.nextInt(1000));
+        assertThat(random.nextDouble()).isEqualTo(expected.nextDouble());
+      }
+      RandomGenerator split = random.split();
+      RandomGenerator expectedSplit = expected.split();
+      for (int i = 0; i < 100; i++) {
+        assertThat(split.nextLong()).isEqualTo(expectedSplit.nextLong());
+        assertThat(random.nextLong()).isEqualTo(expected.nextLong());
+      }
+    }
+  }
+
+  private static Micropolis simulate(Micropolis city) {
+    for (int i = 0; i < TestCities.ANIMATIONS_PER_YEAR / 4; i++) {
+      city.animate();
+    }
+    return city;
+  }
+
+  private static void assertSameMap(Micropolis actual, Micropolis expected) {
+    char[] expectedTiles = new char[expected.getWidth() * expected.getHeight()];
+    char[] actualTiles = new char[actual.getWidth() * actual.getHeight()];
+    expected.getMap().copyRect(0, 0, expected.getWidth(), expected.getHeight(), expectedTiles);
+    actual.getMap().copyRect(0, 0, actual.getWidth(), actual.getHeight(), actualTiles);
+    assertThat(actualTiles).isEqualTo(expectedTiles);
+  }
+}
@@ -0,0 +1,67 @@
+package micropolisj.engine;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.ForkJoinPool;
+import org.junit.jupiter.api.Test;
+
+public class ScanStripTest {
+
+  /** Tall enough for the even strips of a parallel scan to be scanned at the same time. */
+  private static final int SIZE = 3 * ScanStrip.HEIGHT - 40;
+
+  @Test
+  public void parallelScanDoesNotDependOnParallelism() {
+    Micropolis alone = simulate(new ForkJoinPool(1));
+    Micropolis together = simulate(new ForkJoinPool(4));
+
+    char[] expected = new char[SIZE * SIZE];
+    char[] actual = new char[SIZE * SIZE];
+    alone.getMap().copyRect(0, 0, SIZE, SIZE, expected);
+    together.getMap().copyRect(0, 0, SIZE, SIZE, actual);
+    assertThat(actual).isEqualTo(expected);
+    assertThat(together.getCityPopulation()).isEqualTo(alone.getCityPopulation());
+    assertThat(together.getTrfDensity()).isDeepEqualTo(alone.getTrfDensity());
+    assertThat(together.getRateOGMem()).isDeepEqualTo(alone.getRateOGMem());
+  }
+
+  @Test
+  public void parallelScanKeepsIndexesOfMap() {
+    Micropolis city = simulate(new ForkJoinPool(2));
+
+    assertThat(city.getCityPopulation()).isPositive();
+    int[] counts = new int[TileIndex.Kind.values().length];
+    int zones = 0;
+    for (int y = 0; y < city.getHeight(); y++) {
+      for (int x = 0; x < city.getWidth(); x++) {
+        TileIndex.Kind kind = TileIndex.getKind(city.getTile(x, y));
+        if (kind != null) {
+          counts[kind.ordinal()]++;
+        }
+        if (TileConstants.isZoneCenter(city.getTile(x, y))) {
+          zones++;
+          assertThat(city.getMap().getZones().get(x, y)).isNotNull();
+        }
+      }
+    }
+    for (TileIndex.Kind kind : TileIndex.Kind.values()) {
+      assertThat(city.getMap().getIndex().count(kind))
+          .as(kind.name())
+          .isEqualTo(counts[kind.ordinal()]);
+    }
+    assertThat(city.getMap().getZones().size()).isEqualTo(zones);
+  }
+
+  private static Micropolis simulate(ForkJoinPool pool) {
+    Micropolis city = TestCities.build(SIZE, SIZE, 5);
+    city.setScanPool(pool);
+    try {
+      for (int i = 0; i < TestCities.ANIMATIONS_PER_YEAR / 3; i++) {
+        city.animate();
+      }
+    } finally {
+      pool.shutdown();
+    }
+    return city;
+  }
+}
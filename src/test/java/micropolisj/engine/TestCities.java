@@ -0,0 +1,77 @@
+package micropolisj.engine;
+
+/** Builds playable cities of any size for tests and benchmarks. */
+final class TestCities {
+
+  /** Edge length of the square neighborhoods the city is made of. */
+  static final int BLOCK_SIZE = 40;
+
+  /** Number of animate() calls making up one simulated year at the default speed. */
+  static final int ANIMATIONS_PER_YEAR = 1536;
+
+  private static final MicropolisTool[] ZONES = {
+    MicropolisTool.RESIDENTIAL,
+    MicropolisTool.COMMERCIAL,
+    MicropolisTool.RESIDENTIAL,
+    MicropolisTool.INDUSTRIAL,
+    MicropolisTool.RESIDENTIAL
+  };
+
+  private TestCities() {}
+
+  /**
+   * Generates terrain for a map of the given size, then covers it with neighborhoods, each with a
+   * nuclear power plant, a power line, three roads and rows of zones along the roads. The terrain
+   * and the city only depend on the seed, so that equal seeds build equal cities. Disasters are
+   * turned off, so that a meltdown somewhere does not change the city being measured.
+   */
+  static Micropolis build(int width, int height, long seed) {
+    return build(width, height, width, height, seed);
+  }
+
+  /**
+   * Same as {@link #build(int, int, long)}, but only develops the top left corner of the map, of
+   * the given size, and leaves the rest of the map as generated.
+   */
+  static Micropolis build(
+      int width, int height, int developedWidth, int developedHeight, long seed) {
+    Micropolis city = new Micropolis(width, height, seed);
+    new MapGenerator(city).generateNewCity();
+    city.getBudget().setTotalFunds(Integer.MAX_VALUE / 2);
+    city.toggleDisasters();
+
+    int k = 0;
+    for (int oy = 0; oy + BLOCK_SIZE <= developedHeight; oy += BLOCK_SIZE) {
+      for (int ox = 0; ox + BLOCK_SIZE <= developedWidth; ox += BLOCK_SIZE) {
+        k = buildBlock(city, ox, oy, k);
+      }
+    }
+    return city;
+  }
+
+  private static int buildBlock(Micropolis city, int ox, int oy, int k) {
+    for (int y = oy; y < oy + BLOCK_SIZE; y++) {
+      for (int x = ox; x < ox + BLOCK_SIZE; x++) {
+        city.setTile(x, y, TileConstants.DIRT);
+      }
+    }
+    apply(city, MicropolisTool.NUCLEAR, ox + 2, oy + 2);
+    for (int y = oy + 1; y < oy + BLOCK_SIZE - 1; y++) {
+      apply(city, MicropolisTool.WIRE, ox + 5, y);
+    }
+    for (int r = oy + 8; r < oy + BLOCK_SIZE - 4; r += 10) {
+      for (int x = ox + 5; x < ox + BLOCK_SIZE - 1; x++) {
+        apply(city, MicropolisTool.ROADS, x, r);
+      }
+      for (int x = ox + 7; x < ox + BLOCK_SIZE - 1; x += 3) {
+        apply(city, ZONES[k++ % ZONES.length], x, r - 2);
+        apply(city, ZONES[k++ % ZONES.length], x, r + 2);
+      }
+    }
+    return k;
+  }
+
+  private static void apply(Micropolis city, MicropolisTool tool, int x, int y) {
+    tool.beginStroke(city, x, y).apply();
+  }
+}
@@ -0,0 +1,171 @@
+package micropolisj.engine;
+
+import static micropolisj.engine.TileConstants.DIRT;
+import static micropolisj.engine.TileConstants.LOMASK;
+import static micropolisj.engine.TileConstants.PWRBIT;
+import static micropolisj.engine.TileGrid.CHUNK_MASK;
+import static micropolisj.engine.TileGrid.CHUNK_SHIFT;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares a full-map scan over the former {@code char[][]} map storage with the same scan over a
+ * {@link TileGrid}, in both the row order used by the renderers and the column order used by the
+ * map scan. The behavior scans mirror the map scan, which only has work to do for tiles with a
+ * behavior and can therefore skip chunks without one.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TileGridBenchmark {
+
+  /** Number of tiles defined in tiles.rc. */
+  private static final int TILE_COUNT = 960;
+
+  @Param({"120x100", "512x512", "2048x2048"})
+  public String size;
+
+  /**
+   * How the map is filled: "noise" puts a random tile everywhere, "sparse" leaves the map dirt
+   * except for a few scattered clusters of random tiles, like a large and mostly empty city.
+   */
+  @Param({"noise", "sparse"})
+  public String layout;
+
+  private char[][] nested;
+  private TileGrid grid;
+  private char[] row;
+  private boolean[] hasBehavior;
+
+  @Setup
+  public void setUp() {
+    String[] parts = size.split("x");
+    int width = Integer.parseInt(parts[0]);
+    int height = Integer.parseInt(parts[1]);
+
+    nested = new char[height][width];
+    grid = new TileGrid(width, height);
+    row = new char[width];
+
+    hasBehavior = new boolean[LOMASK + 1];
+    for (int tile = 0; tile <= LOMASK; tile++) {
+      hasBehavior[tile] = Tiles.get(tile) != null && TileConstants.getTileBehavior(tile) != null;
+    }
+
+    Random random = new Random(42);
+    boolean sparse = layout.equals("sparse");
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        char value = DIRT;
+        if (!sparse || (x / 64 + y / 64) % 7 == 0 && x % 64 < 20 && y % 64 < 20) {
+          value = (char) random.nextInt(TILE_COUNT);
+          value |= random.nextBoolean() ? PWRBIT : 0;
+        }
+        nested[y][x] = value;
+        grid.set(x, y, value);
+      }
+    }
+    grid.compact();
+  }
+
+  @Benchmark
+  public int nestedArrayByRow() {
+    int sum = 0;
+    for (int y = 0; y < nested.length; y++) {
+      for (int x = 0; x < nested[y].length; x++) {
+        sum += nested[y][x] & LOMASK;
+      }
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public int nestedArrayByColumn() {
+    int sum = 0;
+    for (int x = 0; x < nested[0].length; x++) {
+      for (int y = 0; y < nested.length; y++) {
+        sum += nested[y][x] & LOMASK;
+      }
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public int tileGridByRow() {
+    int sum = 0;
+    for (int y = 0; y < grid.getHeight(); y++) {
+      for (int x = 0; x < grid.getWidth(); x++) {
+        sum += grid.get(x, y) & LOMASK;
+      }
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public int tileGridByColumn() {
+    int sum = 0;
+    for (int x = 0; x < grid.getWidth(); x++) {
+      for (int y = 0; y < grid.getHeight(); y++) {
+        sum += grid.get(x, y) & LOMASK;
+      }
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public int tileGridCopyRow() {
+    int sum = 0;
+    for (int y = 0; y < grid.getHeight(); y++) {
+      grid.copyRow(y, 0, row, 0, row.length);
+      for (char value : row) {
+        sum += value & LOMASK;
+      }
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public int nestedArrayBehaviorScan() {
+    int count = 0;
+    for (int x = 0; x < nested[0].length; x++) {
+      for (int y = 0; y < nested.length; y++) {
+        if (hasBehavior[nested[y][x] & LOMASK]) {
+          count++;
+        }
+      }
+    }
+    return count;
+  }
+
+  @Benchmark
+  public int tileGridBehaviorScan() {
+    int count = 0;
+    for (int x = 0; x < grid.getWidth(); x++) {
+      for (int y = 0; y < grid.getHeight(); y++) {
+        if ((y & CHUNK_MASK) == 0 && !grid.hasBehavior(x >> CHUNK_SHIFT, y >> CHUNK_SHIFT)) {
+          y += CHUNK_MASK;
+          continue;
+        }
+        if (hasBehavior[grid.get(x, y) & LOMASK]) {
+          count++;
+        }
+      }
+    }
+    return count;
+  }
+}
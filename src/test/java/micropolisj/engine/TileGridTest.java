@@ -0,0 +1,282 @@
+package micropolisj.engine;
+
+import static micropolisj.engine.TileConstants.DIRT;
+import static micropolisj.engine.TileConstants.FIRE;
+import static micropolisj.engine.TileConstants.PWRBIT;
+import static micropolisj.engine.TileConstants.RIVER;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.jupiter.api.Test;
+
+public class TileGridTest {
+
+  private final TileGrid grid = new TileGrid(5, 4);
+
+  @Test
+  public void storesValues() {
+    grid.set(3, 2, FIRE);
+
+    assertThat(grid.get(3, 2)).isEqualTo(FIRE);
+    assertThat(grid.get(2, 3)).isEqualTo((char) 0);
+  }
+
+  @Test
+  public void keepsPowerBit() {
+    grid.set(1, 1, (char) (FIRE | PWRBIT));
+
+    assertThat(grid.get(1, 1)).isEqualTo((char) (FIRE | PWRBIT));
+  }
+
+  @Test
+  public void copiesRow() {
+    grid.fill(DIRT);
+    grid.set(1, 3, RIVER);
+    grid.set(2, 3, FIRE);
+    char[] dest = new char[4];
+
+    grid.copyRow(3, 1, dest, 1, 2);
+
+    assertThat(dest).containsExactly((char) 0, RIVER, FIRE, (char) 0);
+  }
+
+  @Test
+  public void copiesRect() {
+    for (int y = 0; y < 4; y++) {
+      for (int x = 0; x < 5; x++) {
+        grid.set(x, y, (char) (y * 10 + x));
+      }
+    }
+    char[] dest = new char[6];
+
+    grid.copyRect(2, 1, 3, 2, dest);
+
+    assertThat(dest).isEqualTo(new char[] {12, 13, 14, 22, 23, 24});
+  }
+
+  @Test
+  public void rejectsCopyOutsideOfMap() {
+    char[] dest = new char[10];
+
+    assertThatThrownBy(() -> grid.copyRow(0, 3, dest, 0, 3))
+        .isInstanceOf(IndexOutOfBoundsException.class);
+    assertThatThrownBy(() -> grid.copyRect(0, 3, 2, 2, dest))
+        .isInstanceOf(IndexOutOfBoundsException.class);
+  }
+
+  @Test
+  public void copiesRowAcrossChunks() {
+    TileGrid large = new TileGrid(40, 20);
+    large.fill(DIRT);
+    large.set(15, 17, RIVER);
+    large.set(16, 17, FIRE);
+    char[] dest = new char[4];
+
+    large.copyRow(17, 14, dest, 0, 4);
+
+    assertThat(dest).containsExactly(DIRT, RIVER, FIRE, DIRT);
+  }
+
+  @Test
+  public void sharesValueOfUniformChunks() {
+    TileGrid large = new TileGrid(2048, 2048);
+    large.fill(RIVER);
+
+    assertThat(large.countAllocatedChunks()).isZero();
+    assertThat(large.get(2047, 2047)).isEqualTo(RIVER);
+
+    large.set(100, 200, FIRE);
+
+    assertThat(large.countAllocatedChunks()).isEqualTo(1);
+    assertThat(large.get(100, 200)).isEqualTo(FIRE);
+    assertThat(large.get(101, 200)).isEqualTo(RIVER);
+  }
+
+  @Test
+  public void compactReleasesChunksThatBecameUniform() {
+    TileGrid large = new TileGrid(50, 50);
+    large.set(49, 49, FIRE);
+    large.set(10, 10, FIRE);
+    large.set(49, 49, DIRT);
+
+    assertThat(large.isDirty(3, 3)).isTrue();
+
+    large.compact();
+
+    assertThat(large.countAllocatedChunks()).isEqualTo(1);
+    assertThat(large.isUniform(0, 0)).isFalse();
+    assertThat(large.isUniform(3, 3)).isTrue();
+    assertThat(large.getUniformValue(3, 3)).isEqualTo(DIRT);
+    assertThat(large.isDirty(3, 3)).isFalse();
+  }
+
+  @Test
+  public void countsWritesPerChunk() {
+    TileGrid large = new TileGrid(50, 50);
+    large.fill(DIRT);
+    int before = large.getWriteCount(1, 1);
+
+    large.set(20, 20, FIRE);
+    large.set(20, 20, FIRE);
+    large.compact();
+
+    assertThat(large.getWriteCount(1, 1)).isEqualTo(before + 1);
+    assertThat(large.getWriteCount(0, 0)).isEqualTo(before);
+
+    large.fill(RIVER);
+
+    assertThat(large.getWriteCount(0, 0)).isEqualTo(before + 1);
+  }
+
+  @Test
+  public void countsWritesChangingOverlayInputs() {
+    grid.fill(DIRT);
+    grid.set(1, 1, RIVER);
+    int version = grid.getOverlayVersion();
+
+    grid.set(1, 1, (char) (RIVER | PWRBIT));
+
+    assertThat(grid.getOverlayVersion()).isEqualTo(version);
+
+    grid.set(1, 1, FIRE);
+
+    assertThat(grid.getOverlayVersion()).isNotEqualTo(version);
+  }
+
+  @Test
+  public void countsDeferredOverlayChangesOnceOnCommit() {
+    TileGrid large = new TileGrid(200, 200);
+    large.fill(DIRT);
+    int version = large.getOverlayVersion();
+
+    large.deferChanges(64);
+    large.set(1, 1, FIRE);
+    large.set(100, 150, RIVER);
+    large.set(101, 150, (char) (RIVER | PWRBIT));
+
+    assertThat(large.getOverlayVersion()).isEqualTo(version);
+
+    large.commitChanges(pos -> {});
+
+    assertThat(large.getOverlayVersion()).isEqualTo(version + 1);
+
+    large.deferChanges(64);
+    large.set(100, 150, (char) (RIVER | PWRBIT));
+    large.commitChanges(pos -> {});
+
+    assertThat(large.getOverlayVersion()).isEqualTo(version + 1);
+  }
+
+  @Test
+  public void countsTilesWithBehavior() {
+    TileGrid large = new TileGrid(50, 50);
+    large.fill(DIRT);
+
+    assertThat(large.hasBehavior(1, 1)).isFalse();
+
+    large.set(20, 20, FIRE);
+    large.set(21, 20, FIRE);
+
+    assertThat(large.hasBehavior(1, 1)).isTrue();
+
+    large.set(20, 20, DIRT);
+    large.set(21, 20, RIVER);
+
+    assertThat(large.hasBehavior(1, 1)).isFalse();
+
+    large.fill(FIRE);
+    large.compact();
+
+    assertThat(large.hasBehavior(3, 3)).isTrue();
+  }
+
+  @Test
+  public void findsTilesWithBehaviorDownAColumn() {
+    TileGrid large = new TileGrid(50, 150);
+    large.fill(DIRT);
+    large.set(7, 3, FIRE);
+    large.set(7, 70, FIRE);
+    large.set(7, 149, FIRE);
+    large.set(8, 0, FIRE);
+
+    assertThat(large.nextBehaviorTile(7, 0)).isEqualTo(3);
+    assertThat(large.nextBehaviorTile(7, 4)).isEqualTo(70);
+    assertThat(large.nextBehaviorTile(7, 71)).isEqualTo(149);
+    assertThat(large.nextBehaviorTile(7, 150)).isEqualTo(-1);
+    assertThat(large.nextBehaviorTile(6, 0)).isEqualTo(-1);
+
+    large.set(7, 70, RIVER);
+
+    assertThat(large.nextBehaviorTile(7, 4)).isEqualTo(149);
+
+    large.fill(FIRE);
+
+    assertThat(large.nextBehaviorTile(49, 149)).isEqualTo(149);
+  }
+
+  @Test
+  public void findsTilesWithBehaviorInAChunk() {
+    TileGrid large = new TileGrid(50, 50);
+    large.fill(DIRT);
+    large.set(19, 16, FIRE);
+    large.set(17, 18, FIRE);
+    large.set(30, 31, FIRE);
+    large.set(32, 16, FIRE);
+    long all = TileGrid.chunkColumns(0, 16);
+
+    assertThat(large.nextBehaviorTileInChunk(1, 1, 0, all)).isEqualTo(3);
+    assertThat(large.nextBehaviorTileInChunk(1, 1, 4, all)).isEqualTo(2 * 16 + 1);
+    assertThat(large.nextBehaviorTileInChunk(1, 1, 2 * 16 + 2, all)).isEqualTo(15 * 16 + 14);
+    assertThat(large.nextBehaviorTileInChunk(1, 1, 15 * 16 + 15, all)).isEqualTo(-1);
+    assertThat(large.nextBehaviorTileInChunk(1, 1, 256, all)).isEqualTo(-1);
+    assertThat(large.nextBehaviorTileInChunk(0, 1, 0, all)).isEqualTo(-1);
+    assertThat(large.nextBehaviorTileInChunk(1, 1, 0, TileGrid.chunkColumns(0, 2)))
+        .isEqualTo(2 * 16 + 1);
+
+    large.set(17, 18, RIVER);
+
+    assertThat(large.nextBehaviorTileInChunk(1, 1, 4, all)).isEqualTo(15 * 16 + 14);
+
+    large.fill(FIRE);
+
+    // tiles of the last chunk lying beyond the edge of the map are never found
+    assertThat(large.nextBehaviorTileInChunk(3, 3, 0, all)).isEqualTo(0);
+    assertThat(large.nextBehaviorTileInChunk(3, 3, 2, all)).isEqualTo(16);
+  }
+
+  @Test
+  public void findsAnimatedTilesRowByRow() {
+    TileGrid large = new TileGrid(100, 100);
+    large.fill(DIRT);
+    large.set(7, 3, (char) (FIRE | PWRBIT));
+    large.set(2, 4, FIRE);
+    large.set(99, 99, FIRE);
+
+    assertThat(large.nextAnimatedTile(0)).isEqualTo(307);
+    assertThat(large.nextAnimatedTile(308)).isEqualTo(402);
+    assertThat(large.nextAnimatedTile(403)).isEqualTo(9999);
+    assertThat(large.nextAnimatedTile(10000)).isEqualTo(-1);
+
+    large.set(2, 4, RIVER);
+
+    assertThat(large.nextAnimatedTile(308)).isEqualTo(9999);
+
+    large.set(99, 99, DIRT);
+
+    assertThat(large.nextAnimatedTile(308)).isEqualTo(-1);
+
+    large.fill(FIRE);
+
+    assertThat(large.nextAnimatedTile(5000)).isEqualTo(5000);
+  }
+
+  @Test
+  public void engineExposesItsGrid() {
+    Micropolis city = new Micropolis();
+    city.setTile(7, 8, FIRE);
+
+    assertThat(city.getMap().getWidth()).isEqualTo(120);
+    assertThat(city.getMap().getHeight()).isEqualTo(100);
+    assertThat(city.getMap().get(7, 8)).isEqualTo(FIRE);
+  }
+}
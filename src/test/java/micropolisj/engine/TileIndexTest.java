@@ -0,0 +1,109 @@
+package micropolisj.engine;
+
+import static micropolisj.engine.TileConstants.CHANNEL;
+import static micropolisj.engine.TileConstants.DIRT;
+import static micropolisj.engine.TileConstants.PWRBIT;
+import static micropolisj.engine.TileConstants.RIVER;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+public class TileIndexTest {
+
+  @Test
+  public void countsAndSamplesTilesOfAKind() {
+    TileGrid grid = new TileGrid(40, 40);
+    grid.fill(DIRT);
+    grid.set(3, 4, RIVER);
+    grid.set(30, 35, RIVER);
+    grid.set(5, 5, CHANNEL);
+
+    TileIndex index = grid.getIndex();
+    assertThat(index.count(TileIndex.Kind.RIVER)).isEqualTo(2);
+    assertThat(index.count(TileIndex.Kind.CHANNEL)).isEqualTo(1);
+    Set<Integer> sampled = new HashSet<>();
+    Random random = new Random(1);
+    for (int i = 0; i < 100; i++) {
+      sampled.add(index.sample(TileIndex.Kind.RIVER, random));
+    }
+    assertThat(sampled).containsExactlyInAnyOrder(4 * 40 + 3, 35 * 40 + 30);
+  }
+
+  @Test
+  public void followsChangesOfKind() {
+    TileGrid grid = new TileGrid(40, 40);
+    grid.fill(RIVER);
+    grid.set(3, 4, DIRT);
+    grid.set(3, 4, DIRT);
+    grid.set(5, 6, (char) (RIVER | PWRBIT));
+
+    TileIndex index = grid.getIndex();
+    assertThat(index.count(TileIndex.Kind.RIVER)).isEqualTo(40 * 40 - 1);
+
+    for (int y = 0; y < 40; y++) {
+      for (int x = 0; x < 40; x++) {
+        if (x != 7 || y != 8) {
+          grid.set(x, y, DIRT);
+        }
+      }
+    }
+
+    assertThat(index.count(TileIndex.Kind.RIVER)).isEqualTo(1);
+    assertThat(index.sample(TileIndex.Kind.RIVER, new Random(1))).isEqualTo(8 * 40 + 7);
+    assertThat(index.sample(TileIndex.Kind.CHANNEL, new Random(1))).isEqualTo(-1);
+  }
+
+  @Test
+  public void matchesMapOfSimulatedCity() {
+    Micropolis city = TestCities.build(120, 100, 7);
+    city.makeFire();
+    city.makeFlood();
+    for (int i = 0; i < TestCities.ANIMATIONS_PER_YEAR / 4; i++) {
+      city.animate();
+    }
+
+    int[] counts = new int[TileIndex.Kind.values().length];
+    for (int y = 0; y < city.getHeight(); y++) {
+      for (int x = 0; x < city.getWidth(); x++) {
+        TileIndex.Kind kind = TileIndex.getKind(city.getTile(x, y));
+        if (kind != null) {
+          counts[kind.ordinal()]++;
+        }
+      }
+    }
+    for (TileIndex.Kind kind : TileIndex.Kind.values()) {
+      assertThat(city.getMap().getIndex().count(kind))
+          .as(kind.name())
+          .isEqualTo(counts[kind.ordinal()]);
+    }
+  }
+
+  @Test
+  public void monsterRarelyFindsALoneRiverTile() {
+    int onRiver = 0;
+    int onEdgeRiver = 0;
+    for (int seed = 0; seed < 100; seed++) {
+      Micropolis city = new Micropolis(120, 100, seed);
+      city.setTile(30, 30, RIVER);
+      city.makeMonster();
+      if (city.getSprite(SpriteKind.GOD).getX() == 30 * 16 + 8) {
+        onRiver++;
+      }
+
+      Micropolis edge = new Micropolis(120, 100, seed);
+      edge.setTile(2, 2, RIVER);
+      edge.makeMonster();
+      if (edge.getSprite(SpriteKind.GOD).getX() == 2 * 16 + 8) {
+        onEdgeRiver++;
+      }
+    }
+
+    // three hundred probes of the 101x91 tiles away from the edge find one of them about 3.2% of
+    // the time
+    assertThat(onRiver).isLessThan(15);
+    assertThat(onEdgeRiver).isZero();
+  }
+}
@@ -0,0 +1,77 @@
+package micropolisj.engine;
+
+import static micropolisj.engine.TileConstants.LOMASK;
+import static micropolisj.engine.TileConstants.PWRBIT;
+import static micropolisj.engine.TileConstants.RESCLR;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+public class TilePropertiesTest {
+
+  @Test
+  public void matchesTileSpecs() {
+    for (int tile = 0; tile <= LOMASK; tile++) {
+      TileSpec spec = Tiles.get(tile);
+      if (spec == null) {
+        assertThat(TileConstants.isConductive(tile)).as("tile %d", tile).isFalse();
+        assertThat(TileConstants.isZoneCenter(tile)).as("tile %d", tile).isFalse();
+        assertThat(TileConstants.getPollutionValue(tile)).as("tile %d", tile).isZero();
+        assertThat(TileProperties.getDescriptionNumber(tile)).isEqualTo(-1);
+        continue;
+      }
+      TileSpec building = spec.getOwner() != null ? spec.getOwner() : spec;
+
+      assertThat(TileConstants.isConductive(tile))
+          .as("tile %d", tile)
+          .isEqualTo(spec.isCanConduct());
+      assertThat(TileConstants.isCombustible(tile)).as("tile %d", tile).isEqualTo(spec.isCanBurn());
+      assertThat(TileConstants.isOverWater(tile)).as("tile %d", tile).isEqualTo(spec.isOverWater());
+      assertThat(TileConstants.isZoneCenter(tile)).as("tile %d", tile).isEqualTo(spec.isZone());
+      assertThat(TileConstants.isAnimated(tile))
+          .as("tile %d", tile)
+          .isEqualTo(spec.getAnimNext() != null);
+      assertThat(TileConstants.isResidentialZoneAny(tile))
+          .as("tile %d", tile)
+          .isEqualTo(building.getBooleanAttribute("residential-zone"));
+      assertThat(TileConstants.isCommercialZone(tile))
+          .as("tile %d", tile)
+          .isEqualTo(building.getBooleanAttribute("commercial-zone"));
+      assertThat(TileConstants.isIndustrialZone(tile))
+          .as("tile %d", tile)
+          .isEqualTo(building.getBooleanAttribute("industrial-zone"));
+      assertThat(TileConstants.hasTileBehavior(tile))
+          .as("tile %d", tile)
+          .isEqualTo(TileConstants.getTileBehavior(tile) != null);
+      assertThat(TileConstants.getPollutionValue(tile))
+          .as("tile %d", tile)
+          .isEqualTo(spec.getPollutionValue());
+      assertThat(TileConstants.getDescriptionNumber(tile))
+          .as("tile %d", tile)
+          .isEqualTo(spec.getDescriptionNumber());
+      assertThat(TileProperties.getPopulation(tile))
+          .as("tile %d", tile)
+          .isEqualTo(spec.getPopulation());
+      assertThat(TileProperties.getBuildingSize(tile))
+          .as("tile %d", tile)
+          .isEqualTo(spec.getBuildingSize());
+      assertThat(TileProperties.getAnimNext(tile))
+          .as("tile %d", tile)
+          .isEqualTo(spec.getAnimNext() != null ? spec.getAnimNext().getTileNumber() : -1);
+      assertThat(TileProperties.getOnPower(tile))
+          .as("tile %d", tile)
+          .isEqualTo(spec.getOnPower() != null ? spec.getOnPower().getTileNumber() : -1);
+      assertThat(TileProperties.getOnShutdown(tile))
+          .as("tile %d", tile)
+          .isEqualTo(spec.getOnShutdown() != null ? spec.getOnShutdown().getTileNumber() : -1);
+      assertThat(TileProperties.getOwner(tile))
+          .as("tile %d", tile)
+          .isEqualTo(spec.getOwner() != null ? spec.getOwner().getTileNumber() : -1);
+    }
+  }
+
+  @Test
+  public void ignoresStatusBits() {
+    assertThat(TileProperties.is(RESCLR | PWRBIT, TileProperties.ZONE_CENTER)).isTrue();
+  }
+}
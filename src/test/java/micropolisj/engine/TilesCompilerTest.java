@@ -0,0 +1,56 @@
+package micropolisj.engine;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import org.junit.jupiter.api.Test;
+
+public class TilesCompilerTest {
+
+  @Test
+  public void compiledTilesMatchParsedTiles() throws IOException {
+    byte[] source = readSource();
+    TileSpec[] parsed = TilesCompiler.parse(source);
+
+    TileSpec[] compiled = roundTrip(parsed, TilesCompiler.checksum(source));
+
+    assertThat(compiled).hasSameSizeAs(parsed);
+    for (int i = 0; i < parsed.length; i++) {
+      assertThat(compiled[i].getTileNumber()).isEqualTo(i);
+      assertThat(compiled[i].getName()).isEqualTo(parsed[i].getName());
+      assertThat(compiled[i].getAttributes()).isEqualTo(parsed[i].getAttributes());
+      assertThat(compiled[i].getImages()).containsExactly(parsed[i].getImages());
+      assertThat(compiled[i].isCanConduct()).isEqualTo(parsed[i].isCanConduct());
+      assertThat(compiled[i].isCanBurn()).isEqualTo(parsed[i].isCanBurn());
+    }
+  }
+
+  @Test
+  public void ignoresTilesCompiledFromOtherSource() throws IOException {
+    byte[] source = readSource();
+    TileSpec[] parsed = TilesCompiler.parse(source);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    TilesCompiler.write(parsed, TilesCompiler.checksum(source), out);
+
+    TileSpec[] compiled =
+        TilesCompiler.read(
+            new ByteArrayInputStream(out.toByteArray()), TilesCompiler.checksum(source) + 1);
+
+    assertThat(compiled).isNull();
+  }
+
+  private static TileSpec[] roundTrip(TileSpec[] tiles, long checksum) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    TilesCompiler.write(tiles, checksum, out);
+    return TilesCompiler.read(new ByteArrayInputStream(out.toByteArray()), checksum);
+  }
+
+  private static byte[] readSource() throws IOException {
+    try (InputStream in = TilesCompilerTest.class.getResourceAsStream(TilesCompiler.SOURCE)) {
+      return in.readAllBytes();
+    }
+  }
+}
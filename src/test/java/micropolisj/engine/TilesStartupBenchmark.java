@@ -0,0 +1,44 @@
+package micropolisj.engine;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures loading the tile specifications in a fresh JVM, as happens at startup: parsing tiles.rc
+ * versus reading the table compiled at build time. Each fork measures a single, cold load. Needs a
+ * build that ran the compile-tiles step, which the benchmark profile's test-compile does.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(20)
+public class TilesStartupBenchmark {
+
+  @Benchmark
+  public TileSpec[] parseText() throws IOException {
+    return TilesCompiler.parse(read(TilesCompiler.SOURCE));
+  }
+
+  @Benchmark
+  public TileSpec[] readCompiled() throws IOException {
+    long checksum = TilesCompiler.checksum(read(TilesCompiler.SOURCE));
+    try (InputStream in = TilesStartupBenchmark.class.getResourceAsStream(TilesCompiler.COMPILED)) {
+      return TilesCompiler.read(in, checksum);
+    }
+  }
+
+  private static byte[] read(String resource) throws IOException {
+    try (InputStream in = TilesStartupBenchmark.class.getResourceAsStream(resource)) {
+      return in.readAllBytes();
+    }
+  }
+}
@@ -0,0 +1,136 @@
+package micropolisj.engine;
+
+import static micropolisj.engine.TileConstants.COMCLR;
+import static micropolisj.engine.TileConstants.DIRT;
+import static micropolisj.engine.TileConstants.NUCLEAR;
+import static micropolisj.engine.TileConstants.POWERPLANT;
+import static micropolisj.engine.TileConstants.PWRBIT;
+import static micropolisj.engine.TileConstants.RESCLR;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class ZoneRegistryTest {
+
+  @TempDir Path dir;
+
+  @Test
+  public void recordsZoneCenters() {
+    TileGrid grid = new TileGrid(10, 10);
+
+    grid.set(4, 5, (char) (COMCLR | PWRBIT));
+    grid.set(6, 6, DIRT);
+
+    ZoneRegistry.Zone zone = grid.getZones().get(4, 5);
+    assertThat(grid.getZones().size()).isEqualTo(1);
+    assertThat(zone.getTile()).isEqualTo(COMCLR);
+    assertThat(zone.getType()).isEqualTo(ZoneType.COMMERCIAL);
+    assertThat(zone.getSize()).isEqualTo(new CityDimension(3, 3));
+    assertThat(zone.isPowered()).isTrue();
+    assertThat(zone.getPopulation()).isZero();
+  }
+
+  @Test
+  public void followsChangesOfTheCenterTile() {
+    TileGrid grid = new TileGrid(10, 10);
+    grid.set(4, 5, (char) (RESCLR | PWRBIT));
+
+    grid.set(4, 5, RESCLR);
+    assertThat(grid.getZones().get(4, 5).isPowered()).isFalse();
+
+    grid.set(4, 5, DIRT);
+    assertThat(grid.getZones().get(4, 5)).isNull();
+    assertThat(grid.getZones().size()).isZero();
+  }
+
+  @Test
+  public void listsPowerPlantsRowByRow() {
+    TileGrid grid = new TileGrid(10, 10);
+    grid.set(7, 2, NUCLEAR);
+    grid.set(2, 7, POWERPLANT);
+    grid.set(3, 2, POWERPLANT);
+    grid.set(5, 5, RESCLR);
+
+    assertThat(grid.getZones().getPowerPlants())
+        .extracting(z -> z.getX() + "," + z.getY())
+        .containsExactly("3,2", "7,2", "2,7");
+    assertThat(grid.getZones().getZones())
+        .extracting(z -> z.getX() + "," + z.getY())
+        .containsExactly("2,7", "3,2", "5,5", "7,2");
+  }
+
+  @Test
+  public void listsZonesFromALocation() {
+    TileGrid grid = new TileGrid(10, 10);
+    grid.set(2, 7, RESCLR);
+    grid.set(3, 2, COMCLR);
+    grid.set(5, 5, RESCLR);
+
+    assertThat(grid.getZones().getZonesFrom(3, 2))
+        .extracting(z -> z.getX() + "," + z.getY())
+        .containsExactly("3,2", "5,5");
+    assertThat(grid.getZones().getZonesFrom(3, 3))
+        .extracting(z -> z.getX() + "," + z.getY())
+        .containsExactly("5,5");
+  }
+
+  @Test
+  public void isEmptiedByFill() {
+    TileGrid grid = new TileGrid(10, 10);
+    grid.set(7, 2, NUCLEAR);
+
+    grid.fill(DIRT);
+
+    assertThat(grid.getZones().size()).isZero();
+    assertThat(grid.getZones().getPowerPlants()).isEmpty();
+  }
+
+  @Test
+  public void matchesMapOfSimulatedCity() {
+    Micropolis city = TestCities.build(120, 100, 7);
+    MicropolisTool.BULLDOZER.beginStroke(city, 13, 6).apply();
+    for (int i = 0; i < TestCities.ANIMATIONS_PER_YEAR / 4; i++) {
+      city.animate();
+    }
+
+    assertThat(registeredZones(city)).isEqualTo(scanForZones(city));
+  }
+
+  @Test
+  public void isRebuiltOnLoad() throws IOException {
+    Micropolis city = TestCities.build(120, 100, 7);
+    File file = dir.resolve("city.cty").toFile();
+    city.save(file);
+
+    Micropolis loaded = new Micropolis();
+    loaded.load(file);
+
+    assertThat(registeredZones(loaded)).isEqualTo(scanForZones(city));
+  }
+
+  private static List<String> registeredZones(Micropolis city) {
+    List<String> zones = new ArrayList<>();
+    for (ZoneRegistry.Zone zone : city.getMap().getZones().getZones()) {
+      zones.add(zone.getX() + "," + zone.getY() + ":" + (int) zone.getTile());
+    }
+    return zones;
+  }
+
+  private static List<String> scanForZones(Micropolis city) {
+    List<String> zones = new ArrayList<>();
+    for (int x = 0; x < city.getWidth(); x++) {
+      for (int y = 0; y < city.getHeight(); y++) {
+        if (TileConstants.isZoneCenter(city.getTile(x, y))) {
+          zones.add(x + "," + y + ":" + (int) city.getTile(x, y));
+        }
+      }
+    }
+    return zones;
+  }
+}